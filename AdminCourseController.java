@@ -1,6 +1,9 @@
 package com.learnforge.controller;
 
 import com.learnforge.entity.Course;
+import com.learnforge.service.CourseAggregatesService;
+import com.learnforge.service.CourseCatalogCache;
+import com.learnforge.service.CourseSearchIndex;
 import com.learnforge.service.CourseService;
 import org.springframework.http.ResponseEntity;
 //import org.springframework.security.access.prepost.PreAuthorize;
@@ -11,12 +14,21 @@ import org.springframework.web.bind.annotation.*;
 //@PreAuthorize("hasRole('ADMIN')") // Spring Security annotation
 public class AdminCourseController {
 private CourseService courseSvc;
-public AdminCourseController(CourseService courseSvc) {
+private CourseCatalogCache catalogCache;
+private CourseSearchIndex searchIndex;
+private CourseAggregatesService courseAggregates;
+public AdminCourseController(CourseService courseSvc, CourseCatalogCache catalogCache, CourseSearchIndex searchIndex,
+                             CourseAggregatesService courseAggregates) {
     this.courseSvc = courseSvc;
+    this.catalogCache = catalogCache;
+    this.searchIndex = searchIndex;
+    this.courseAggregates = courseAggregates;
 }
     @PostMapping
     public ResponseEntity<Course> createCourse(@RequestBody Course course) {
         Course saved = courseSvc.saveCourse(course);
+        catalogCache.invalidate();
+        searchIndex.index(saved);
         return ResponseEntity.ok(saved);
     }
 
@@ -29,6 +41,9 @@ public AdminCourseController(CourseService courseSvc) {
     @DeleteMapping("/{id}")
     public ResponseEntity<Void> deleteCourse(@PathVariable Long id) {
         courseSvc.deleteCourse(id);
+        catalogCache.invalidate();
+        searchIndex.remove(id);
+        courseAggregates.courseDeleted(id);
         return ResponseEntity.noContent().build();
     }
 }
@@ -0,0 +1,29 @@
+package com.learnforge.service;
+
+import com.learnforge.dto.ArenaEvent;
+
+import java.util.function.Consumer;
+
+/**
+ * Pub/sub channel that carries arena events between websocket nodes.
+ * <p>
+ * Implementations must deliver every published event to every subscriber on
+ * every node, in one total order, including back to the publishing node.
+ */
+public interface ArenaBackplane {
+
+    void publish(ArenaEvent event);
+
+    void subscribe(Consumer<ArenaEvent> handler);
+
+    String nodeId();
+
+    // True when room state is replicated to other nodes, so this node can drain safely
+    default boolean isClustered() {
+        return false;
+    }
+
+    // Run after the backplane reconnects and this node may have missed events
+    default void onReconnect(Runnable listener) {
+    }
+}
@@ -0,0 +1,135 @@
+package com.learnforge.service;
+
+import com.learnforge.dto.ArenaMembershipFrame;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.stereotype.Component;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * Coalescing membership broadcaster for arena rooms.
+ * <p>
+ * Joins and leaves are folded into a pending delta per room and flushed as one
+ * {@code PLAYER_DELTA} frame after {@code arena.broadcast.coalesce-window-ms}.
+ * A join and leave of the same player inside one window cancel out. Resync
+ * requests inside a window collapse into a single {@code PLAYER_LIST} snapshot,
+ * which replaces the pending delta.
+ */
+@Component
+public class ArenaBroadcaster {
+
+    private final SimpMessagingTemplate messagingTemplate;
+    private final ArenaRoomRegistry roomRegistry;
+    private final long windowMillis;
+    private final Map<String, PendingDelta> pending = new ConcurrentHashMap<>();
+    private final ScheduledExecutorService flusher;
+
+    public ArenaBroadcaster(
+            SimpMessagingTemplate messagingTemplate,
+            ArenaRoomRegistry roomRegistry,
+            @Value("${arena.broadcast.coalesce-window-ms:50}") long windowMillis) {
+        this.messagingTemplate = messagingTemplate;
+        this.roomRegistry = roomRegistry;
+        this.windowMillis = windowMillis;
+        this.flusher = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "arena-broadcast-flusher");
+            t.setDaemon(true);
+            return t;
+        });
+    }
+
+    public void playerJoined(String roomId, String userId, long version) {
+        merge(roomId, delta -> delta.joined(userId, version));
+    }
+
+    public void playerLeft(String roomId, String userId, long version) {
+        merge(roomId, delta -> delta.left(userId, version));
+    }
+
+    // Client detected a version gap; answer with one full PLAYER_LIST for the window
+    public void requestSnapshot(String roomId) {
+        merge(roomId, delta -> delta.snapshotRequested = true);
+    }
+
+    public void send(String roomId, Object frame) {
+        messagingTemplate.convertAndSend("/topic/arena/" + roomId, frame);
+    }
+
+    private void merge(String roomId, Consumer<PendingDelta> change) {
+        boolean[] opened = new boolean[1];
+        // The pending delta is only touched inside compute/remove for its key, so no extra locking
+        pending.compute(roomId, (id, delta) -> {
+            if (delta == null) {
+                delta = new PendingDelta();
+                opened[0] = true;
+            }
+            change.accept(delta);
+            return delta;
+        });
+        if (opened[0]) {
+            flusher.schedule(() -> flush(roomId), windowMillis, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    private void flush(String roomId) {
+        PendingDelta delta = pending.remove(roomId);
+        if (delta == null) {
+            return;
+        }
+
+        ArenaMembershipFrame frame = new ArenaMembershipFrame();
+        frame.setRoomId(roomId);
+        if (delta.snapshotRequested) {
+            ArenaRoomRegistry.RoomSnapshot snapshot = roomRegistry.snapshot(roomId);
+            frame.setAction("PLAYER_LIST");
+            frame.setVersion(snapshot.version());
+            frame.setPlayers(snapshot.players());
+        } else {
+            frame.setAction("PLAYER_DELTA");
+            frame.setBaseVersion(delta.baseVersion);
+            frame.setVersion(delta.version);
+            frame.setJoined(new ArrayList<>(delta.joined));
+            frame.setLeft(new ArrayList<>(delta.left));
+        }
+        send(roomId, frame);
+    }
+
+    @PreDestroy
+    void shutdown() {
+        flusher.shutdownNow();
+    }
+
+    private static final class PendingDelta {
+        private final Set<String> joined = new LinkedHashSet<>();
+        private final Set<String> left = new LinkedHashSet<>();
+        private long baseVersion = Long.MAX_VALUE;
+        private long version = Long.MIN_VALUE;
+        private boolean snapshotRequested;
+
+        void joined(String userId, long newVersion) {
+            if (!left.remove(userId)) {
+                joined.add(userId);
+            }
+            advance(newVersion);
+        }
+
+        void left(String userId, long newVersion) {
+            if (!joined.remove(userId)) {
+                left.add(userId);
+            }
+            advance(newVersion);
+        }
+
+        private void advance(long newVersion) {
+            baseVersion = Math.min(baseVersion, newVersion - 1);
+            version = Math.max(version, newVersion);
+        }
+    }
+}
@@ -0,0 +1,19 @@
+package com.learnforge.service;
+
+import java.util.function.Consumer;
+
+/**
+ * Minimal message-broker contract used by {@link ClusteredArenaBackplane}.
+ * A Redis, NATS or Kafka client only has to deliver each channel's messages
+ * to all subscribers in publish order.
+ */
+public interface ArenaBrokerClient {
+
+    void publish(String channel, byte[] payload);
+
+    void subscribe(String channel, Consumer<byte[]> listener);
+
+    // Clients that can lose their connection run these after resubscribing, since messages may have been missed
+    default void onReconnect(Runnable listener) {
+    }
+}
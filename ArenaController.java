@@ -2,8 +2,9 @@ package com.learnforge.controller;
 
 import com.learnforge.model.Question;
 import com.learnforge.entity.UserProgress;
+import com.learnforge.service.ArenaLeaderboardService;
 import com.learnforge.service.ArenaService;
-import com.learnforge.service.QuestionService;
+import com.learnforge.service.QuestionPoolCache;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.web.bind.annotation.*;
 
@@ -21,7 +22,9 @@ public class ArenaController {
     @Autowired
     private ArenaService arenaService;
     @Autowired
-    private QuestionService questionService;
+    private QuestionPoolCache questionPoolCache;
+    @Autowired
+    private ArenaLeaderboardService leaderboardService;
 
     // @GetMapping("/start")
     // public List<Question> startGame(@RequestParam(defaultValue = "10") int count)
@@ -34,12 +37,12 @@ public class ArenaController {
             @RequestParam String difficulty,
             @RequestParam(defaultValue = "5") int count) {
 
-        return questionService.getRandomQuestions(topic, difficulty, count);
+        return questionPoolCache.getRandomQuestions(topic, difficulty, count);
     }
 
     @PostMapping("/submit")
     public Map<String, Object> submitAnswers(@RequestParam String userId, @RequestBody Map<Long, String> answers) {
-        return arenaService.evaluateAnswers(userId, answers);
+        return leaderboardService.submitAnswers(userId, answers);
     }
 
     /**
@@ -55,9 +58,27 @@ public class ArenaController {
         return arenaService.getUserProgress(userId);
     }
 
+    // Served from the in-memory ranked boards, not a scan per request
     @GetMapping("/leaderboard")
     public List<com.learnforge.dto.LeaderboardEntryDto> getLeaderboard(
+            @RequestParam(defaultValue = "week") String type,
+            @RequestParam(defaultValue = "0") int page,
+            @RequestParam(defaultValue = "100") int size) {
+        return leaderboardService.top(type, Math.min(Math.max(page, 0), 10_000), Math.min(Math.max(size, 1), 500));
+    }
+
+    @GetMapping("/leaderboard/rank/{userId}")
+    public Map<String, Object> getLeaderboardRank(
+            @PathVariable String userId,
             @RequestParam(defaultValue = "week") String type) {
-        return arenaService.getLeaderboard(type);
+        Map<String, Object> response = new HashMap<>();
+        response.put("userId", userId);
+        response.put("type", type);
+        response.put("total", leaderboardService.size(type));
+        leaderboardService.rank(type, userId).ifPresent(entry -> {
+            response.put("rank", entry.rank());
+            response.put("score", entry.score());
+        });
+        return response;
     }
 }
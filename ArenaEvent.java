@@ -0,0 +1,40 @@
+package com.learnforge.dto;
+
+import com.learnforge.model.ArenaMessage;
+import lombok.Data;
+
+import java.util.List;
+
+/**
+ * Replicated arena input. Every node applies the same ordered stream of events
+ * to its own room state and fans the resulting frames out to its local sockets.
+ */
+@Data
+public class ArenaEvent {
+
+    public enum Type { JOIN, LEAVE, CHAT, ROUND_START, ANSWER, ROUND_DEADLINE, ROOM_EXPIRED,
+        SYNC_REQUEST, STATE_TRANSFER, SYNC_DONE }
+
+    /** One room's membership as carried by {@code STATE_TRANSFER}. */
+    @Data
+    public static class RoomState {
+        private String roomId;
+        private long version;
+        private long lastActivity;
+        private List<String> players;
+    }
+
+    private Type type;
+    private String roomId;
+    private String originNode;
+    private long timestamp;
+    private ArenaMessage message;
+    private ArenaRoundStart roundStart;
+    private Integer round;
+    // ROOM_EXPIRED: close the room only if nothing happened in it since this time
+    private Long idleBefore;
+    // SYNC_REQUEST, STATE_TRANSFER and SYNC_DONE of one catch-up share an id
+    private String syncId;
+    // STATE_TRANSFER: every room the sender knows
+    private List<RoomState> rooms;
+}
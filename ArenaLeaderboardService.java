@@ -0,0 +1,233 @@
+package com.learnforge.service;
+
+import com.learnforge.dto.LeaderboardEntryDto;
+import com.learnforge.model.ArenaResult;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.BeanUtils;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.time.temporal.TemporalAdjusters;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Precomputed arena leaderboards, kept current as answers and results arrive.
+ * <p>
+ * Weekly and all-time XP boards are fed by {@link #submitAnswers};
+ * per-topic boards hold each user's best {@link ArenaResult}. All boards are
+ * {@link RankedBoard}s, so a user's rank is O(log n) and a page is read without
+ * touching the database. Boards are rebuilt from the services on startup and
+ * reconciled on a schedule to pick up name changes and writes from other nodes.
+ * The weekly board rolls over at Monday 00:00 UTC.
+ * <p>
+ * Score submissions write to the database and add to the boards under the
+ * read side of a fence that {@link #rebuild()} holds exclusively. So every
+ * increment is either in the rebuild's query or applied to the new boards,
+ * never lost in between and never counted twice. Best results are offered
+ * under the same fence, so one can't land on boards a rebuild is replacing.
+ * Readers get copies; the payloads on the boards are never handed out.
+ */
+@Service
+public class ArenaLeaderboardService {
+
+    public static final String ALL_TOPICS = "";
+
+    private final ArenaService arenaService;
+    private final ArenaResultService arenaResultService;
+    private final ScheduledExecutorService reconciler;
+    private final ReentrantReadWriteLock fence = new ReentrantReadWriteLock();
+
+    private volatile WeeklyBoard weekBoard = new WeeklyBoard(currentWeek(), new RankedBoard<>());
+    private volatile RankedBoard<LeaderboardEntryDto> allTimeBoard = new RankedBoard<>();
+    private volatile Map<String, RankedBoard<ArenaResult>> topicBoards = new ConcurrentHashMap<>();
+
+    public ArenaLeaderboardService(
+            ArenaService arenaService,
+            ArenaResultService arenaResultService,
+            @Value("${arena.leaderboard.reconcile-minutes:15}") long reconcileMinutes) {
+        this.arenaService = arenaService;
+        this.arenaResultService = arenaResultService;
+        this.reconciler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "arena-leaderboard-reconciler");
+            t.setDaemon(true);
+            return t;
+        });
+        reconciler.scheduleWithFixedDelay(this::rebuildQuietly, reconcileMinutes, reconcileMinutes, TimeUnit.MINUTES);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuild() {
+        fence.writeLock().lock();
+        try {
+            rebuildFenced();
+        } finally {
+            fence.writeLock().unlock();
+        }
+    }
+
+    private void rebuildFenced() {
+        RankedBoard<LeaderboardEntryDto> week = new RankedBoard<>();
+        for (LeaderboardEntryDto entry : arenaService.getLeaderboard("week")) {
+            week.put(entry.getUserId(), entry.getScore(), entry);
+        }
+        RankedBoard<LeaderboardEntryDto> allTime = new RankedBoard<>();
+        for (LeaderboardEntryDto entry : arenaService.getLeaderboard("all")) {
+            allTime.put(entry.getUserId(), entry.getScore(), entry);
+        }
+        Map<String, RankedBoard<ArenaResult>> topics = new ConcurrentHashMap<>();
+        for (ArenaResult result : arenaResultService.getLeaderboard(null)) {
+            offerBest(topics, result);
+        }
+
+        weekBoard = new WeeklyBoard(currentWeek(), week);
+        allTimeBoard = allTime;
+        topicBoards = topics;
+    }
+
+    // Scores the answers and adds the points to the boards as one step relative to rebuild()
+    public Map<String, Object> submitAnswers(String userId, Map<Long, String> answers) {
+        fence.readLock().lock();
+        try {
+            Map<String, Object> result = arenaService.evaluateAnswers(userId, answers);
+            if (result != null && result.get("score") instanceof Number score) {
+                recordArenaScore(userId, score.longValue());
+            }
+            return result;
+        } finally {
+            fence.readLock().unlock();
+        }
+    }
+
+    private void recordArenaScore(String userId, long points) {
+        if (points == 0) {
+            return;
+        }
+        weeklyBoard().add(userId, points, () -> newEntry(userId));
+        allTimeBoard.add(userId, points, () -> newEntry(userId));
+    }
+
+    // Called after saveResult; keeps each user's best result per topic
+    public void recordResult(ArenaResult result) {
+        fence.readLock().lock();
+        try {
+            offerBest(topicBoards, result);
+        } finally {
+            fence.readLock().unlock();
+        }
+    }
+
+    public List<LeaderboardEntryDto> top(String type, int page, int size) {
+        List<LeaderboardEntryDto> entries = new ArrayList<>();
+        for (RankedBoard.Entry<LeaderboardEntryDto> e : boardFor(type).page(offset(page, size), size)) {
+            // The payload is shared with the board and other readers, so hand out a copy
+            LeaderboardEntryDto dto = new LeaderboardEntryDto();
+            BeanUtils.copyProperties(e.payload(), dto);
+            dto.setScore((int) e.score());
+            entries.add(dto);
+        }
+        return entries;
+    }
+
+    public Optional<RankedBoard.Entry<LeaderboardEntryDto>> rank(String type, String userId) {
+        return boardFor(type).find(userId);
+    }
+
+    public int size(String type) {
+        return boardFor(type).size();
+    }
+
+    public List<ArenaResult> topResults(String topic, int page, int size) {
+        RankedBoard<ArenaResult> board = topicBoards.get(topicKey(topic));
+        if (board == null) {
+            return new ArrayList<>();
+        }
+        List<ArenaResult> results = new ArrayList<>();
+        for (RankedBoard.Entry<ArenaResult> e : board.page(offset(page, size), size)) {
+            ArenaResult copy = new ArenaResult();
+            BeanUtils.copyProperties(e.payload(), copy);
+            results.add(copy);
+        }
+        return results;
+    }
+
+    public Optional<RankedBoard.Entry<ArenaResult>> resultRank(String topic, String userId) {
+        RankedBoard<ArenaResult> board = topicBoards.get(topicKey(topic));
+        return board == null ? Optional.empty() : board.find(userId);
+    }
+
+    private RankedBoard<LeaderboardEntryDto> boardFor(String type) {
+        return "week".equalsIgnoreCase(type) ? weeklyBoard() : allTimeBoard;
+    }
+
+    // Swap in an empty board once the week changes; the old week is simply dropped
+    private RankedBoard<LeaderboardEntryDto> weeklyBoard() {
+        WeeklyBoard current = weekBoard;
+        LocalDate week = currentWeek();
+        if (!current.week.equals(week)) {
+            synchronized (this) {
+                if (!weekBoard.week.equals(week)) {
+                    weekBoard = new WeeklyBoard(week, new RankedBoard<>());
+                }
+                current = weekBoard;
+            }
+        }
+        return current.board;
+    }
+
+    private void offerBest(Map<String, RankedBoard<ArenaResult>> boards, ArenaResult result) {
+        long score = result.getScore();
+        // Every result counts towards the all-topics board as well as its own topic
+        for (String key : List.of(topicKey(result.getTopic()), ALL_TOPICS)) {
+            RankedBoard<ArenaResult> board = boards.computeIfAbsent(key, k -> new RankedBoard<>());
+            synchronized (board) {
+                Optional<RankedBoard.Entry<ArenaResult>> best = board.find(result.getUserId());
+                if (best.isEmpty() || best.get().score() < score) {
+                    board.put(result.getUserId(), score, result);
+                }
+            }
+        }
+    }
+
+    private static int offset(int page, int size) {
+        return (int) Math.min((long) page * size, Integer.MAX_VALUE);
+    }
+
+    private static String topicKey(String topic) {
+        return topic == null || topic.isBlank() ? ALL_TOPICS : topic.trim().toLowerCase(Locale.ROOT);
+    }
+
+    private static LeaderboardEntryDto newEntry(String userId) {
+        LeaderboardEntryDto dto = new LeaderboardEntryDto();
+        dto.setUserId(userId);
+        return dto;
+    }
+
+    private static LocalDate currentWeek() {
+        return LocalDate.now(ZoneOffset.UTC).with(TemporalAdjusters.previousOrSame(DayOfWeek.MONDAY));
+    }
+
+    private void rebuildQuietly() {
+        try {
+            rebuild();
+        } catch (RuntimeException e) {
+            System.err.println("❌ Leaderboard reconcile failed: " + e.getMessage());
+        }
+    }
+
+    @PreDestroy
+    void shutdown() {
+        reconciler.shutdownNow();
+    }
+
+    private record WeeklyBoard(LocalDate week, RankedBoard<LeaderboardEntryDto> board) { }
+}
@@ -0,0 +1,25 @@
+package com.learnforge.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.Data;
+
+import java.util.List;
+
+/**
+ * Room membership frame on {@code /topic/arena/{roomId}}.
+ * <p>
+ * {@code PLAYER_DELTA} carries only who joined and left between {@code baseVersion}
+ * and {@code version}; a client whose version differs from {@code baseVersion}
+ * should send {@code /arena/sync} and wait for the next {@code PLAYER_LIST}.
+ */
+@Data
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class ArenaMembershipFrame {
+    private String action;
+    private String roomId;
+    private Long baseVersion;
+    private long version;
+    private List<String> joined;
+    private List<String> left;
+    private List<String> players;
+}
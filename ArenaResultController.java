@@ -1,11 +1,14 @@
 package com.learnforge.controller;
 
 import com.learnforge.model.ArenaResult;
+import com.learnforge.service.ArenaLeaderboardService;
 import com.learnforge.service.ArenaResultService;
 import lombok.RequiredArgsConstructor;
 import org.springframework.web.bind.annotation.*;
 
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 @RestController
 @RequestMapping("/arena-result")
@@ -14,14 +17,35 @@ import java.util.List;
 public class ArenaResultController {
 
     private final ArenaResultService arenaResultService;
+    private final ArenaLeaderboardService leaderboardService;
 
     @PostMapping("/result")
     public ArenaResult saveResult(@RequestBody ArenaResult result) {
-        return arenaResultService.saveResult(result);
+        ArenaResult saved = arenaResultService.saveResult(result);
+        leaderboardService.recordResult(saved);
+        return saved;
     }
 
+    // Best result per user, served from the in-memory topic boards
     @GetMapping("/leaderboard")
-    public List<ArenaResult> getLeaderboard(@RequestParam(required = false) String topic) {
-        return arenaResultService.getLeaderboard(topic);
+    public List<ArenaResult> getLeaderboard(
+            @RequestParam(required = false) String topic,
+            @RequestParam(defaultValue = "0") int page,
+            @RequestParam(defaultValue = "100") int size) {
+        return leaderboardService.topResults(topic, Math.min(Math.max(page, 0), 10_000), Math.min(Math.max(size, 1), 500));
+    }
+
+    @GetMapping("/leaderboard/rank/{userId}")
+    public Map<String, Object> getRank(
+            @PathVariable String userId,
+            @RequestParam(required = false) String topic) {
+        Map<String, Object> response = new HashMap<>();
+        response.put("userId", userId);
+        response.put("topic", topic);
+        leaderboardService.resultRank(topic, userId).ifPresent(entry -> {
+            response.put("rank", entry.rank());
+            response.put("score", entry.score());
+        });
+        return response;
     }
 }
@@ -0,0 +1,291 @@
+package com.learnforge.service;
+
+import com.learnforge.dto.ArenaEvent;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+
+/**
+ * Concurrent registry of live arena rooms and their players.
+ * <p>
+ * Rooms live in a {@link ConcurrentHashMap}; every membership change runs inside
+ * {@code compute} for that room's key, so writers only contend on the hash bin of
+ * their own room and reads (contains, size, player snapshots) never lock.
+ * Empty rooms are torn down on leave, idle rooms are swept on a schedule and each
+ * room is capped at {@code arena.room.max-players}. Every membership change bumps
+ * the room's version so clients can apply deltas and detect gaps.
+ * <p>
+ * Activity times come from the events that caused them, not the local clock,
+ * so every node replaying the same events holds the same state. The sweeper
+ * only finds idle rooms; by default it closes them, but a clustered
+ * {@link ArenaRoomService} takes that decision over the backplane instead.
+ */
+@Component
+public class ArenaRoomRegistry {
+
+    public enum JoinOutcome { JOINED, ALREADY_PRESENT, ROOM_FULL }
+
+    public record JoinResult(JoinOutcome outcome, long version) { }
+
+    public record LeaveResult(boolean removed, long version) { }
+
+    public record RoomSnapshot(long version, List<String> players) { }
+
+    private final Map<String, Room> rooms = new ConcurrentHashMap<>();
+    private final List<Consumer<String>> closeListeners = new CopyOnWriteArrayList<>();
+    private final int maxPlayers;
+    private final long idleTtlMillis;
+    private final ScheduledExecutorService sweeper;
+    private volatile BiConsumer<String, Long> idleHandler = this::expireIfIdle;
+
+    public ArenaRoomRegistry(
+            @Value("${arena.room.max-players:100}") int maxPlayers,
+            @Value("${arena.room.idle-ttl-minutes:30}") long idleTtlMinutes,
+            @Value("${arena.room.sweep-interval-seconds:60}") long sweepIntervalSeconds) {
+        this.maxPlayers = maxPlayers;
+        this.idleTtlMillis = TimeUnit.MINUTES.toMillis(idleTtlMinutes);
+        this.sweeper = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "arena-room-sweeper");
+            t.setDaemon(true);
+            return t;
+        });
+        sweeper.scheduleWithFixedDelay(this::expireIdleRooms,
+                sweepIntervalSeconds, sweepIntervalSeconds, TimeUnit.SECONDS);
+    }
+
+    // Add a player, creating the room on first join
+    public JoinResult join(String roomId, String userId, long at) {
+        JoinResult[] result = new JoinResult[1];
+        rooms.compute(roomId, (id, room) -> {
+            if (room == null) {
+                room = new Room(at);
+            }
+            result[0] = new JoinResult(room.add(userId, maxPlayers, at), room.version);
+            return room;
+        });
+        return result[0];
+    }
+
+    // Remove a player; the room is torn down once its last player leaves
+    public LeaveResult leave(String roomId, String userId, long at) {
+        LeaveResult[] result = { new LeaveResult(false, -1) };
+        Room remaining = rooms.computeIfPresent(roomId, (id, room) -> {
+            result[0] = new LeaveResult(room.remove(userId, at), room.version);
+            return room.isEmpty() ? null : room;
+        });
+        if (result[0].removed() && remaining == null) {
+            fireClosed(roomId);
+        }
+        return result[0];
+    }
+
+    public boolean contains(String roomId, String userId) {
+        Room room = rooms.get(roomId);
+        return room != null && room.members.containsKey(userId);
+    }
+
+    // The host is the longest-standing player; when they leave, the next one takes over
+    public boolean isHost(String roomId, String userId) {
+        Room room = rooms.get(roomId);
+        return room != null && userId != null && userId.equals(room.host());
+    }
+
+    public boolean exists(String roomId) {
+        return rooms.containsKey(roomId);
+    }
+
+    public int size(String roomId) {
+        Room room = rooms.get(roomId);
+        return room == null ? 0 : room.members.size();
+    }
+
+    // Players in join order; empty if the room does not exist
+    public List<String> players(String roomId) {
+        Room room = rooms.get(roomId);
+        return room == null ? new ArrayList<>() : room.snapshot();
+    }
+
+    // Players and the version they correspond to, read consistently for resyncs
+    public RoomSnapshot snapshot(String roomId) {
+        RoomSnapshot[] snapshot = { new RoomSnapshot(0, new ArrayList<>()) };
+        rooms.computeIfPresent(roomId, (id, room) -> {
+            snapshot[0] = new RoomSnapshot(room.version, room.snapshot());
+            return room;
+        });
+        return snapshot[0];
+    }
+
+    // Record activity (chat, answers) so busy rooms are not swept
+    public void touch(String roomId, long at) {
+        rooms.computeIfPresent(roomId, (id, room) -> {
+            room.lastActivity = Math.max(room.lastActivity, at);
+            return room;
+        });
+    }
+
+    public void close(String roomId) {
+        if (rooms.remove(roomId) != null) {
+            fireClosed(roomId);
+        }
+    }
+
+    // Notified with the room id whenever a room is torn down
+    public void addCloseListener(Consumer<String> listener) {
+        closeListeners.add(listener);
+    }
+
+    public Set<String> roomIds() {
+        return new HashSet<>(rooms.keySet());
+    }
+
+    public int roomCount() {
+        return rooms.size();
+    }
+
+    // Called with (roomId, idleBefore) for each idle room the sweeper finds, instead of closing it here
+    public void onIdle(BiConsumer<String, Long> handler) {
+        idleHandler = handler;
+    }
+
+    // Close the room unless it saw activity at or after the cutoff; true if it was closed
+    public boolean expireIfIdle(String roomId, long idleBefore) {
+        boolean[] expired = new boolean[1];
+        rooms.computeIfPresent(roomId, (id, room) -> {
+            expired[0] = room.lastActivity < idleBefore;
+            return expired[0] ? null : room;
+        });
+        if (expired[0]) {
+            fireClosed(roomId);
+        }
+        return expired[0];
+    }
+
+    void expireIdleRooms() {
+        long cutoff = System.currentTimeMillis() - idleTtlMillis;
+        for (Map.Entry<String, Room> entry : rooms.entrySet()) {
+            if (entry.getValue().lastActivity < cutoff) {
+                idleHandler.accept(entry.getKey(), cutoff);
+            }
+        }
+    }
+
+    // Every room, for a node that is catching up
+    public List<ArenaEvent.RoomState> exportRooms() {
+        List<ArenaEvent.RoomState> states = new ArrayList<>();
+        for (String roomId : rooms.keySet()) {
+            rooms.computeIfPresent(roomId, (id, room) -> {
+                ArenaEvent.RoomState state = new ArenaEvent.RoomState();
+                state.setRoomId(id);
+                state.setVersion(room.version);
+                state.setLastActivity(room.lastActivity);
+                state.setPlayers(room.snapshot());
+                states.add(state);
+                return room;
+            });
+        }
+        return states;
+    }
+
+    // Replace all rooms with another node's; local rooms it doesn't have are closed
+    public void restore(List<ArenaEvent.RoomState> states) {
+        Set<String> kept = new HashSet<>();
+        for (ArenaEvent.RoomState state : states) {
+            kept.add(state.getRoomId());
+            Room room = new Room(state.getLastActivity());
+            for (String player : state.getPlayers()) {
+                room.members.put(player, room.joinSeq++);
+            }
+            room.version = state.getVersion();
+            rooms.put(state.getRoomId(), room);
+        }
+        for (String roomId : roomIds()) {
+            if (!kept.contains(roomId)) {
+                close(roomId);
+            }
+        }
+    }
+
+    private void fireClosed(String roomId) {
+        for (Consumer<String> listener : closeListeners) {
+            listener.accept(roomId);
+        }
+    }
+
+    @PreDestroy
+    void shutdown() {
+        sweeper.shutdownNow();
+    }
+
+    /**
+     * Membership of a single room. Mutations are only made from inside
+     * {@code rooms.compute(...)} for this room's key, which serialises them;
+     * the member map itself is concurrent so readers never block.
+     */
+    private static final class Room {
+        private final Map<String, Long> members = new ConcurrentHashMap<>();
+        private long joinSeq;
+        private volatile long version;
+        private volatile long lastActivity;
+
+        Room(long lastActivity) {
+            this.lastActivity = lastActivity;
+        }
+
+        JoinOutcome add(String userId, int maxPlayers, long at) {
+            lastActivity = Math.max(lastActivity, at);
+            if (members.containsKey(userId)) {
+                return JoinOutcome.ALREADY_PRESENT;
+            }
+            if (members.size() >= maxPlayers) {
+                return JoinOutcome.ROOM_FULL;
+            }
+            members.put(userId, joinSeq++);
+            version++;
+            return JoinOutcome.JOINED;
+        }
+
+        boolean remove(String userId, long at) {
+            lastActivity = Math.max(lastActivity, at);
+            if (members.remove(userId) == null) {
+                return false;
+            }
+            version++;
+            return true;
+        }
+
+        boolean isEmpty() {
+            return members.isEmpty();
+        }
+
+        String host() {
+            String host = null;
+            long first = Long.MAX_VALUE;
+            for (Map.Entry<String, Long> e : members.entrySet()) {
+                if (e.getValue() < first) {
+                    first = e.getValue();
+                    host = e.getKey();
+                }
+            }
+            return host;
+        }
+
+        List<String> snapshot() {
+            List<Map.Entry<String, Long>> entries = new ArrayList<>(members.entrySet());
+            entries.sort(Map.Entry.comparingByValue());
+            List<String> players = new ArrayList<>(entries.size());
+            for (Map.Entry<String, Long> e : entries) {
+                players.add(e.getKey());
+            }
+            return players;
+        }
+    }
+}
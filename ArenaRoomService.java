@@ -0,0 +1,274 @@
+package com.learnforge.service;
+
+import com.learnforge.dto.ArenaEvent;
+import com.learnforge.dto.ArenaRoundStart;
+import com.learnforge.model.ArenaMessage;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.ContextClosedEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+
+import java.util.*;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Room state and fan-out behind {@code ArenaWebSocketController}.
+ * <p>
+ * Inbound frames are turned into {@link ArenaEvent}s and published on the
+ * {@link ArenaBackplane}. Every node applies the delivered events to its own
+ * registry and round engine and sends the resulting frames to its local
+ * subscribers, so a room can span nodes and survive one of them draining.
+ * Resync snapshots are answered locally since the requester is connected here.
+ * <p>
+ * When clustered, a node that starts or reconnects publishes {@code SYNC_REQUEST}.
+ * Each node that hears it answers with a {@code STATE_TRANSFER} of all its
+ * rooms as of that point in the stream, and the requester buffers every other
+ * event until its own {@code SYNC_DONE} comes back
+ * ({@code arena.sync.window-millis} later). At that point it installs the first
+ * transfer it received and replays the buffer on top. If nobody answered, it is
+ * the only node and keeps its own state. Idle rooms are not closed locally:
+ * the sweeper publishes {@code ROOM_EXPIRED} and every node closes the room at
+ * the same place in the stream, unless it saw activity in the meantime. Rounds
+ * in progress are not transferred, so a node that joins mid-round follows
+ * from the next round on.
+ */
+@Service
+public class ArenaRoomService {
+
+    private final ArenaBackplane backplane;
+    private final ArenaRoomRegistry roomRegistry;
+    private final ArenaRoundEngine roundEngine;
+    private final ArenaBroadcaster broadcaster;
+    private final long syncWindowMillis;
+    private final ScheduledExecutorService syncTimer;
+    private volatile boolean draining;
+
+    // State transfer, only touched from the backplane's delivery thread; syncId is set while catching up
+    private String syncId;
+    private boolean restored;
+    private final List<ArenaEvent> buffered = new ArrayList<>();
+
+    public ArenaRoomService(ArenaBackplane backplane,
+                            ArenaRoomRegistry roomRegistry,
+                            ArenaRoundEngine roundEngine,
+                            ArenaBroadcaster broadcaster,
+                            @Value("${arena.sync.window-millis:2000}") long syncWindowMillis) {
+        this.backplane = backplane;
+        this.roomRegistry = roomRegistry;
+        this.roundEngine = roundEngine;
+        this.broadcaster = broadcaster;
+        this.syncWindowMillis = syncWindowMillis;
+        this.syncTimer = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "arena-sync-timer");
+            t.setDaemon(true);
+            return t;
+        });
+        roundEngine.onRoundComplete(result -> broadcaster.send(result.getRoomId(), result));
+        // Deadlines go through the backplane so all nodes close the round at the same point
+        roundEngine.onDeadline((roomId, round) -> {
+            ArenaEvent event = event(ArenaEvent.Type.ROUND_DEADLINE, roomId);
+            event.setRound(round);
+            backplane.publish(event);
+        });
+        backplane.subscribe(this::apply);
+        if (backplane.isClustered()) {
+            roomRegistry.onIdle((roomId, idleBefore) -> {
+                ArenaEvent event = event(ArenaEvent.Type.ROOM_EXPIRED, roomId);
+                event.setIdleBefore(idleBefore);
+                backplane.publish(event);
+            });
+            backplane.onReconnect(this::requestStateTransfer);
+        }
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void requestStateTransfer() {
+        if (backplane.isClustered()) {
+            ArenaEvent request = event(ArenaEvent.Type.SYNC_REQUEST, null);
+            request.setSyncId(UUID.randomUUID().toString());
+            backplane.publish(request);
+        }
+    }
+
+    public void join(ArenaMessage msg) {
+        if (draining) {
+            broadcaster.send(msg.getRoomId(), reconnectFrame(msg.getRoomId()));
+            return;
+        }
+        publish(ArenaEvent.Type.JOIN, msg);
+    }
+
+    public void leave(ArenaMessage msg) {
+        publish(ArenaEvent.Type.LEAVE, msg);
+    }
+
+    public void chat(ArenaMessage msg) {
+        msg.setTimestamp(new Date().toString());
+        publish(ArenaEvent.Type.CHAT, msg);
+    }
+
+    public void answer(ArenaMessage msg) {
+        publish(ArenaEvent.Type.ANSWER, msg);
+    }
+
+    public void startRound(ArenaRoundStart start) {
+        ArenaEvent event = event(ArenaEvent.Type.ROUND_START, start.getRoomId());
+        event.setRoundStart(start);
+        backplane.publish(event);
+    }
+
+    public void resync(String roomId) {
+        broadcaster.requestSnapshot(roomId);
+    }
+
+    private void publish(ArenaEvent.Type type, ArenaMessage msg) {
+        ArenaEvent event = event(type, msg.getRoomId());
+        event.setMessage(msg);
+        backplane.publish(event);
+    }
+
+    private ArenaEvent event(ArenaEvent.Type type, String roomId) {
+        ArenaEvent event = new ArenaEvent();
+        event.setType(type);
+        event.setRoomId(roomId);
+        event.setTimestamp(System.currentTimeMillis());
+        return event;
+    }
+
+    private void apply(ArenaEvent event) {
+        switch (event.getType()) {
+            case SYNC_REQUEST -> {
+                if (backplane.nodeId().equals(event.getOriginNode())) {
+                    // A newer request supersedes an unfinished one; its transfer will cover what we buffered
+                    syncId = event.getSyncId();
+                    restored = false;
+                    buffered.clear();
+                    syncTimer.schedule(() -> {
+                        ArenaEvent done = event(ArenaEvent.Type.SYNC_DONE, null);
+                        done.setSyncId(event.getSyncId());
+                        backplane.publish(done);
+                    }, syncWindowMillis, TimeUnit.MILLISECONDS);
+                } else if (syncId == null) {
+                    // Our state right now is exactly what the requester has missed up to its request
+                    ArenaEvent transfer = event(ArenaEvent.Type.STATE_TRANSFER, null);
+                    transfer.setSyncId(event.getSyncId());
+                    transfer.setRooms(roomRegistry.exportRooms());
+                    backplane.publish(transfer);
+                }
+            }
+            case STATE_TRANSFER -> {
+                if (syncId != null && syncId.equals(event.getSyncId()) && !restored) {
+                    roomRegistry.restore(event.getRooms());
+                    restored = true;
+                }
+            }
+            case SYNC_DONE -> {
+                if (syncId != null && syncId.equals(event.getSyncId())) {
+                    syncId = null;
+                    List<ArenaEvent> replay = new ArrayList<>(buffered);
+                    buffered.clear();
+                    replay.forEach(this::applyRoomEvent);
+                    if (restored) {
+                        // Local players may have seen nothing of the restored state yet
+                        roomRegistry.roomIds().forEach(broadcaster::requestSnapshot);
+                    }
+                }
+            }
+            default -> {
+                if (syncId != null) {
+                    buffered.add(event);
+                } else {
+                    applyRoomEvent(event);
+                }
+            }
+        }
+    }
+
+    private void applyRoomEvent(ArenaEvent event) {
+        String roomId = event.getRoomId();
+        ArenaMessage msg = event.getMessage();
+        switch (event.getType()) {
+            case JOIN -> {
+                ArenaRoomRegistry.JoinResult result = roomRegistry.join(roomId, msg.getUserId(), event.getTimestamp());
+                switch (result.outcome()) {
+                    case ROOM_FULL -> {
+                        msg.setAction("ROOM_FULL");
+                        broadcaster.send(roomId, msg);
+                    }
+                    // Reconnecting player: let them catch up with a full list
+                    case ALREADY_PRESENT -> broadcaster.requestSnapshot(roomId);
+                    // Joins inside the coalescing window go out as one PLAYER_DELTA
+                    case JOINED -> broadcaster.playerJoined(roomId, msg.getUserId(), result.version());
+                }
+            }
+            case LEAVE -> {
+                ArenaRoomRegistry.LeaveResult result = roomRegistry.leave(roomId, msg.getUserId(), event.getTimestamp());
+                if (result.removed()) {
+                    broadcaster.playerLeft(roomId, msg.getUserId(), result.version());
+                    // Don't let a departed player hold the current round open
+                    roundEngine.playerLeft(roomId);
+                }
+            }
+            case CHAT -> {
+                roomRegistry.touch(roomId, event.getTimestamp());
+                msg.setAction("CHAT");
+                broadcaster.send(roomId, msg);
+            }
+            case ROUND_START -> {
+                ArenaRoundStart start = event.getRoundStart();
+                int round = roundEngine.startRound(start, event.getTimestamp());
+                if (round == 0) {
+                    // Only the room's host may open rounds
+                    return;
+                }
+                roomRegistry.touch(roomId, event.getTimestamp());
+
+                Map<String, Object> started = new HashMap<>();
+                started.put("action", "ROUND_START");
+                started.put("roomId", roomId);
+                started.put("round", round);
+                started.put("questionId", start.getQuestionId());
+                started.put("timeLimitSeconds", start.getTimeLimitSeconds());
+                broadcaster.send(roomId, started);
+            }
+            case ANSWER -> {
+                ArenaRoundEngine.SubmitOutcome outcome = roundEngine.submit(roomId, msg.getUserId(), msg.getAnswer(),
+                        event.getTimestamp(), () -> {
+                            msg.setAction("ANSWERED");
+                            broadcaster.send(roomId, msg);
+                        });
+                if (outcome != ArenaRoundEngine.SubmitOutcome.NOT_IN_ROOM) {
+                    roomRegistry.touch(roomId, event.getTimestamp());
+                }
+            }
+            case ROUND_DEADLINE -> roundEngine.expire(roomId, event.getRound());
+            case ROOM_EXPIRED -> roomRegistry.expireIfIdle(roomId, event.getIdleBefore());
+            default -> { }
+        }
+    }
+
+    // Other nodes hold the same room state, so local players can just reconnect elsewhere
+    @EventListener(ContextClosedEvent.class)
+    public void drain() {
+        if (!backplane.isClustered()) {
+            return;
+        }
+        draining = true;
+        for (String roomId : roomRegistry.roomIds()) {
+            broadcaster.send(roomId, reconnectFrame(roomId));
+        }
+    }
+
+    private Map<String, Object> reconnectFrame(String roomId) {
+        return Map.of("action", "RECONNECT", "roomId", roomId, "node", backplane.nodeId());
+    }
+
+    @PreDestroy
+    void shutdown() {
+        syncTimer.shutdownNow();
+    }
+}
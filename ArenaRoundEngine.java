@@ -0,0 +1,294 @@
+package com.learnforge.service;
+
+import com.learnforge.dto.ArenaRoundResult;
+import com.learnforge.dto.ArenaRoundStart;
+import com.learnforge.model.Question;
+import com.learnforge.repository.QuestionRepository;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+
+/**
+ * Per-room round state machine for multiplayer arena answers.
+ * <p>
+ * Each room has at most one current round. Answers are recorded lock-free with
+ * {@code putIfAbsent} and an atomic counter; the round completes exactly once,
+ * either when every player still in the room has answered or when its deadline
+ * timer fires, guarded by a compare-and-set on the round's completed flag.
+ * Scoring happens on the server against the question's stored answer. Only the
+ * room's host may start a round and only its players may answer, so no state is
+ * kept for rooms the registry doesn't know; time limits are clamped to
+ * {@code arena.round.max-time-limit-seconds}.
+ * <p>
+ * Timing comes from the caller (the event timestamp) rather than the local clock,
+ * and deadline expiry is reported to a listener instead of closing the round
+ * directly, so every node replaying the same ordered events reaches the same result.
+ */
+@Component
+public class ArenaRoundEngine {
+
+    public enum SubmitOutcome { ACCEPTED, DUPLICATE, CLOSED, NOT_IN_ROOM }
+
+    private static final int BASE_POINTS = 100;
+    private static final int SPEED_BONUS = 50;
+
+    private final ArenaRoomRegistry roomRegistry;
+    private final QuestionRepository questionRepository;
+    private final long defaultTimeLimitMillis;
+    private final long maxTimeLimitMillis;
+    private final Map<String, Round> rounds = new ConcurrentHashMap<>();
+    private final Map<String, Map<String, Integer>> totals = new ConcurrentHashMap<>();
+    private final ScheduledExecutorService timers;
+    private volatile Consumer<ArenaRoundResult> resultListener = result -> { };
+    private volatile BiConsumer<String, Integer> deadlineListener = this::expire;
+
+    public ArenaRoundEngine(
+            ArenaRoomRegistry roomRegistry,
+            QuestionRepository questionRepository,
+            @Value("${arena.round.time-limit-seconds:30}") long defaultTimeLimitSeconds,
+            @Value("${arena.round.max-time-limit-seconds:300}") long maxTimeLimitSeconds) {
+        this.roomRegistry = roomRegistry;
+        this.questionRepository = questionRepository;
+        this.maxTimeLimitMillis = TimeUnit.SECONDS.toMillis(Math.max(1, maxTimeLimitSeconds));
+        this.defaultTimeLimitMillis = Math.min(TimeUnit.SECONDS.toMillis(defaultTimeLimitSeconds), maxTimeLimitMillis);
+        this.timers = Executors.newScheduledThreadPool(2, r -> {
+            Thread t = new Thread(r, "arena-round-timer");
+            t.setDaemon(true);
+            return t;
+        });
+        roomRegistry.addCloseListener(this::discardRoom);
+    }
+
+    // Receives every ROUND_RESULT, whether completed by the last answer or by the deadline
+    public void onRoundComplete(Consumer<ArenaRoundResult> listener) {
+        this.resultListener = listener;
+    }
+
+    // Receives (roomId, round) when a round's timer fires; defaults to expiring it in place
+    public void onDeadline(BiConsumer<String, Integer> listener) {
+        this.deadlineListener = listener;
+    }
+
+    // Open a new round for the room; an unfinished previous round is closed first. 0 if the sender isn't the host.
+    public int startRound(ArenaRoundStart start, long openedAt) {
+        if (!roomRegistry.isHost(start.getRoomId(), start.getUserId())) {
+            return 0;
+        }
+        String correctAnswer = start.getQuestionId() == null ? null
+                : questionRepository.findById(start.getQuestionId())
+                        .map(Question::getCorrectAnswer)
+                        .orElse(null);
+        long limitMillis = start.getTimeLimitSeconds() != null
+                ? Math.max(1000, Math.min(TimeUnit.SECONDS.toMillis(start.getTimeLimitSeconds()), maxTimeLimitMillis))
+                : defaultTimeLimitMillis;
+
+        Round[] previous = new Round[1];
+        Round next = rounds.compute(start.getRoomId(), (id, current) -> {
+            previous[0] = current;
+            int number = current == null ? 1 : current.number + 1;
+            return new Round(id, number, start.getQuestionId(), correctAnswer, limitMillis, true, openedAt);
+        });
+        if (previous[0] != null) {
+            complete(previous[0], true);
+        }
+        if (discardIfClosed(start.getRoomId())) {
+            return 0;
+        }
+        ensureScheduled(next);
+        return next.number;
+    }
+
+    // onAccepted runs before the completion check so ANSWERED frames precede ROUND_RESULT
+    public SubmitOutcome submit(String roomId, String userId, String answer, long answeredAt, Runnable onAccepted) {
+        if (!roomRegistry.contains(roomId, userId)) {
+            return SubmitOutcome.NOT_IN_ROOM;
+        }
+        // Clients that never send a round start get an implicit round per batch of answers
+        Round round = rounds.compute(roomId, (id, current) -> {
+            if (current == null) {
+                return new Round(id, 1, null, null, defaultTimeLimitMillis, false, answeredAt);
+            }
+            if (current.completed.get() && !current.explicit) {
+                return new Round(id, current.number + 1, null, null, defaultTimeLimitMillis, false, answeredAt);
+            }
+            return current;
+        });
+        if (discardIfClosed(roomId)) {
+            return SubmitOutcome.CLOSED;
+        }
+        ensureScheduled(round);
+
+        SubmitOutcome outcome = round.record(userId, answer, answeredAt);
+        if (outcome == SubmitOutcome.ACCEPTED) {
+            onAccepted.run();
+            checkComplete(round);
+        }
+        return outcome;
+    }
+
+    // Close the given round as timed out, unless it already completed or was replaced
+    public void expire(String roomId, int roundNumber) {
+        Round round = rounds.get(roomId);
+        if (round != null && round.number == roundNumber) {
+            complete(round, true);
+        }
+    }
+
+    // A departing player should not hold the round open
+    public void playerLeft(String roomId) {
+        Round round = rounds.get(roomId);
+        if (round != null) {
+            checkComplete(round);
+        }
+    }
+
+    private void checkComplete(Round round) {
+        if (round.answered.get() >= roomRegistry.size(round.roomId)
+                && round.answers.keySet().containsAll(roomRegistry.players(round.roomId))) {
+            complete(round, false);
+        }
+    }
+
+    private void ensureScheduled(Round round) {
+        if (round.scheduled.compareAndSet(false, true)) {
+            long delay = Math.max(0, round.openedAt + round.timeLimitMillis - System.currentTimeMillis());
+            round.deadline = timers.schedule(() -> {
+                if (!round.completed.get()) {
+                    deadlineListener.accept(round.roomId, round.number);
+                }
+            }, delay, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    private void complete(Round round, boolean timedOut) {
+        if (!round.completed.compareAndSet(false, true)) {
+            return;
+        }
+        ScheduledFuture<?> deadline = round.deadline;
+        if (deadline != null) {
+            deadline.cancel(false);
+        }
+
+        // A discarded room keeps no totals; its last result just reports this round's points
+        Map<String, Integer> roomTotals = totals.getOrDefault(round.roomId, new HashMap<>());
+        ArenaRoundResult result = new ArenaRoundResult();
+        result.setRoomId(round.roomId);
+        result.setRound(round.number);
+        result.setQuestionId(round.questionId);
+        result.setCorrectAnswer(round.correctAnswer);
+        result.setTimedOut(timedOut);
+
+        for (Map.Entry<String, Answer> e : round.answers.entrySet()) {
+            Answer a = e.getValue();
+            ArenaRoundResult.PlayerScore score = new ArenaRoundResult.PlayerScore();
+            score.setUserId(e.getKey());
+            score.setAnswer(a.answer);
+            score.setCorrect(a.correct);
+            score.setPoints(a.points);
+            score.setTotalPoints(roomTotals.merge(e.getKey(), a.points, Integer::sum));
+            score.setAnswerMillis(a.elapsedMillis);
+            result.getScores().add(score);
+        }
+        result.getScores().sort(Comparator.comparingInt(ArenaRoundResult.PlayerScore::getPoints).reversed()
+                .thenComparingLong(ArenaRoundResult.PlayerScore::getAnswerMillis));
+
+        for (String player : roomRegistry.players(round.roomId)) {
+            if (!round.answers.containsKey(player)) {
+                result.getUnanswered().add(player);
+            }
+        }
+
+        resultListener.accept(result);
+    }
+
+    // The room may have closed between the membership check and creating its round. Checked after the
+    // writes, so a close that comes later still reaches discardRoom through the registry's listener.
+    private boolean discardIfClosed(String roomId) {
+        totals.computeIfAbsent(roomId, id -> new ConcurrentHashMap<>());
+        if (roomRegistry.exists(roomId)) {
+            return false;
+        }
+        discardRoom(roomId);
+        return true;
+    }
+
+    private void discardRoom(String roomId) {
+        Round round = rounds.remove(roomId);
+        if (round != null) {
+            round.completed.set(true);
+            if (round.deadline != null) {
+                round.deadline.cancel(false);
+            }
+        }
+        totals.remove(roomId);
+    }
+
+    @PreDestroy
+    void shutdown() {
+        timers.shutdownNow();
+    }
+
+    private static final class Round {
+        private final String roomId;
+        private final int number;
+        private final Long questionId;
+        private final String correctAnswer;
+        private final long timeLimitMillis;
+        private final boolean explicit;
+        private final long openedAt;
+        private final Map<String, Answer> answers = new ConcurrentHashMap<>();
+        private final AtomicInteger answered = new AtomicInteger();
+        private final AtomicBoolean completed = new AtomicBoolean();
+        private final AtomicBoolean scheduled = new AtomicBoolean();
+        private volatile ScheduledFuture<?> deadline;
+
+        Round(String roomId, int number, Long questionId, String correctAnswer,
+              long timeLimitMillis, boolean explicit, long openedAt) {
+            this.roomId = roomId;
+            this.number = number;
+            this.questionId = questionId;
+            this.correctAnswer = correctAnswer;
+            this.timeLimitMillis = timeLimitMillis;
+            this.explicit = explicit;
+            this.openedAt = openedAt;
+        }
+
+        SubmitOutcome record(String userId, String answer, long answeredAt) {
+            if (completed.get()) {
+                return SubmitOutcome.CLOSED;
+            }
+            long elapsed = Math.max(0, answeredAt - openedAt);
+            if (answers.putIfAbsent(userId, score(answer, elapsed)) != null) {
+                return SubmitOutcome.DUPLICATE;
+            }
+            // Checked after the put: if completion raced ahead, this answer missed the snapshot
+            if (completed.get()) {
+                return SubmitOutcome.CLOSED;
+            }
+            answered.incrementAndGet();
+            return SubmitOutcome.ACCEPTED;
+        }
+
+        private Answer score(String answer, long elapsedMillis) {
+            if (correctAnswer == null) {
+                return new Answer(answer, null, 0, elapsedMillis);
+            }
+            boolean correct = answer != null && correctAnswer.trim().equalsIgnoreCase(answer.trim());
+            int points = 0;
+            if (correct) {
+                long remaining = Math.max(0, timeLimitMillis - elapsedMillis);
+                points = BASE_POINTS + (int) (SPEED_BONUS * remaining / Math.max(1, timeLimitMillis));
+            }
+            return new Answer(answer, correct, points, elapsedMillis);
+        }
+    }
+
+    private record Answer(String answer, Boolean correct, int points, long elapsedMillis) { }
+}
@@ -0,0 +1,112 @@
+package com.learnforge.service;
+
+import com.learnforge.dto.ArenaRoundResult;
+import com.learnforge.dto.ArenaRoundStart;
+import com.learnforge.repository.QuestionRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.RepeatedTest;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class ArenaRoundEngineTest {
+
+    private ArenaRoomRegistry registry;
+    private ArenaRoundEngine engine;
+    private final List<ArenaRoundResult> results = new CopyOnWriteArrayList<>();
+
+    @BeforeEach
+    void setUp() {
+        QuestionRepository questions = mock(QuestionRepository.class);
+        when(questions.findById(any())).thenReturn(Optional.empty());
+        registry = new ArenaRoomRegistry(100, 30, 3600);
+        engine = new ArenaRoundEngine(registry, questions, 30, 300);
+        engine.onRoundComplete(results::add);
+    }
+
+    @AfterEach
+    void tearDown() {
+        engine.shutdown();
+        registry.shutdown();
+    }
+
+    @RepeatedTest(20)
+    void concurrentAnswersAndDeadlineCompleteTheRoundOnce() throws Exception {
+        int players = 16;
+        long now = System.currentTimeMillis();
+        for (int i = 0; i < players; i++) {
+            registry.join("room", "p" + i, now);
+        }
+        assertEquals(1, engine.startRound(start("room", "p0", 30), now));
+
+        ExecutorService pool = Executors.newFixedThreadPool(players + 1);
+        CountDownLatch go = new CountDownLatch(1);
+        for (int i = 0; i < players; i++) {
+            String player = "p" + i;
+            pool.submit(() -> {
+                go.await();
+                return engine.submit("room", player, "a", now + 10, () -> { });
+            });
+        }
+        pool.submit(() -> {
+            go.await();
+            engine.expire("room", 1);
+            return null;
+        });
+        go.countDown();
+        pool.shutdown();
+        assertTrue(pool.awaitTermination(10, TimeUnit.SECONDS));
+
+        assertEquals(1, results.size());
+        assertEquals(1, results.get(0).getRound());
+    }
+
+    @Test
+    void lastAnswerCompletesTheRound() {
+        long now = System.currentTimeMillis();
+        registry.join("room", "a", now);
+        registry.join("room", "b", now);
+        engine.startRound(start("room", "a", 30), now);
+
+        assertEquals(ArenaRoundEngine.SubmitOutcome.ACCEPTED, engine.submit("room", "a", "x", now, () -> { }));
+        assertEquals(ArenaRoundEngine.SubmitOutcome.DUPLICATE, engine.submit("room", "a", "y", now, () -> { }));
+        assertTrue(results.isEmpty());
+        assertEquals(ArenaRoundEngine.SubmitOutcome.ACCEPTED, engine.submit("room", "b", "x", now, () -> { }));
+        assertEquals(1, results.size());
+        assertFalse(results.get(0).isTimedOut());
+        assertEquals(ArenaRoundEngine.SubmitOutcome.CLOSED, engine.submit("room", "b", "z", now, () -> { }));
+    }
+
+    @Test
+    void onlyPlayersAnswerAndOnlyTheHostStartsRounds() {
+        long now = System.currentTimeMillis();
+        registry.join("room", "host", now);
+        registry.join("room", "guest", now);
+
+        assertEquals(ArenaRoundEngine.SubmitOutcome.NOT_IN_ROOM, engine.submit("room", "stranger", "x", now, () -> { }));
+        assertEquals(ArenaRoundEngine.SubmitOutcome.NOT_IN_ROOM, engine.submit("made-up", "host", "x", now, () -> { }));
+        assertEquals(0, engine.startRound(start("room", "guest", 30), now));
+        assertEquals(0, engine.startRound(start("made-up", "host", 30), now));
+        assertEquals(1, engine.startRound(start("room", "host", 30), now));
+
+        // The next player in join order takes over as host
+        registry.leave("room", "host", now);
+        assertEquals(2, engine.startRound(start("room", "guest", 30), now));
+    }
+
+    private static ArenaRoundStart start(String roomId, String userId, int seconds) {
+        ArenaRoundStart start = new ArenaRoundStart();
+        start.setRoomId(roomId);
+        start.setUserId(userId);
+        start.setTimeLimitSeconds(seconds);
+        return start;
+    }
+}
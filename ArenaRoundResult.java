@@ -0,0 +1,31 @@
+package com.learnforge.dto;
+
+import lombok.Data;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * ROUND_RESULT frame broadcast to {@code /topic/arena/{roomId}} once per round.
+ */
+@Data
+public class ArenaRoundResult {
+    private String action = "ROUND_RESULT";
+    private String roomId;
+    private int round;
+    private Long questionId;
+    private String correctAnswer;
+    private boolean timedOut;
+    private List<PlayerScore> scores = new ArrayList<>();
+    private List<String> unanswered = new ArrayList<>();
+
+    @Data
+    public static class PlayerScore {
+        private String userId;
+        private String answer;
+        private Boolean correct;
+        private int points;
+        private int totalPoints;
+        private long answerMillis;
+    }
+}
@@ -0,0 +1,14 @@
+package com.learnforge.dto;
+
+import lombok.Data;
+
+/**
+ * Host frame that opens a new round in a multiplayer arena room.
+ */
+@Data
+public class ArenaRoundStart {
+    private String roomId;
+    private String userId;
+    private Long questionId;
+    private Integer timeLimitSeconds;
+}
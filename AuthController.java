@@ -2,8 +2,10 @@ package com.learnforge.controller;
 
 import com.learnforge.entity.User;
 import com.learnforge.service.AuthService;
-import jakarta.servlet.http.Cookie;
-import jakarta.servlet.http.HttpSession;
+import com.learnforge.service.AuthTokenService;
+import com.learnforge.service.OAuthLoginService;
+import com.learnforge.service.UserService;
+import jakarta.servlet.http.HttpServletRequest;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
@@ -12,6 +14,7 @@ import jakarta.servlet.http.HttpServletResponse;
 import java.io.IOException;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.Optional;
 
 @RestController
 @RequestMapping("/auth")
@@ -25,29 +28,32 @@ public class AuthController {
     @Autowired
     private AuthService authService;
 
+    @Autowired
+    private AuthTokenService authTokens;
+
+    @Autowired
+    private OAuthLoginService oauthLogin;
+
+    @Autowired
+    private UserService userService;
+
     // GITHUB OAUTH HANDLER
     @PostMapping("/github")
     public ResponseEntity<?> githubAuth(
             @RequestBody Map<String, String> request,
-            HttpSession session,
             HttpServletResponse response) {
         try {
             String code = request.get("code");
-            Map<String, Object> authResponse = authService.authenticateWithGithub(code);
+            // The fast path only yields the user: {"user": ...} without AuthService's other keys
+            Map<String, Object> authResponse = oauthLogin.enabled()
+                    ? Map.of("user", oauthLogin.login("github", code))
+                    : authService.authenticateWithGithub(code);
 
             User user = (User) authResponse.get("user");
             if (user != null) {
-                session.setAttribute("user", user);
-                session.setAttribute("userId", user.getUserId());
-                session.setMaxInactiveInterval(7 * 24 * 60 * 60); // 7 days
-
-                // Session cookie is auto-created, just ensure proper settings
-                Cookie cookie = new Cookie("JSESSIONID", session.getId());
-                cookie.setPath("/");
-                cookie.setHttpOnly(true);
-                cookie.setSecure(false); // Changed to false for localhost
-                cookie.setMaxAge(7 * 24 * 60 * 60); // 7 days
-                response.addCookie(cookie);
+                String token = authTokens.issue(user);
+                response.addCookie(authTokens.cookie(token));
+                return ResponseEntity.ok(loginBody(authResponse, token, request));
             }
             return ResponseEntity.ok(authResponse);
         } catch (Exception e) {
@@ -59,24 +65,19 @@ public class AuthController {
     @PostMapping("/google")
     public ResponseEntity<?> googleAuth(
             @RequestBody Map<String, String> request,
-            HttpSession session,
             HttpServletResponse response) {
         try {
             String code = request.get("code");
-            Map<String, Object> authResponse = authService.authenticateWithGoogle(code);
+            // The fast path only yields the user: {"user": ...} without AuthService's other keys
+            Map<String, Object> authResponse = oauthLogin.enabled()
+                    ? Map.of("user", oauthLogin.login("google", code))
+                    : authService.authenticateWithGoogle(code);
 
             User user = (User) authResponse.get("user");
             if (user != null) {
-                session.setAttribute("user", user);
-                session.setAttribute("userId", user.getUserId());
-                session.setMaxInactiveInterval(7 * 24 * 60 * 60); // 7 days
-
-                Cookie cookie = new Cookie("JSESSIONID", session.getId());
-                cookie.setPath("/");
-                cookie.setHttpOnly(true);
-                cookie.setSecure(false); // Changed to false for localhost
-                cookie.setMaxAge(7 * 24 * 60 * 60); // 7 days
-                response.addCookie(cookie);
+                String token = authTokens.issue(user);
+                response.addCookie(authTokens.cookie(token));
+                return ResponseEntity.ok(loginBody(authResponse, token, request));
             }
             return ResponseEntity.ok(authResponse);
         } catch (Exception e) {
@@ -88,23 +89,16 @@ public class AuthController {
     @GetMapping("/google/callback")
     public void googleCallback(
             @RequestParam String code,
-            HttpServletResponse response,
-            HttpSession session) throws IOException, IOException {
+            HttpServletResponse response) throws IOException {
         try {
-            Map<String, Object> authResponse = authService.authenticateWithGoogle(code);
+            // Only the user is read here, so both paths behave the same
+            Map<String, Object> authResponse = oauthLogin.enabled()
+                    ? Map.of("user", oauthLogin.login("google", code))
+                    : authService.authenticateWithGoogle(code);
 
             User user = (User) authResponse.get("user");
             if (user != null) {
-                session.setAttribute("user", user);
-                session.setAttribute("userId", user.getUserId());
-                session.setMaxInactiveInterval(7 * 24 * 60 * 60); // 7 days
-
-                Cookie cookie = new Cookie("JSESSIONID", session.getId());
-                cookie.setPath("/");
-                cookie.setHttpOnly(true);
-                cookie.setSecure(false); // Changed to false for localhost
-                cookie.setMaxAge(7 * 24 * 60 * 60); // 7 days
-                response.addCookie(cookie);
+                response.addCookie(authTokens.cookie(authTokens.issue(user)));
 
                 // ✅ Redirect to home or landing page!
                 response.sendRedirect("http://localhost:3000/"); // or "/" for landing
@@ -116,11 +110,40 @@ public class AuthController {
         }
     }
 
-    // GET CURRENT USER (from session)
+    // STUB PROVIDER LOGIN - only with oauth.stub.enabled, for load-testing the login path
+    @PostMapping("/stub")
+    public ResponseEntity<?> stubAuth(
+            @RequestBody Map<String, String> request,
+            HttpServletResponse response) {
+        if (!oauthLogin.stubEnabled()) {
+            return ResponseEntity.notFound().build();
+        }
+        try {
+            User user = oauthLogin.login("stub", request.get("code"));
+            String token = authTokens.issue(user);
+            response.addCookie(authTokens.cookie(token));
+            return ResponseEntity.ok(loginBody(Map.of("user", user), token, request));
+        } catch (Exception e) {
+            return ResponseEntity.badRequest().body(Map.of("error", "Stub authentication failed: " + e.getMessage()));
+        }
+    }
+
+    // Browsers only get the HttpOnly cookie; native clients without a cookie jar ask for the token with "tokenInBody": "true"
+    private Map<String, Object> loginBody(Map<String, Object> authResponse, String token, Map<String, String> request) {
+        Map<String, Object> body = new HashMap<>(authResponse);
+        if ("true".equalsIgnoreCase(request.get("tokenInBody"))) {
+            body.put("token", token);
+        }
+        return body;
+    }
+
+    // GET CURRENT USER (from token)
     @GetMapping("/me")
-    public ResponseEntity<?> getCurrentUser(HttpSession session) {
-        User user = (User) session.getAttribute("user");
-        if (user != null) {
+    public ResponseEntity<?> getCurrentUser(HttpServletRequest request) {
+        AuthTokenService.Claims claims = authTokens.authenticate(request);
+        Optional<User> found = claims == null ? Optional.empty() : userService.getById(claims.userId());
+        if (found.isPresent()) {
+            User user = found.get();
             Map<String, Object> response = new HashMap<>();
             response.put("userId", user.getUserId());
             response.put("name", user.getName());
@@ -134,22 +157,26 @@ public class AuthController {
         return ResponseEntity.status(401).body(Map.of("error", "Not authenticated"));
     }
 
-    // CHECK AUTH STATUS
+    // CHECK AUTH STATUS (token only, no lookup)
     @GetMapping("/check")
-    public ResponseEntity<?> checkAuth(HttpSession session) {
-        User user = (User) session.getAttribute("user");
-        if (user != null) {
+    public ResponseEntity<?> checkAuth(HttpServletRequest request) {
+        AuthTokenService.Claims claims = authTokens.authenticate(request);
+        if (claims != null) {
             return ResponseEntity.ok(Map.of(
                     "authenticated", true,
-                    "email", user.getEmail()));
+                    "email", claims.email()));
         }
         return ResponseEntity.ok(Map.of("authenticated", false));
     }
 
     // LOGOUT
     @PostMapping("/logout")
-    public ResponseEntity<?> logout(HttpSession session) {
-        session.invalidate();
+    public ResponseEntity<?> logout(HttpServletRequest request, HttpServletResponse response) {
+        AuthTokenService.Claims claims = authTokens.authenticate(request);
+        if (claims != null) {
+            authTokens.revoke(claims);
+        }
+        response.addCookie(authTokens.expiredCookie());
         return ResponseEntity.ok(Map.of("message", "Logged out successfully"));
     }
 }
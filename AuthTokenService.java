@@ -0,0 +1,247 @@
+package com.learnforge.service;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.learnforge.entity.RevokedToken;
+import com.learnforge.entity.User;
+import com.learnforge.repository.RevokedTokenRepository;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import jakarta.servlet.http.Cookie;
+import jakarta.servlet.http.HttpServletRequest;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.env.Environment;
+import org.springframework.core.env.Profiles;
+import org.springframework.http.HttpHeaders;
+import org.springframework.stereotype.Service;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Stateless login tokens: {@code base64url(claims).base64url(HMAC-SHA256)}.
+ * <p>
+ * The claims carry everything a request needs (user id, email, admin flag,
+ * expiry), so verifying a token is a MAC check with no session or database
+ * lookup, and any node holding {@code auth.token.secret} can verify it. Tokens
+ * signed with {@code auth.token.previous-secret} are still accepted, so the
+ * secret can be rotated without logging everyone out. Without a secret the
+ * application refuses to start, unless the {@code dev} profile is active.
+ * <p>
+ * Logout revokes the token by id in the shared {@code revoked_tokens} table.
+ * Each node keeps the unexpired ids in memory, so verification still needs no
+ * lookup, and pulls new rows every {@code auth.token.revocation-poll-seconds}.
+ * A revoked token is refused at once by the node that revoked it and within
+ * one poll everywhere else. Rows are pruned once their tokens have expired.
+ */
+@Service
+public class AuthTokenService {
+
+    public static final String COOKIE_NAME = "LF_TOKEN";
+
+    public record Claims(@JsonProperty("uid") String userId,
+                         @JsonProperty("email") String email,
+                         @JsonProperty("adm") boolean admin,
+                         @JsonProperty("exp") long expiresAt,
+                         @JsonProperty("jti") String tokenId) { }
+
+    private static final Base64.Encoder B64 = Base64.getUrlEncoder().withoutPadding();
+    private static final Base64.Decoder B64_DECODE = Base64.getUrlDecoder();
+
+    private final ObjectMapper objectMapper;
+    private final RevokedTokenRepository revokedTokens;
+    private final byte[] secret;
+    private final byte[] previousSecret;
+    private final long ttlMillis;
+    private final SecureRandom random = new SecureRandom();
+    private final long pollMillis;
+    private final ScheduledExecutorService revocationSync;
+    // Unexpired revoked ids by expiry, as of the last poll of the table plus local logouts
+    private final Map<String, Long> revoked = new ConcurrentHashMap<>();
+    private volatile long syncedAt;
+
+    public AuthTokenService(
+            ObjectMapper objectMapper,
+            RevokedTokenRepository revokedTokens,
+            Environment env,
+            @Value("${auth.token.secret:}") String secret,
+            @Value("${auth.token.previous-secret:}") String previousSecret,
+            @Value("${auth.token.ttl-days:7}") long ttlDays,
+            @Value("${auth.token.revocation-poll-seconds:5}") long pollSeconds) {
+        this.objectMapper = objectMapper;
+        this.revokedTokens = revokedTokens;
+        this.ttlMillis = TimeUnit.DAYS.toMillis(ttlDays);
+        this.pollMillis = TimeUnit.SECONDS.toMillis(pollSeconds);
+        if (secret.isBlank()) {
+            if (!env.acceptsProfiles(Profiles.of("dev"))) {
+                throw new IllegalStateException("auth.token.secret must be set (at least 32 bytes); "
+                        + "only the dev profile may run without one");
+            }
+            System.err.println("❌ auth.token.secret is not set; using a random key, so logins end on restart "
+                    + "and tokens only work on this node");
+            this.secret = new byte[32];
+            random.nextBytes(this.secret);
+        } else {
+            this.secret = checkedKey(secret, "auth.token.secret");
+        }
+        this.previousSecret = previousSecret.isBlank() ? null : checkedKey(previousSecret, "auth.token.previous-secret");
+        this.revocationSync = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "auth-revocation-sync");
+            t.setDaemon(true);
+            return t;
+        });
+    }
+
+    @PostConstruct
+    void startRevocationSync() {
+        syncRevocations();
+        revocationSync.scheduleWithFixedDelay(this::syncRevocations, pollMillis, pollMillis, TimeUnit.MILLISECONDS);
+        revocationSync.scheduleWithFixedDelay(this::pruneRevocations, 1, 1, TimeUnit.HOURS);
+    }
+
+    public String issue(User user) {
+        byte[] id = new byte[12];
+        random.nextBytes(id);
+        Claims claims = new Claims(
+                user.getUserId(),
+                user.getEmail(),
+                Boolean.TRUE.equals(user.getIsAdmin()),
+                System.currentTimeMillis() + ttlMillis,
+                B64.encodeToString(id));
+        try {
+            String payload = B64.encodeToString(objectMapper.writeValueAsBytes(claims));
+            return payload + "." + B64.encodeToString(sign(secret, payload));
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /** The claims of a well-formed, correctly signed, unexpired and unrevoked token, else null. */
+    public Claims verify(String token) {
+        if (token == null) {
+            return null;
+        }
+        int dot = token.indexOf('.');
+        if (dot <= 0 || dot != token.lastIndexOf('.')) {
+            return null;
+        }
+        String payload = token.substring(0, dot);
+        try {
+            byte[] signature = B64_DECODE.decode(token.substring(dot + 1));
+            if (!MessageDigest.isEqual(signature, sign(secret, payload))
+                    && (previousSecret == null || !MessageDigest.isEqual(signature, sign(previousSecret, payload)))) {
+                return null;
+            }
+            Claims claims = objectMapper.readValue(B64_DECODE.decode(payload), Claims.class);
+            if (claims.expiresAt() <= System.currentTimeMillis() || revoked.containsKey(claims.tokenId())) {
+                return null;
+            }
+            return claims;
+        } catch (IllegalArgumentException | IOException e) {
+            return null;
+        }
+    }
+
+    /** Claims from the {@code Authorization: Bearer} header or the token cookie, else null. */
+    public Claims authenticate(HttpServletRequest request) {
+        String header = request.getHeader(HttpHeaders.AUTHORIZATION);
+        if (header != null && header.regionMatches(true, 0, "Bearer ", 0, 7)) {
+            return verify(header.substring(7).trim());
+        }
+        Cookie[] cookies = request.getCookies();
+        if (cookies != null) {
+            for (Cookie cookie : cookies) {
+                if (COOKIE_NAME.equals(cookie.getName())) {
+                    return verify(cookie.getValue());
+                }
+            }
+        }
+        return null;
+    }
+
+    public void revoke(Claims claims) {
+        long now = System.currentTimeMillis();
+        revoked.put(claims.tokenId(), claims.expiresAt());
+        RevokedToken row = new RevokedToken();
+        row.setTokenId(claims.tokenId());
+        row.setExpiresAt(claims.expiresAt());
+        row.setRevokedAt(now);
+        try {
+            revokedTokens.save(row);
+        } catch (RuntimeException e) {
+            System.err.println("❌ Could not record token revocation; only this node refuses the token: " + e.getMessage());
+        }
+    }
+
+    private void syncRevocations() {
+        long now = System.currentTimeMillis();
+        try {
+            // Overlap by one poll so rows committed late on other nodes aren't missed
+            for (RevokedToken row : revokedTokens.findByRevokedAtGreaterThanEqual(syncedAt - pollMillis)) {
+                revoked.put(row.getTokenId(), row.getExpiresAt());
+            }
+            syncedAt = now;
+        } catch (RuntimeException e) {
+            System.err.println("❌ Could not load token revocations: " + e.getMessage());
+        }
+        // Expired tokens fail verification anyway, so their ids can go
+        revoked.values().removeIf(expiresAt -> expiresAt <= now);
+    }
+
+    private void pruneRevocations() {
+        try {
+            revokedTokens.deleteExpired(System.currentTimeMillis());
+        } catch (RuntimeException e) {
+            System.err.println("❌ Could not prune token revocations: " + e.getMessage());
+        }
+    }
+
+    public Cookie cookie(String token) {
+        Cookie cookie = new Cookie(COOKIE_NAME, token);
+        cookie.setPath("/");
+        cookie.setHttpOnly(true);
+        cookie.setSecure(false); // false for localhost
+        cookie.setAttribute("SameSite", "Lax");
+        cookie.setMaxAge((int) TimeUnit.MILLISECONDS.toSeconds(ttlMillis));
+        return cookie;
+    }
+
+    public Cookie expiredCookie() {
+        Cookie cookie = cookie("");
+        cookie.setMaxAge(0);
+        return cookie;
+    }
+
+    @PreDestroy
+    void shutdown() {
+        revocationSync.shutdownNow();
+    }
+
+    private static byte[] sign(byte[] key, String payload) {
+        try {
+            Mac mac = Mac.getInstance("HmacSHA256");
+            mac.init(new SecretKeySpec(key, "HmacSHA256"));
+            return mac.doFinal(payload.getBytes(StandardCharsets.US_ASCII));
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static byte[] checkedKey(String value, String property) {
+        byte[] key = value.getBytes(StandardCharsets.UTF_8);
+        if (key.length < 32) {
+            throw new IllegalStateException(property + " must be at least 32 bytes");
+        }
+        return key;
+    }
+}
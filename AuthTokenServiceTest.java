@@ -0,0 +1,139 @@
+package com.learnforge.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.learnforge.entity.RevokedToken;
+import com.learnforge.entity.User;
+import com.learnforge.repository.RevokedTokenRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.env.Environment;
+import org.springframework.core.env.Profiles;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.*;
+
+class AuthTokenServiceTest {
+
+    private static final String SECRET = "0123456789abcdef0123456789abcdef";
+    private static final String OTHER_SECRET = "fedcba9876543210fedcba9876543210";
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final List<AuthTokenService> services = new ArrayList<>();
+    private RevokedTokenRepository revokedTokens;
+    private Environment env;
+
+    @BeforeEach
+    void setUp() {
+        revokedTokens = mock(RevokedTokenRepository.class);
+        env = mock(Environment.class);
+        when(revokedTokens.findByRevokedAtGreaterThanEqual(anyLong())).thenReturn(List.of());
+    }
+
+    @AfterEach
+    void tearDown() {
+        services.forEach(AuthTokenService::shutdown);
+    }
+
+    private AuthTokenService service(String secret, String previousSecret, long ttlDays) {
+        AuthTokenService service = new AuthTokenService(objectMapper, revokedTokens, env, secret, previousSecret, ttlDays, 3600);
+        services.add(service);
+        return service;
+    }
+
+    private static User user(boolean admin) {
+        User user = new User();
+        user.setUserId("u1");
+        user.setEmail("u1@example.com");
+        user.setIsAdmin(admin);
+        return user;
+    }
+
+    @Test
+    void verifiesTheClaimsItIssued() {
+        AuthTokenService tokens = service(SECRET, "", 7);
+        AuthTokenService.Claims claims = tokens.verify(tokens.issue(user(true)));
+
+        assertNotNull(claims);
+        assertEquals("u1", claims.userId());
+        assertEquals("u1@example.com", claims.email());
+        assertTrue(claims.admin());
+        assertTrue(claims.expiresAt() > System.currentTimeMillis());
+    }
+
+    @Test
+    void rejectsTamperedMalformedAndForeignTokens() {
+        AuthTokenService tokens = service(SECRET, "", 7);
+        String token = tokens.issue(user(false));
+        String signature = token.substring(token.indexOf('.') + 1);
+        String forged = Base64.getUrlEncoder().withoutPadding().encodeToString(
+                "{\"uid\":\"u1\",\"adm\":true,\"exp\":99999999999999,\"jti\":\"x\"}".getBytes(StandardCharsets.UTF_8));
+
+        assertNull(tokens.verify(forged + "." + signature));
+        assertNull(tokens.verify(token + "x"));
+        assertNull(tokens.verify("no-dot"));
+        assertNull(tokens.verify("a.b.c"));
+        assertNull(tokens.verify(null));
+        assertNull(service(OTHER_SECRET, "", 7).verify(token));
+    }
+
+    @Test
+    void rejectsExpiredTokens() {
+        AuthTokenService tokens = service(SECRET, "", 0);
+        assertNull(tokens.verify(tokens.issue(user(false))));
+    }
+
+    @Test
+    void acceptsTokensSignedWithThePreviousSecret() {
+        String token = service(OTHER_SECRET, "", 7).issue(user(false));
+        assertNotNull(service(SECRET, OTHER_SECRET, 7).verify(token));
+    }
+
+    @Test
+    void revokedTokensAreRefusedAndRecorded() {
+        AuthTokenService tokens = service(SECRET, "", 7);
+        String token = tokens.issue(user(false));
+        AuthTokenService.Claims claims = tokens.verify(token);
+
+        tokens.revoke(claims);
+
+        assertNull(tokens.verify(token));
+        verify(revokedTokens).save(any(RevokedToken.class));
+        assertNotNull(tokens.verify(tokens.issue(user(false))));
+    }
+
+    @Test
+    void revocationsFromOtherNodesArePickedUpBySync() {
+        AuthTokenService issuer = service(SECRET, "", 7);
+        String token = issuer.issue(user(false));
+        AuthTokenService.Claims claims = issuer.verify(token);
+        RevokedToken row = new RevokedToken();
+        row.setTokenId(claims.tokenId());
+        row.setExpiresAt(claims.expiresAt());
+        row.setRevokedAt(System.currentTimeMillis());
+        when(revokedTokens.findByRevokedAtGreaterThanEqual(anyLong())).thenReturn(List.of(row));
+
+        AuthTokenService otherNode = service(SECRET, "", 7);
+        assertNotNull(otherNode.verify(token));
+        otherNode.startRevocationSync();
+        assertNull(otherNode.verify(token));
+    }
+
+    @Test
+    void refusesToStartWithoutASecretOutsideDev() {
+        when(env.acceptsProfiles(any(Profiles.class))).thenReturn(false);
+        assertThrows(IllegalStateException.class, () -> service("", "", 7));
+    }
+
+    @Test
+    void refusesShortSecrets() {
+        assertThrows(IllegalStateException.class, () -> service("too-short", "", 7));
+    }
+}
@@ -0,0 +1,152 @@
+package com.learnforge.service;
+
+import com.learnforge.dto.ExecuteRequest;
+import com.learnforge.dto.ExecutionResult;
+import com.learnforge.dto.JudgeRequest;
+import com.learnforge.dto.JudgeResponse;
+import com.learnforge.dto.JudgeResponse.Verdict;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Judges one program against many test cases.
+ * <p>
+ * Cases go to the {@link CodeExecutor} in batches of {@code execution.judge.fan-out},
+ * each batch run in parallel by the backend. With {@code stopOnFirstFailure}
+ * no further batch is sent once a case fails and the remaining cases are
+ * SKIPPED; a compilation error always stops judging since every case would
+ * fail the same way. Output is compared ignoring trailing whitespace on each
+ * line and trailing blank lines.
+ */
+@Service
+public class BatchJudgeService {
+
+    private final CodeExecutor codeExecutor;
+    private final int fanOut;
+    private final int maxCases;
+
+    public BatchJudgeService(
+            CodeExecutor codeExecutor,
+            @Value("${execution.judge.fan-out:5}") int fanOut,
+            @Value("${execution.judge.max-cases:100}") int maxCases) {
+        this.codeExecutor = codeExecutor;
+        this.fanOut = Math.max(1, fanOut);
+        this.maxCases = maxCases;
+    }
+
+    public JudgeResponse judge(JudgeRequest request) {
+        List<JudgeRequest.TestCase> cases = request.getTestCases();
+        if (cases.size() > maxCases) {
+            throw new IllegalArgumentException("At most " + maxCases + " test cases per request");
+        }
+
+        List<JudgeResponse.CaseResult> results = new ArrayList<>(cases.size());
+        String compileOutput = null;
+        boolean stopped = false;
+        for (int from = 0; from < cases.size(); from += fanOut) {
+            List<JudgeRequest.TestCase> chunk = cases.subList(from, Math.min(cases.size(), from + fanOut));
+            if (stopped) {
+                for (int i = 0; i < chunk.size(); i++) {
+                    results.add(skipped(from + i));
+                }
+                continue;
+            }
+
+            List<ExecuteRequest> runs = new ArrayList<>(chunk.size());
+            for (JudgeRequest.TestCase testCase : chunk) {
+                ExecuteRequest run = new ExecuteRequest();
+                run.setLanguage(request.getLanguage());
+                run.setCode(request.getCode());
+                run.setStdin(testCase.getInput());
+                runs.add(run);
+            }
+            List<ExecutionResult> executed = codeExecutor.executeBatch(runs);
+
+            for (int i = 0; i < chunk.size(); i++) {
+                ExecutionResult result = executed.get(i);
+                JudgeResponse.CaseResult caseResult = new JudgeResponse.CaseResult();
+                caseResult.setIndex(from + i);
+                caseResult.setVerdict(verdict(result, chunk.get(i).getExpectedOutput()));
+                caseResult.setTimeSeconds(result.getTimeSeconds());
+                caseResult.setMemoryKb(result.getMemoryKb());
+                caseResult.setStdout(result.getStdout());
+                caseResult.setStderr(result.getStderr());
+                results.add(caseResult);
+
+                if (caseResult.getVerdict() == Verdict.COMPILATION_ERROR) {
+                    compileOutput = result.getCompileOutput();
+                    stopped = true;
+                } else if (caseResult.getVerdict() != Verdict.ACCEPTED && request.isStopOnFirstFailure()) {
+                    stopped = true;
+                }
+            }
+        }
+        return summarise(results, compileOutput);
+    }
+
+    private static JudgeResponse summarise(List<JudgeResponse.CaseResult> results, String compileOutput) {
+        JudgeResponse response = new JudgeResponse();
+        response.setCases(results);
+        response.setTotal(results.size());
+        response.setCompileOutput(compileOutput);
+        response.setVerdict(Verdict.ACCEPTED);
+        int passed = 0;
+        for (JudgeResponse.CaseResult result : results) {
+            if (result.getVerdict() == Verdict.ACCEPTED) {
+                passed++;
+            } else if (response.getVerdict() == Verdict.ACCEPTED && result.getVerdict() != Verdict.SKIPPED) {
+                response.setVerdict(result.getVerdict());
+            }
+            if (result.getTimeSeconds() != null
+                    && (response.getMaxTimeSeconds() == null || result.getTimeSeconds() > response.getMaxTimeSeconds())) {
+                response.setMaxTimeSeconds(result.getTimeSeconds());
+            }
+            if (result.getMemoryKb() != null
+                    && (response.getMaxMemoryKb() == null || result.getMemoryKb() > response.getMaxMemoryKb())) {
+                response.setMaxMemoryKb(result.getMemoryKb());
+            }
+        }
+        response.setPassed(passed);
+        return response;
+    }
+
+    private static Verdict verdict(ExecutionResult result, String expectedOutput) {
+        int status = result.getStatusId();
+        if (status == ExecutionResult.TIME_LIMIT) {
+            return Verdict.TIME_LIMIT;
+        }
+        if (status == ExecutionResult.COMPILATION_ERROR) {
+            return Verdict.COMPILATION_ERROR;
+        }
+        if (status >= 7 && status <= 12) {
+            return Verdict.RUNTIME_ERROR;
+        }
+        if (status != ExecutionResult.ACCEPTED && status != ExecutionResult.WRONG_ANSWER) {
+            return Verdict.INTERNAL_ERROR;
+        }
+        // Judge0 was not given the expected output, so the comparison happens here
+        return normalise(result.getStdout()).equals(normalise(expectedOutput)) ? Verdict.ACCEPTED : Verdict.WRONG_ANSWER;
+    }
+
+    private static String normalise(String output) {
+        if (output == null) {
+            return "";
+        }
+        String[] lines = output.replace("\r\n", "\n").split("\n");
+        StringBuilder normalised = new StringBuilder();
+        for (String line : lines) {
+            normalised.append(line.stripTrailing()).append('\n');
+        }
+        return normalised.toString().stripTrailing();
+    }
+
+    private static JudgeResponse.CaseResult skipped(int index) {
+        JudgeResponse.CaseResult result = new JudgeResponse.CaseResult();
+        result.setIndex(index);
+        result.setVerdict(Verdict.SKIPPED);
+        return result;
+    }
+}
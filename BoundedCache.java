@@ -0,0 +1,110 @@
+package com.learnforge.service;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+
+/**
+ * Small LRU cache with a time-to-live per entry.
+ * <p>
+ * Backed by an access-ordered {@link LinkedHashMap} under one monitor; every
+ * operation holds it only for O(1) work and loaders run outside it, so two
+ * callers missing the same key may both load (last one wins).
+ */
+public class BoundedCache<K, V> {
+
+    private final int maxEntries;
+    private final long ttlMillis;
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LinkedHashMap<K, Timestamped<V>> entries;
+
+    public BoundedCache(int maxEntries, long ttlMillis) {
+        this.maxEntries = maxEntries;
+        this.ttlMillis = ttlMillis;
+        this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<K, Timestamped<V>> eldest) {
+                return size() > BoundedCache.this.maxEntries;
+            }
+        };
+    }
+
+    // Cached value, or null if absent or expired
+    public V get(K key) {
+        synchronized (entries) {
+            Timestamped<V> entry = entries.get(key);
+            if (entry == null) {
+                misses.increment();
+                return null;
+            }
+            if (System.currentTimeMillis() - entry.storedAt > ttlMillis) {
+                entries.remove(key);
+                misses.increment();
+                return null;
+            }
+            hits.increment();
+            return entry.value;
+        }
+    }
+
+    public V getOrLoad(K key, Function<K, V> loader) {
+        V value = get(key);
+        if (value == null) {
+            value = loader.apply(key);
+            if (value != null) {
+                put(key, value);
+            }
+        }
+        return value;
+    }
+
+    public void put(K key, V value) {
+        synchronized (entries) {
+            entries.put(key, new Timestamped<>(value, System.currentTimeMillis()));
+        }
+    }
+
+    public void invalidate(K key) {
+        synchronized (entries) {
+            entries.remove(key);
+        }
+    }
+
+    public void invalidateAll() {
+        synchronized (entries) {
+            entries.clear();
+        }
+    }
+
+    // Unexpired entries in least-recently-used order, without touching the order
+    public Map<K, V> snapshot() {
+        long now = System.currentTimeMillis();
+        Map<K, V> copy = new LinkedHashMap<>();
+        synchronized (entries) {
+            entries.forEach((key, entry) -> {
+                if (now - entry.storedAt <= ttlMillis) {
+                    copy.put(key, entry.value);
+                }
+            });
+        }
+        return copy;
+    }
+
+    public int size() {
+        synchronized (entries) {
+            return entries.size();
+        }
+    }
+
+    public long hits() {
+        return hits.sum();
+    }
+
+    public long misses() {
+        return misses.sum();
+    }
+
+    private record Timestamped<V>(V value, long storedAt) { }
+}
@@ -0,0 +1,79 @@
+package com.learnforge.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BoundedCacheTest {
+
+    @Test
+    void evictsTheLeastRecentlyUsedEntry() {
+        BoundedCache<String, Integer> cache = new BoundedCache<>(2, Long.MAX_VALUE);
+        cache.put("a", 1);
+        cache.put("b", 2);
+        assertEquals(1, cache.get("a"));
+        cache.put("c", 3);
+
+        assertEquals(2, cache.size());
+        assertNull(cache.get("b"));
+        assertEquals(1, cache.get("a"));
+        assertEquals(3, cache.get("c"));
+    }
+
+    @Test
+    void expiredEntriesAreMissesAndLeaveTheSnapshot() throws InterruptedException {
+        BoundedCache<String, Integer> cache = new BoundedCache<>(10, 0);
+        cache.put("a", 1);
+        Thread.sleep(5);
+
+        assertTrue(cache.snapshot().isEmpty());
+        assertNull(cache.get("a"));
+        assertEquals(0, cache.size());
+        assertEquals(1, cache.misses());
+    }
+
+    @Test
+    void getOrLoadCachesLoadedValuesButNotNulls() {
+        BoundedCache<String, Integer> cache = new BoundedCache<>(10, Long.MAX_VALUE);
+        AtomicInteger loads = new AtomicInteger();
+
+        assertEquals(7, cache.getOrLoad("a", k -> { loads.incrementAndGet(); return 7; }));
+        assertEquals(7, cache.getOrLoad("a", k -> { loads.incrementAndGet(); return 8; }));
+        assertNull(cache.getOrLoad("b", k -> { loads.incrementAndGet(); return null; }));
+        assertNull(cache.getOrLoad("b", k -> { loads.incrementAndGet(); return null; }));
+
+        assertEquals(3, loads.get());
+        assertEquals(1, cache.hits());
+        assertEquals(3, cache.misses());
+    }
+
+    @Test
+    void snapshotKeepsLruOrderWithoutTouchingIt() {
+        BoundedCache<String, Integer> cache = new BoundedCache<>(3, Long.MAX_VALUE);
+        cache.put("a", 1);
+        cache.put("b", 2);
+        cache.put("c", 3);
+        cache.get("a");
+
+        assertEquals(List.of("b", "c", "a"), List.copyOf(cache.snapshot().keySet()));
+        cache.snapshot();
+        cache.put("d", 4);
+        assertNull(cache.get("b"));
+    }
+
+    @Test
+    void invalidateRemovesOneOrAll() {
+        BoundedCache<String, Integer> cache = new BoundedCache<>(10, Long.MAX_VALUE);
+        cache.put("a", 1);
+        cache.put("b", 2);
+        cache.invalidate("a");
+        assertNull(cache.get("a"));
+        assertEquals(2, cache.get("b"));
+
+        cache.invalidateAll();
+        assertEquals(0, cache.size());
+    }
+}
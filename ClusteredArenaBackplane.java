@@ -0,0 +1,85 @@
+package com.learnforge.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.learnforge.dto.ArenaEvent;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+
+/**
+ * Backplane that relays arena events through an {@link ArenaBrokerClient}.
+ * <p>
+ * Events published here are not applied locally right away; they are applied
+ * when the broker echoes them back, so every node sees the same order.
+ */
+@Component
+@ConditionalOnProperty(name = "arena.backplane.mode", havingValue = "cluster")
+public class ClusteredArenaBackplane implements ArenaBackplane {
+
+    static final String CHANNEL = "arena-events";
+
+    private final ArenaBrokerClient broker;
+    private final ObjectMapper objectMapper;
+    private final String nodeId;
+    private final List<Consumer<ArenaEvent>> handlers = new CopyOnWriteArrayList<>();
+
+    public ClusteredArenaBackplane(
+            ArenaBrokerClient broker,
+            ObjectMapper objectMapper,
+            @Value("${arena.node-id:}") String nodeId) {
+        this.broker = broker;
+        this.objectMapper = objectMapper;
+        this.nodeId = nodeId.isBlank() ? UUID.randomUUID().toString().substring(0, 8) : nodeId;
+        broker.subscribe(CHANNEL, this::receive);
+    }
+
+    @Override
+    public void publish(ArenaEvent event) {
+        event.setOriginNode(nodeId);
+        try {
+            broker.publish(CHANNEL, objectMapper.writeValueAsBytes(event));
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Could not serialise arena event " + event.getType(), e);
+        }
+    }
+
+    @Override
+    public void subscribe(Consumer<ArenaEvent> handler) {
+        handlers.add(handler);
+    }
+
+    @Override
+    public String nodeId() {
+        return nodeId;
+    }
+
+    @Override
+    public boolean isClustered() {
+        return true;
+    }
+
+    @Override
+    public void onReconnect(Runnable listener) {
+        broker.onReconnect(listener);
+    }
+
+    private void receive(byte[] payload) {
+        ArenaEvent event;
+        try {
+            event = objectMapper.readValue(payload, ArenaEvent.class);
+        } catch (IOException e) {
+            System.err.println("❌ Dropping unreadable arena event: " + e.getMessage());
+            return;
+        }
+        for (Consumer<ArenaEvent> handler : handlers) {
+            handler.accept(event);
+        }
+    }
+}
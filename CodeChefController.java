@@ -1,5 +1,5 @@
 package com.learnforge.controller;
-import com.learnforge.service.CodeChefService;
+import com.learnforge.service.ProfileMetricsService;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 import com.learnforge.dto.CodeChefMetricsDto;
@@ -8,17 +8,17 @@ import org.springframework.web.bind.annotation.*;
 @RestController
 @RequestMapping("/codechef")
 public class CodeChefController {
-    private final CodeChefService service;
-    public CodeChefController(CodeChefService service) { this.service = service; }
+    private final ProfileMetricsService metrics;
+    public CodeChefController(ProfileMetricsService metrics) { this.metrics = metrics; }
 
     @GetMapping("/{handle}")
     public ResponseEntity<CodeChefMetricsDto> get(@PathVariable String handle) throws Exception {
-        return ResponseEntity.ok(service.getMetricsCached(handle));
+        return ResponseEntity.ok(metrics.codeChef().get(handle));
     }
 
     @PostMapping("/sync/{handle}")
     public ResponseEntity<CodeChefMetricsDto> sync(@PathVariable String handle) throws Exception {
-        return ResponseEntity.ok(service.forceRefresh(handle));
+        return ResponseEntity.ok(metrics.codeChef().sync(handle));
     }
 }
 
@@ -0,0 +1,27 @@
+package com.learnforge.service;
+
+import com.learnforge.dto.ExecuteRequest;
+import com.learnforge.dto.ExecutionResult;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Runs a program against one stdin. The active backend is chosen with
+ * {@code execution.backend}.
+ */
+public interface CodeExecutor {
+
+    ExecutionResult execute(ExecuteRequest request);
+
+    // Backends with a native batch API override this; results are in request order
+    default List<ExecutionResult> executeBatch(List<ExecuteRequest> requests) {
+        List<ExecutionResult> results = new ArrayList<>(requests.size());
+        for (ExecuteRequest request : requests) {
+            results.add(execute(request));
+        }
+        return results;
+    }
+
+    String name();
+}
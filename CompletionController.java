@@ -1,13 +1,13 @@
 package com.learnforge.controller;
 
-import com.learnforge.entity.User;
+import com.learnforge.service.AuthTokenService;
 import com.learnforge.service.CompletionService;
 import lombok.RequiredArgsConstructor;
 import org.springframework.http.HttpStatus;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.server.ResponseStatusException;
 
-import jakarta.servlet.http.HttpSession;
+import jakarta.servlet.http.HttpServletRequest;
 import java.util.List;
 import java.util.Map;
 
@@ -25,23 +25,24 @@ import java.util.Map;
 public class CompletionController {
 
     private final CompletionService service;
+    private final AuthTokenService authTokens;
 
 
-    private String getUserEmail(HttpSession session) {
-        User user = (User) session.getAttribute("user");
-        if (user == null) {
+    private String getUserEmail(HttpServletRequest request) {
+        AuthTokenService.Claims claims = authTokens.authenticate(request);
+        if (claims == null) {
             throw new ResponseStatusException(HttpStatus.UNAUTHORIZED, "Not authenticated");
         }
-        return user.getEmail();
+        return claims.email();
     }
 
 
     @GetMapping("/{companySlug}")
     public Map<String, Object> getCompleted(
             @PathVariable String companySlug,
-            HttpSession session) {
+            HttpServletRequest request) {
 
-        String userEmail = getUserEmail(session);
+        String userEmail = getUserEmail(request);
         List<String> uids = service.getCompleted(userEmail, companySlug);
         return Map.of(
                 "company", companySlug,
@@ -54,9 +55,9 @@ public class CompletionController {
     public void toggle(
             @PathVariable String companySlug,
             @RequestBody ToggleReq req,
-            HttpSession session) {
+            HttpServletRequest request) {
 
-        String userEmail = getUserEmail(session);
+        String userEmail = getUserEmail(request);
         service.upsertCompletion(
                 userEmail,
                 companySlug,
@@ -72,9 +73,9 @@ public class CompletionController {
     public void bulk(
             @PathVariable String companySlug,
             @RequestBody BulkReq req,
-            HttpSession session) {
+            HttpServletRequest request) {
 
-        String userEmail = getUserEmail(session);
+        String userEmail = getUserEmail(request);
         service.upsertBulk(userEmail, companySlug, req.items());
     }
 
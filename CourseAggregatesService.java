@@ -0,0 +1,135 @@
+package com.learnforge.service;
+
+import com.learnforge.entity.Lesson;
+import com.learnforge.repository.CourseContentRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Per-course lesson count, total video duration and resource count.
+ * <p>
+ * Missing courses are loaded together with grouped queries (one for lessons and
+ * duration, one for resources), however many ids are asked for. Lesson and resource
+ * writes apply a delta to the cached entry; writes whose effect can't be known
+ * up front (lesson update or delete) drop the entry instead. A load that raced
+ * with a write is returned but not cached. Entries also expire after
+ * {@code course.aggregates.ttl-minutes} as a backstop.
+ */
+@Service
+public class CourseAggregatesService {
+
+    public record CourseAggregates(Long courseId, long lessonCount, double totalDurationSeconds, long resourceCount) {
+
+        CourseAggregates plus(long lessons, double duration, long resources) {
+            return new CourseAggregates(courseId,
+                    Math.max(0, lessonCount + lessons),
+                    Math.max(0, totalDurationSeconds + duration),
+                    Math.max(0, resourceCount + resources));
+        }
+    }
+
+    private final CourseContentRepository courseContent;
+    private final BoundedCache<Long, CourseAggregates> cache;
+    private long writes;
+
+    public CourseAggregatesService(
+            CourseContentRepository courseContent,
+            @Value("${course.aggregates.max-courses:50000}") int maxCourses,
+            @Value("${course.aggregates.ttl-minutes:60}") long ttlMinutes) {
+        this.courseContent = courseContent;
+        this.cache = new BoundedCache<>(maxCourses, TimeUnit.MINUTES.toMillis(ttlMinutes));
+    }
+
+    public CourseAggregates get(Long courseId) {
+        return getAll(List.of(courseId)).get(courseId);
+    }
+
+    // Cached courses are answered from memory; the rest share two grouped queries
+    public Map<Long, CourseAggregates> getAll(Collection<Long> courseIds) {
+        Map<Long, CourseAggregates> result = new LinkedHashMap<>();
+        List<Long> missing = new ArrayList<>();
+        for (Long courseId : new LinkedHashSet<>(courseIds)) {
+            CourseAggregates cached = cache.get(courseId);
+            if (cached != null) {
+                result.put(courseId, cached);
+            } else {
+                missing.add(courseId);
+                result.put(courseId, null);
+            }
+        }
+        if (!missing.isEmpty()) {
+            long generation;
+            synchronized (this) {
+                generation = writes;
+            }
+            Map<Long, CourseAggregates> loaded = load(missing);
+            synchronized (this) {
+                if (writes == generation) {
+                    loaded.forEach(cache::put);
+                }
+            }
+            result.putAll(loaded);
+        }
+        return result;
+    }
+
+    public void lessonCreated(Long courseId, Lesson lesson) {
+        apply(courseId, 1, duration(lesson), 0);
+    }
+
+    // Duration may have changed and a deleted lesson takes its resources with it
+    public synchronized void lessonChanged(Long courseId) {
+        writes++;
+        cache.invalidate(courseId);
+    }
+
+    public void resourcesAdded(Long courseId, int count) {
+        apply(courseId, 0, 0, count);
+    }
+
+    public void resourceDeleted(Long courseId) {
+        apply(courseId, 0, 0, -1);
+    }
+
+    public synchronized void courseDeleted(Long courseId) {
+        writes++;
+        cache.invalidate(courseId);
+    }
+
+    private synchronized void apply(Long courseId, long lessons, double duration, long resources) {
+        writes++;
+        CourseAggregates cached = cache.get(courseId);
+        if (cached != null) {
+            cache.put(courseId, cached.plus(lessons, duration, resources));
+        }
+    }
+
+    private Map<Long, CourseAggregates> load(List<Long> courseIds) {
+        Map<Long, CourseContentRepository.LessonTotals> lessonTotals = new HashMap<>();
+        for (CourseContentRepository.LessonTotals totals : courseContent.lessonTotals(courseIds)) {
+            lessonTotals.put(totals.getCourseId(), totals);
+        }
+        Map<Long, Long> resourceCounts = new HashMap<>();
+        for (CourseContentRepository.ResourceTotals totals : courseContent.resourceTotals(courseIds)) {
+            resourceCounts.put(totals.getCourseId(), totals.getResourceCount());
+        }
+
+        Map<Long, CourseAggregates> loaded = new HashMap<>();
+        for (Long id : courseIds) {
+            CourseContentRepository.LessonTotals lessons = lessonTotals.get(id);
+            loaded.put(id, new CourseAggregates(id,
+                    lessons != null ? lessons.getLessonCount() : 0L,
+                    lessons != null && lessons.getTotalDuration() != null ? lessons.getTotalDuration().doubleValue() : 0.0,
+                    resourceCounts.getOrDefault(id, 0L)));
+        }
+        return loaded;
+    }
+
+    private static double duration(Lesson lesson) {
+        Number duration = lesson != null ? lesson.getDuration() : null;
+        return duration != null ? duration.doubleValue() : 0;
+    }
+}
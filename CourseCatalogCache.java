@@ -0,0 +1,158 @@
+package com.learnforge.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.learnforge.entity.Course;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Pre-serialised course catalog for {@code GET /courses}.
+ * <p>
+ * The catalog is loaded, serialised to JSON and gzipped once per version;
+ * {@link #invalidate()} bumps the version and starts a rebuild. The version is
+ * local to this node, so a snapshot is also rebuilt once it is older than
+ * {@code course-catalog.ttl-seconds}; that bounds how long a write made through
+ * another node goes unseen here. Rebuilds run on a background thread, one at a
+ * time, and readers keep getting the previous snapshot until the new one is
+ * in; only the very first read waits for a build. Each encoding gets its own
+ * strong ETag derived from the JSON bytes, so a rebuild with unchanged content
+ * keeps its ETags, and clients can revalidate with {@code If-None-Match} and
+ * get a 304 without a database hit.
+ */
+@Service
+public class CourseCatalogCache {
+
+    public record Snapshot(long version, long builtAt, byte[] json, byte[] gzip, String etag, String gzipEtag) {
+
+        public boolean matches(String ifNoneMatch) {
+            if (ifNoneMatch == null) {
+                return false;
+            }
+            for (String tag : ifNoneMatch.split(",")) {
+                String candidate = tag.trim();
+                if (candidate.equals("*") || candidate.equals(etag) || candidate.equals(gzipEtag)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+
+    private final CourseService courseService;
+    private final ObjectMapper objectMapper;
+    private final TransactionTemplate transactionTemplate;
+    private final long ttlMillis;
+    private final AtomicLong version = new AtomicLong();
+    private final AtomicBoolean rebuilding = new AtomicBoolean();
+    private final ExecutorService rebuilder;
+    private volatile Snapshot snapshot;
+
+    public CourseCatalogCache(CourseService courseService, ObjectMapper objectMapper,
+                              TransactionTemplate transactionTemplate,
+                              @Value("${course-catalog.ttl-seconds:30}") long ttlSeconds) {
+        this.courseService = courseService;
+        this.objectMapper = objectMapper;
+        this.transactionTemplate = transactionTemplate;
+        this.ttlMillis = TimeUnit.SECONDS.toMillis(ttlSeconds);
+        this.rebuilder = Executors.newSingleThreadExecutor(r -> {
+            Thread t = new Thread(r, "course-catalog-rebuilder");
+            t.setDaemon(true);
+            return t;
+        });
+    }
+
+    public Snapshot current() {
+        Snapshot cached = snapshot;
+        if (cached == null) {
+            synchronized (this) {
+                if (snapshot == null) {
+                    snapshot = build(version.get());
+                }
+                return snapshot;
+            }
+        }
+        if (!isCurrent(cached, version.get())) {
+            scheduleRebuild();
+        }
+        return cached;
+    }
+
+    private boolean isCurrent(Snapshot cached, long target) {
+        return cached.version() == target && System.currentTimeMillis() - cached.builtAt() < ttlMillis;
+    }
+
+    // Call after any write that changes what GET /courses returns
+    public void invalidate() {
+        version.incrementAndGet();
+        if (snapshot != null) {
+            scheduleRebuild();
+        }
+    }
+
+    private void scheduleRebuild() {
+        if (rebuilding.compareAndSet(false, true)) {
+            try {
+                rebuilder.execute(this::rebuild);
+            } catch (RejectedExecutionException e) {
+                rebuilding.set(false);
+            }
+        }
+    }
+
+    // An invalidate that lands mid-build leaves the new snapshot behind the version,
+    // so the next read schedules another rebuild. The transaction keeps lazy associations
+    // loadable while the courses are serialised, as the request thread's session did.
+    private void rebuild() {
+        try {
+            long target = version.get();
+            snapshot = transactionTemplate.execute(status -> build(target));
+        } catch (RuntimeException e) {
+            System.err.println("❌ Rebuilding the course catalog failed, serving the previous one: " + e.getMessage());
+        } finally {
+            rebuilding.set(false);
+        }
+    }
+
+    private Snapshot build(long target) {
+        List<Course> courses = courseService.getAllCourses();
+        try {
+            byte[] json = objectMapper.writeValueAsBytes(courses);
+            String hash = HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(json), 0, 12);
+            return new Snapshot(target, System.currentTimeMillis(), json, gzip(json), "\"" + hash + "\"", "\"" + hash + "-gz\"");
+        } catch (JsonProcessingException | NoSuchAlgorithmException e) {
+            throw new IllegalStateException("Could not build course catalog", e);
+        }
+    }
+
+    private static byte[] gzip(byte[] data) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(Math.max(64, data.length / 4));
+        try (GZIPOutputStream gzip = new GZIPOutputStream(out)) {
+            gzip.write(data);
+        } catch (IOException e) {
+            throw new IllegalStateException("Could not gzip course catalog", e);
+        }
+        return out.toByteArray();
+    }
+
+    @PreDestroy
+    void shutdown() {
+        rebuilder.shutdownNow();
+    }
+}
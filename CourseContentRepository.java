@@ -0,0 +1,80 @@
+package com.learnforge.repository;
+
+import com.learnforge.entity.Lesson;
+import com.learnforge.entity.Resource;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Read queries over a course's lessons and resources for the outline and
+ * aggregate endpoints, plus the ownership checks for nested resource routes.
+ */
+@Repository
+public interface CourseContentRepository extends org.springframework.data.repository.Repository<Lesson, Long> {
+
+    // The light columns of a lesson, selected directly so the outline never loads the entity
+    interface LessonOutline {
+        Long getLessonId();
+
+        String getLessonName();
+
+        Integer getDuration();
+
+        Integer getOrderIndex();
+    }
+
+    interface LessonTotals {
+        Long getCourseId();
+
+        Long getLessonCount();
+
+        Number getTotalDuration();
+    }
+
+    interface ResourceTotals {
+        Long getCourseId();
+
+        Long getResourceCount();
+    }
+
+    // Lessons in course order; a missing orderIndex sorts first, and lessonId breaks ties
+    @Query("SELECT l.lessonId AS lessonId, l.lessonName AS lessonName, l.duration AS duration, l.orderIndex AS orderIndex"
+            + " FROM Lesson l WHERE l.course.courseId = :courseId"
+            + " ORDER BY COALESCE(l.orderIndex, 0), l.lessonId")
+    List<LessonOutline> findLessonOutlines(@Param("courseId") Long courseId, Pageable page);
+
+    @Query("SELECT l.lessonId AS lessonId, l.lessonName AS lessonName, l.duration AS duration, l.orderIndex AS orderIndex"
+            + " FROM Lesson l WHERE l.course.courseId = :courseId"
+            + " AND (COALESCE(l.orderIndex, 0) > :afterOrder"
+            + " OR (COALESCE(l.orderIndex, 0) = :afterOrder AND l.lessonId > :afterId))"
+            + " ORDER BY COALESCE(l.orderIndex, 0), l.lessonId")
+    List<LessonOutline> findLessonOutlinesAfter(@Param("courseId") Long courseId,
+                                                @Param("afterOrder") int afterOrder,
+                                                @Param("afterId") Long afterId,
+                                                Pageable page);
+
+    @Query("SELECT r FROM Resource r WHERE r.lesson.lessonId IN :lessonIds")
+    List<Resource> findResourcesOf(@Param("lessonIds") Collection<Long> lessonIds);
+
+    @Query("SELECT l.course.courseId AS courseId, COUNT(l) AS lessonCount, COALESCE(SUM(l.duration), 0) AS totalDuration"
+            + " FROM Lesson l WHERE l.course.courseId IN :ids GROUP BY l.course.courseId")
+    List<LessonTotals> lessonTotals(@Param("ids") Collection<Long> courseIds);
+
+    @Query("SELECT l.course.courseId AS courseId, COUNT(r) AS resourceCount"
+            + " FROM Resource r JOIN r.lesson l WHERE l.course.courseId IN :ids GROUP BY l.course.courseId")
+    List<ResourceTotals> resourceTotals(@Param("ids") Collection<Long> courseIds);
+
+    Optional<Lesson> findByLessonIdAndCourseCourseId(Long lessonId, Long courseId);
+
+    @Query("SELECT COUNT(r) > 0 FROM Resource r WHERE r.id = :resourceId"
+            + " AND r.lesson.lessonId = :lessonId AND r.lesson.course.courseId = :courseId")
+    boolean resourceBelongsTo(@Param("resourceId") Long resourceId,
+                              @Param("lessonId") Long lessonId,
+                              @Param("courseId") Long courseId);
+}
@@ -1,12 +1,20 @@
 package com.learnforge.controller;
 
 import com.learnforge.entity.Course;
+import com.learnforge.service.CourseAggregatesService;
+import com.learnforge.service.CourseCatalogCache;
+import com.learnforge.service.CourseSearchIndex;
 import com.learnforge.service.CourseService;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 
 @RestController
@@ -15,25 +23,67 @@ import java.util.Optional;
 public class CourseController {
 
     private final CourseService courseService;
+    private final CourseCatalogCache catalogCache;
+    private final CourseSearchIndex searchIndex;
+    private final CourseAggregatesService courseAggregates;
 
-    public CourseController(CourseService courseService) {
+    public CourseController(CourseService courseService, CourseCatalogCache catalogCache,
+                            CourseSearchIndex searchIndex, CourseAggregatesService courseAggregates) {
         this.courseService = courseService;
+        this.catalogCache = catalogCache;
+        this.searchIndex = searchIndex;
+        this.courseAggregates = courseAggregates;
         System.out.println("🎯 CourseController initialized!");
     }
 
-    // ✅ GET - Get all courses
+    // ✅ GET - Get all courses (pre-serialised, supports If-None-Match and gzip)
     @GetMapping("/courses")
-    public ResponseEntity<List<Course>> getAllCourses() {
+    public ResponseEntity<byte[]> getAllCourses(
+            @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch,
+            @RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding) {
         try {
-            List<Course> courses = courseService.getAllCourses();
-            System.out.println("🎯 Returning " + courses.size() + " courses");
-            return ResponseEntity.ok(courses);
+            CourseCatalogCache.Snapshot catalog = catalogCache.current();
+            boolean gzip = acceptEncoding != null && acceptEncoding.toLowerCase().contains("gzip");
+            String etag = gzip ? catalog.gzipEtag() : catalog.etag();
+
+            if (catalog.matches(ifNoneMatch)) {
+                return ResponseEntity.status(HttpStatus.NOT_MODIFIED)
+                        .eTag(etag)
+                        .header(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING)
+                        .build();
+            }
+
+            ResponseEntity.BodyBuilder response = ResponseEntity.ok()
+                    .contentType(MediaType.APPLICATION_JSON)
+                    .eTag(etag)
+                    .cacheControl(CacheControl.noCache())
+                    .header(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING)
+                    .header("X-Catalog-Version", String.valueOf(catalog.version()));
+            if (gzip) {
+                return response.header(HttpHeaders.CONTENT_ENCODING, "gzip").body(catalog.gzip());
+            }
+            return response.body(catalog.json());
         } catch (Exception e) {
             e.printStackTrace();
             return ResponseEntity.status(500).build();
         }
     }
 
+    // ✅ GET - Lesson count, duration and resource count for many courses at once (?ids=1,2,3)
+    @GetMapping("/courses/aggregates")
+    public ResponseEntity<Map<Long, CourseAggregatesService.CourseAggregates>> getCourseAggregates(
+            @RequestParam List<Long> ids) {
+        try {
+            if (ids.size() > 500) {
+                return ResponseEntity.badRequest().build();
+            }
+            return ResponseEntity.ok(courseAggregates.getAll(ids));
+        } catch (Exception e) {
+            System.err.println("❌ Error loading course aggregates: " + e.getMessage());
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).build();
+        }
+    }
+
     // ✅ GET - Get course by ID
     // In your CourseController.java, update this method:
 
@@ -62,6 +112,8 @@ public class CourseController {
         try {
             System.out.println("🎯 Creating course: " + course.getCourseTitle());
             Course savedCourse = courseService.saveCourse(course);
+            catalogCache.invalidate();
+            searchIndex.index(savedCourse);
             System.out.println("✅ Course created with ID: " + savedCourse.getCourseId());
             return ResponseEntity.ok(savedCourse);
         } catch (Exception e) {
@@ -78,6 +130,8 @@ public class CourseController {
             System.out.println("🎯 Updating course ID: " + id);
             course.setCourseId(id);
             Course updatedCourse = courseService.saveCourse(course);
+            catalogCache.invalidate();
+            searchIndex.index(updatedCourse);
             System.out.println("✅ Course updated: " + updatedCourse.getCourseTitle());
             return ResponseEntity.ok(updatedCourse);
         } catch (Exception e) {
@@ -93,6 +147,9 @@ public class CourseController {
         try {
             System.out.println("🎯 Deleting course ID: " + id);
             courseService.deleteCourse(id);
+            catalogCache.invalidate();
+            searchIndex.remove(id);
+            courseAggregates.courseDeleted(id);
             System.out.println("✅ Course deleted successfully");
             return ResponseEntity.ok("Course deleted successfully");
         } catch (Exception e) {
@@ -102,16 +159,36 @@ public class CourseController {
         }
     }
 
-    // 🎯 SEARCH - Search courses by keyword
+    // 🎯 SEARCH - Search courses by keyword (ranked, served from the in-memory index once built)
     @GetMapping("/courses/search")
-    public ResponseEntity<List<Course>> searchCourses(@RequestParam String keyword) {
+    public ResponseEntity<List<Course>> searchCourses(
+            @RequestParam String keyword,
+            @RequestParam(defaultValue = "50") int limit) {
         try {
             System.out.println("🎯 Searching courses with keyword: " + keyword);
-            List<Course> courses = courseService.setCourse(keyword);
+            List<Course> courses = searchIndex.isReady()
+                    ? searchIndex.search(keyword, Math.max(1, limit))
+                    : courseService.setCourse(keyword);
             return ResponseEntity.ok(courses);
         } catch (Exception e) {
             e.printStackTrace();
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).build();
         }
     }
+
+    // 🎯 SUGGEST - Type-ahead titles for a partial query
+    @GetMapping("/courses/suggest")
+    public ResponseEntity<List<Map<String, Object>>> suggestCourses(
+            @RequestParam String q,
+            @RequestParam(defaultValue = "8") int limit) {
+        List<Map<String, Object>> suggestions = searchIndex.search(q, Math.max(1, Math.min(limit, 20))).stream()
+                .map(course -> {
+                    Map<String, Object> suggestion = new LinkedHashMap<>();
+                    suggestion.put("courseId", course.getCourseId());
+                    suggestion.put("courseTitle", course.getCourseTitle());
+                    return suggestion;
+                })
+                .toList();
+        return ResponseEntity.ok(suggestions);
+    }
 }
@@ -0,0 +1,124 @@
+package com.learnforge.service;
+
+import com.learnforge.entity.Resource;
+import com.learnforge.repository.CourseContentRepository;
+import com.learnforge.repository.CourseContentRepository.LessonOutline;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+
+/**
+ * One-call course outline: a page of lessons with their resources attached.
+ * <p>
+ * Lessons come in course order ({@code orderIndex}, then id) and are paged with
+ * an opaque cursor over that same pair (keyset pagination, so deep pages cost
+ * the same as the first). Only the outline columns are selected, into a
+ * projection, so heavy text columns are never read and no lesson entity is
+ * loaded; {@code fields} narrows the row to a subset of those columns.
+ * Resources for the whole page come from a single
+ * {@code where r.lesson.lessonId in :lessonIds} query, which replaces the
+ * per-lesson {@code /resources} calls the course page used to make.
+ */
+@Service
+public class CourseOutlineService {
+
+    public record OutlinePage(Long courseId, List<Map<String, Object>> lessons, String nextCursor, boolean hasMore) { }
+
+    private record Cursor(int orderIndex, Long lessonId) { }
+
+    private static final int MAX_PAGE_SIZE = 100;
+
+    private final CourseContentRepository courseContent;
+
+    public CourseOutlineService(CourseContentRepository courseContent) {
+        this.courseContent = courseContent;
+    }
+
+    @Transactional(readOnly = true)
+    public OutlinePage outline(Long courseId, String cursor, int size, Set<String> fields, boolean includeResources) {
+        int pageSize = Math.max(1, Math.min(size, MAX_PAGE_SIZE));
+        Cursor after = decodeCursor(cursor);
+        PageRequest page = PageRequest.of(0, pageSize + 1);
+        List<LessonOutline> lessons = after == null
+                ? courseContent.findLessonOutlines(courseId, page)
+                : courseContent.findLessonOutlinesAfter(courseId, after.orderIndex(), after.lessonId(), page);
+
+        boolean hasMore = lessons.size() > pageSize;
+        if (hasMore) {
+            lessons = lessons.subList(0, pageSize);
+        }
+
+        Map<Long, List<Map<String, Object>>> resourcesByLesson = includeResources && !lessons.isEmpty()
+                ? loadResources(lessons)
+                : Map.of();
+
+        List<Map<String, Object>> rows = new ArrayList<>(lessons.size());
+        for (LessonOutline lesson : lessons) {
+            Map<String, Object> row = new LinkedHashMap<>();
+            row.put("lessonId", lesson.getLessonId());
+            putIfWanted(row, fields, "lessonName", lesson.getLessonName());
+            putIfWanted(row, fields, "duration", lesson.getDuration());
+            putIfWanted(row, fields, "orderIndex", lesson.getOrderIndex());
+            if (includeResources) {
+                row.put("resources", resourcesByLesson.getOrDefault(lesson.getLessonId(), List.of()));
+            }
+            rows.add(row);
+        }
+
+        String nextCursor = null;
+        if (hasMore) {
+            LessonOutline last = lessons.get(lessons.size() - 1);
+            nextCursor = encodeCursor(new Cursor(orderOf(last), last.getLessonId()));
+        }
+        return new OutlinePage(courseId, rows, nextCursor, hasMore);
+    }
+
+    private static void putIfWanted(Map<String, Object> row, Set<String> fields, String name, Object value) {
+        if (fields == null || fields.isEmpty() || fields.contains(name)) {
+            row.put(name, value);
+        }
+    }
+
+    // Same COALESCE as the queries, so a lesson without an order keeps its place
+    private static int orderOf(LessonOutline lesson) {
+        return lesson.getOrderIndex() != null ? lesson.getOrderIndex() : 0;
+    }
+
+    // One query for the whole page; the lesson id is read off the proxy without initialising it
+    private Map<Long, List<Map<String, Object>>> loadResources(List<LessonOutline> lessons) {
+        List<Long> lessonIds = lessons.stream().map(LessonOutline::getLessonId).toList();
+        Map<Long, List<Map<String, Object>>> byLesson = new HashMap<>();
+        for (Resource resource : courseContent.findResourcesOf(lessonIds)) {
+            Map<String, Object> row = new LinkedHashMap<>();
+            row.put("id", resource.getId());
+            row.put("title", resource.getTitle());
+            row.put("type", resource.getType());
+            row.put("url", resource.getUrl());
+            byLesson.computeIfAbsent(resource.getLesson().getLessonId(), k -> new ArrayList<>()).add(row);
+        }
+        return byLesson;
+    }
+
+    private static String encodeCursor(Cursor cursor) {
+        String raw = cursor.orderIndex() + ":" + cursor.lessonId();
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static Cursor decodeCursor(String cursor) {
+        if (cursor == null || cursor.isBlank()) {
+            return null;
+        }
+        try {
+            String[] parts = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8).split(":", 2);
+            if (parts.length != 2) {
+                throw new IllegalArgumentException("Invalid cursor: " + cursor);
+            }
+            return new Cursor(Integer.parseInt(parts[0]), Long.valueOf(parts[1]));
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Invalid cursor: " + cursor);
+        }
+    }
+}
@@ -0,0 +1,277 @@
+package com.learnforge.service;
+
+import com.learnforge.entity.Course;
+import com.learnforge.entity.Lesson;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+
+import java.util.*;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * In-process full-text index over course titles, descriptions and lesson names.
+ * <p>
+ * Terms map to postings of (courseId, weighted term frequency); title terms
+ * count three times. Queries are ranked with BM25 and the last query term also
+ * matches as a prefix, which is what type-ahead needs. The term dictionary is a
+ * sorted map so a prefix is one range scan. Writes (create, update, delete of a
+ * course or its lessons) re-index a single course under a write lock; searches
+ * share a read lock. Until the startup build finishes, {@link #isReady()} is
+ * false and callers should fall back to the database search.
+ * <p>
+ * The index is local to this node and only sees the writes made through it, so
+ * it is rebuilt from the database every {@code course-search.reconcile-minutes}
+ * to pick up courses created, changed or deleted through other nodes; courses
+ * that are gone from the database are dropped. Courses written or deleted here
+ * while a build runs are remembered, and the build leaves them alone, so its
+ * older copy can't overwrite an update or bring back a deleted course.
+ */
+@Service
+public class CourseSearchIndex {
+
+    private static final double K1 = 1.2;
+    private static final double B = 0.75;
+    private static final int TITLE_WEIGHT = 3;
+    private static final int MAX_PREFIX_TERMS = 50;
+    private static final double PREFIX_DISCOUNT = 0.7;
+    private static final Set<String> STOPWORDS = Set.of(
+            "a", "an", "and", "the", "of", "to", "in", "for", "on", "with", "by", "is", "at", "or");
+
+    private final CourseService courseService;
+    private final LessonService lessonService;
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Map<Long, Doc> docs = new HashMap<>();
+    private final TreeMap<String, Map<Long, Integer>> postings = new TreeMap<>();
+    // Courses written or removed since the running build began; guarded by the write lock
+    private final Set<Long> changedDuringBuild = new HashSet<>();
+    private final ScheduledExecutorService reconciler;
+    private final long reconcileMinutes;
+    private long totalLength;
+    private boolean building;
+    private volatile boolean ready;
+
+    public CourseSearchIndex(CourseService courseService, LessonService lessonService,
+                             @Value("${course-search.reconcile-minutes:15}") long reconcileMinutes) {
+        this.courseService = courseService;
+        this.lessonService = lessonService;
+        this.reconcileMinutes = reconcileMinutes;
+        this.reconciler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "course-search-indexer");
+            t.setDaemon(true);
+            return t;
+        });
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void buildOnStartup() {
+        reconciler.scheduleWithFixedDelay(this::rebuildQuietly, 0, reconcileMinutes, TimeUnit.MINUTES);
+    }
+
+    // Re-indexes every course from the database and drops the ones it no longer has
+    public void rebuild() {
+        lock.writeLock().lock();
+        try {
+            building = true;
+            changedDuringBuild.clear();
+        } finally {
+            lock.writeLock().unlock();
+        }
+        Set<Long> seen = new HashSet<>();
+        try {
+            for (Course course : courseService.getAllCourses()) {
+                seen.add(course.getCourseId());
+                put(course, true);
+            }
+            lock.writeLock().lock();
+            try {
+                for (Long courseId : new ArrayList<>(docs.keySet())) {
+                    if (!seen.contains(courseId) && !changedDuringBuild.contains(courseId)) {
+                        removeLocked(courseId);
+                    }
+                }
+                ready = true;
+            } finally {
+                lock.writeLock().unlock();
+            }
+        } finally {
+            lock.writeLock().lock();
+            try {
+                building = false;
+                changedDuringBuild.clear();
+            } finally {
+                lock.writeLock().unlock();
+            }
+        }
+    }
+
+    private void rebuildQuietly() {
+        try {
+            rebuild();
+        } catch (RuntimeException e) {
+            System.err.println("❌ Course search index build failed: " + e.getMessage());
+        }
+    }
+
+    public boolean isReady() {
+        return ready;
+    }
+
+    // Add or replace a course, re-reading its lesson names
+    public void index(Course course) {
+        put(course, false);
+    }
+
+    private void put(Course course, boolean fromBuild) {
+        Map<String, Integer> terms = new HashMap<>();
+        addTerms(terms, course.getCourseTitle(), TITLE_WEIGHT);
+        addTerms(terms, course.getCourseDescription(), 1);
+        for (Lesson lesson : lessonService.getLessonsByCourseId(course.getCourseId())) {
+            addTerms(terms, lesson.getLessonName(), 1);
+        }
+        int length = terms.values().stream().mapToInt(Integer::intValue).sum();
+
+        lock.writeLock().lock();
+        try {
+            if (fromBuild && changedDuringBuild.contains(course.getCourseId())) {
+                return;
+            }
+            markChangedLocked(course.getCourseId(), fromBuild);
+            removeLocked(course.getCourseId());
+            docs.put(course.getCourseId(), new Doc(course, terms, length));
+            totalLength += length;
+            for (Map.Entry<String, Integer> term : terms.entrySet()) {
+                postings.computeIfAbsent(term.getKey(), t -> new HashMap<>()).put(course.getCourseId(), term.getValue());
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // Lessons changed: re-index the owning course from the database
+    public void reindex(Long courseId) {
+        courseService.getCourseById(courseId).ifPresentOrElse(this::index, () -> remove(courseId));
+    }
+
+    public void remove(Long courseId) {
+        lock.writeLock().lock();
+        try {
+            markChangedLocked(courseId, false);
+            removeLocked(courseId);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public List<Course> search(String query, int limit) {
+        List<String> tokens = tokenize(query);
+        if (tokens.isEmpty()) {
+            return new ArrayList<>();
+        }
+        lock.readLock().lock();
+        try {
+            Map<Long, Double> scores = new HashMap<>();
+            for (int i = 0; i < tokens.size(); i++) {
+                String token = tokens.get(i);
+                score(token, 1.0, scores);
+                if (i == tokens.size() - 1) {
+                    int expanded = 0;
+                    for (String term : postings.subMap(token, false, token + Character.MAX_VALUE, false).keySet()) {
+                        if (expanded++ == MAX_PREFIX_TERMS) {
+                            break;
+                        }
+                        score(term, PREFIX_DISCOUNT, scores);
+                    }
+                }
+            }
+            return scores.entrySet().stream()
+                    .sorted(Map.Entry.<Long, Double>comparingByValue().reversed())
+                    .limit(limit)
+                    .map(e -> docs.get(e.getKey()).course)
+                    .toList();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return docs.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // Caller holds the read lock
+    private void score(String term, double weight, Map<Long, Double> scores) {
+        Map<Long, Integer> docsWithTerm = postings.get(term);
+        if (docsWithTerm == null) {
+            return;
+        }
+        int n = docs.size();
+        double avgLength = n == 0 ? 1 : (double) totalLength / n;
+        double idf = Math.log(1 + (n - docsWithTerm.size() + 0.5) / (docsWithTerm.size() + 0.5));
+        for (Map.Entry<Long, Integer> posting : docsWithTerm.entrySet()) {
+            double tf = posting.getValue();
+            double norm = K1 * (1 - B + B * docs.get(posting.getKey()).length / avgLength);
+            scores.merge(posting.getKey(), weight * idf * tf * (K1 + 1) / (tf + norm), Double::sum);
+        }
+    }
+
+    // Caller holds the write lock
+    private void markChangedLocked(Long courseId, boolean fromBuild) {
+        if (!fromBuild && building) {
+            changedDuringBuild.add(courseId);
+        }
+    }
+
+    // Caller holds the write lock
+    private void removeLocked(Long courseId) {
+        Doc old = docs.remove(courseId);
+        if (old == null) {
+            return;
+        }
+        totalLength -= old.length;
+        for (String term : old.terms.keySet()) {
+            Map<Long, Integer> docsWithTerm = postings.get(term);
+            if (docsWithTerm != null) {
+                docsWithTerm.remove(courseId);
+                if (docsWithTerm.isEmpty()) {
+                    postings.remove(term);
+                }
+            }
+        }
+    }
+
+    private static void addTerms(Map<String, Integer> terms, String text, int weight) {
+        for (String token : tokenize(text)) {
+            terms.merge(token, weight, Integer::sum);
+        }
+    }
+
+    static List<String> tokenize(String text) {
+        List<String> tokens = new ArrayList<>();
+        if (text == null) {
+            return tokens;
+        }
+        for (String raw : text.toLowerCase(Locale.ROOT).split("[^a-z0-9+#]+")) {
+            if (!raw.isEmpty() && !STOPWORDS.contains(raw)) {
+                tokens.add(raw);
+            }
+        }
+        return tokens;
+    }
+
+    @PreDestroy
+    void shutdown() {
+        reconciler.shutdownNow();
+    }
+
+    private record Doc(Course course, Map<String, Integer> terms, int length) { }
+}
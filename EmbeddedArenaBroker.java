@@ -0,0 +1,54 @@
+package com.learnforge.service;
+
+import jakarta.annotation.PreDestroy;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnExpression;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Consumer;
+
+/**
+ * In-process stand-in for an external broker. Several
+ * {@link ClusteredArenaBackplane} instances sharing one of these behave like
+ * separate nodes on a real broker, which makes multi-node rooms testable in a
+ * single JVM. A single dispatch thread keeps delivery in publish order.
+ */
+@Component
+@ConditionalOnExpression("'${arena.backplane.mode:local}' == 'cluster' and '${arena.backplane.broker:embedded}' == 'embedded'")
+public class EmbeddedArenaBroker implements ArenaBrokerClient {
+
+    private final Map<String, List<Consumer<byte[]>>> listeners = new ConcurrentHashMap<>();
+    private final ExecutorService dispatcher = Executors.newSingleThreadExecutor(r -> {
+        Thread t = new Thread(r, "arena-embedded-broker");
+        t.setDaemon(true);
+        return t;
+    });
+
+    @Override
+    public void publish(String channel, byte[] payload) {
+        dispatcher.execute(() -> {
+            for (Consumer<byte[]> listener : listeners.getOrDefault(channel, List.of())) {
+                try {
+                    listener.accept(payload);
+                } catch (RuntimeException e) {
+                    System.err.println("❌ Arena broker listener failed on " + channel + ": " + e.getMessage());
+                }
+            }
+        });
+    }
+
+    @Override
+    public void subscribe(String channel, Consumer<byte[]> listener) {
+        listeners.computeIfAbsent(channel, c -> new CopyOnWriteArrayList<>()).add(listener);
+    }
+
+    @PreDestroy
+    void shutdown() {
+        dispatcher.shutdown();
+    }
+}
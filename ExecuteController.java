@@ -2,22 +2,45 @@ package com.learnforge.controller;
 
 import com.learnforge.dto.ExecuteRequest;
 import com.learnforge.dto.ExecuteResponse;
-import com.learnforge.service.Judge0Service;
+import com.learnforge.dto.ExecutionResult;
+import com.learnforge.dto.ExecutionSubmission;
+import com.learnforge.dto.JudgeRequest;
+import com.learnforge.dto.JudgeResponse;
+import com.learnforge.service.ArenaRoomRegistry;
+import com.learnforge.service.AuthTokenService;
+import com.learnforge.service.BatchJudgeService;
+import com.learnforge.service.CodeExecutor;
+import com.learnforge.service.ExecutionQueue;
+import com.learnforge.service.ExecutionResultCache;
+import jakarta.servlet.http.HttpServletRequest;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
 import java.util.Map;
+import java.util.concurrent.RejectedExecutionException;
 
 @RestController
 @RequestMapping("/execute")
 @CrossOrigin(origins = "${app.cors.allowed-origins}")
 public class ExecuteController {
 
-    private final Judge0Service judge0Service;
+    private final CodeExecutor codeExecutor;
+    private final ExecutionQueue executionQueue;
+    private final ExecutionResultCache resultCache;
+    private final BatchJudgeService batchJudgeService;
+    private final AuthTokenService authTokens;
+    private final ArenaRoomRegistry roomRegistry;
 
-    public ExecuteController(Judge0Service judge0Service) {
-        this.judge0Service = judge0Service;
+    public ExecuteController(CodeExecutor codeExecutor, ExecutionQueue executionQueue,
+                             ExecutionResultCache resultCache, BatchJudgeService batchJudgeService,
+                             AuthTokenService authTokens, ArenaRoomRegistry roomRegistry) {
+        this.codeExecutor = codeExecutor;
+        this.executionQueue = executionQueue;
+        this.resultCache = resultCache;
+        this.batchJudgeService = batchJudgeService;
+        this.authTokens = authTokens;
+        this.roomRegistry = roomRegistry;
     }
 
     @PostMapping
@@ -30,25 +53,18 @@ public class ExecuteController {
                 );
             }
 
-            Map<String, Object> result = judge0Service.execute(req);
-
-            if (result == null) {
+            ExecutionResult result = codeExecutor.execute(req);
+            if (result.getStatusId() == ExecutionResult.INTERNAL_ERROR) {
                 return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
-                        .body(createErrorResponse("No response from Judge0"));
+                        .body(createErrorResponse(result.getStderr()));
             }
 
             ExecuteResponse response = new ExecuteResponse();
-            response.setStdout(safeToString(result.get("stdout")));
-            response.setStderr(safeToString(result.get("stderr")));
-            response.setTime(safeToString(result.get("time")));
-
-            // Safely extract status description
-            Object statusObj = result.get("status");
-            if (statusObj instanceof Map<?, ?> statusMap) {
-                response.setStatus(safeToString(statusMap.get("description")));
-            } else {
-                response.setStatus("Unknown");
-            }
+            response.setStdout(result.getStdout());
+            response.setStderr(result.getCompileOutput() != null && result.getStderr() == null
+                    ? result.getCompileOutput() : result.getStderr());
+            response.setTime(result.getTimeSeconds() == null ? null : String.valueOf(result.getTimeSeconds()));
+            response.setStatus(result.getStatus() == null ? "Unknown" : result.getStatus());
 
             return ResponseEntity.ok(response);
 
@@ -59,9 +75,55 @@ public class ExecuteController {
         }
     }
 
-    // Utility: safely convert Object to String
-    private String safeToString(Object obj) {
-        return obj == null ? null : obj.toString();
+    // Judge one program against many test cases in one call
+    @PostMapping("/judge")
+    public ResponseEntity<JudgeResponse> judge(@RequestBody JudgeRequest req) {
+        if (req.getLanguage() == null || req.getCode() == null || req.getTestCases() == null || req.getTestCases().isEmpty()) {
+            return ResponseEntity.badRequest().build();
+        }
+        try {
+            return ResponseEntity.ok(batchJudgeService.judge(req));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        } catch (Exception e) {
+            System.err.println("❌ Judging failed: " + e.getMessage());
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).build();
+        }
+    }
+
+    // Queue a run and return its token at once; poll /execute/submissions/{token} or subscribe to /topic/execute/{token}.
+    // The per-user cap applies to the logged-in user, and only a player of the given arena room gets ARENA priority.
+    @PostMapping("/submissions")
+    public ResponseEntity<ExecutionSubmission> submit(
+            @RequestBody ExecuteRequest req,
+            @RequestParam(required = false) String roomId,
+            HttpServletRequest request) {
+        AuthTokenService.Claims claims = authTokens.authenticate(request);
+        if (claims == null) {
+            return ResponseEntity.status(HttpStatus.UNAUTHORIZED).build();
+        }
+        if (req.getLanguage() == null || req.getCode() == null) {
+            return ResponseEntity.badRequest().build();
+        }
+        ExecutionSubmission.Priority priority = roomId != null && roomRegistry.contains(roomId, claims.userId())
+                ? ExecutionSubmission.Priority.ARENA
+                : ExecutionSubmission.Priority.PRACTICE;
+        try {
+            return ResponseEntity.status(HttpStatus.ACCEPTED).body(executionQueue.submit(claims.userId(), priority, req));
+        } catch (RejectedExecutionException e) {
+            return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS).header("Retry-After", "1").build();
+        }
+    }
+
+    @GetMapping("/submissions/{token}")
+    public ResponseEntity<ExecutionSubmission> getSubmission(@PathVariable String token) {
+        ExecutionSubmission submission = executionQueue.get(token);
+        return submission == null ? ResponseEntity.notFound().build() : ResponseEntity.ok(submission);
+    }
+
+    @GetMapping("/cache/stats")
+    public ResponseEntity<Map<String, Object>> cacheStats() {
+        return ResponseEntity.ok(resultCache.stats());
     }
 
     // Helper: create error response with status
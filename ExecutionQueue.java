@@ -0,0 +1,182 @@
+package com.learnforge.service;
+
+import com.learnforge.dto.ExecuteRequest;
+import com.learnforge.dto.ExecutionResult;
+import com.learnforge.dto.ExecutionSubmission;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.PriorityBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Asynchronous code execution: submit, get a token, poll or subscribe.
+ * <p>
+ * Submissions wait in one priority queue (arena before practice, FIFO within a
+ * priority) bounded at {@code execution.queue.capacity}; each user may have at
+ * most {@code execution.queue.per-user-max} submissions queued or running.
+ * Either limit rejects with {@link RejectedExecutionException}. Dispatcher
+ * threads take up to {@code execution.queue.batch-size} submissions at a time
+ * and hand them to the {@link CodeExecutor} as one batch. Every state change is
+ * pushed to {@code /topic/execute/{token}}, and the latest state can be polled
+ * for {@code execution.queue.result-ttl-minutes}.
+ */
+@Service
+public class ExecutionQueue {
+
+    private final CodeExecutor executor;
+    private final SimpMessagingTemplate messagingTemplate;
+    private final int capacity;
+    private final int perUserMax;
+    private final int batchSize;
+    private final PriorityBlockingQueue<Task> queue = new PriorityBlockingQueue<>();
+    private final AtomicInteger queued = new AtomicInteger();
+    private final AtomicLong sequence = new AtomicLong();
+    private final Map<String, Integer> perUser = new ConcurrentHashMap<>();
+    private final BoundedCache<String, ExecutionSubmission> submissions;
+    private final List<Thread> dispatchers = new ArrayList<>();
+
+    public ExecutionQueue(
+            CodeExecutor executor,
+            SimpMessagingTemplate messagingTemplate,
+            @Value("${execution.queue.capacity:1000}") int capacity,
+            @Value("${execution.queue.per-user-max:3}") int perUserMax,
+            @Value("${execution.queue.batch-size:10}") int batchSize,
+            @Value("${execution.queue.workers:4}") int workers,
+            @Value("${execution.queue.result-ttl-minutes:10}") long resultTtlMinutes) {
+        this.executor = executor;
+        this.messagingTemplate = messagingTemplate;
+        this.capacity = capacity;
+        this.perUserMax = perUserMax;
+        this.batchSize = Math.max(1, batchSize);
+        this.submissions = new BoundedCache<>(capacity * 20, TimeUnit.MINUTES.toMillis(resultTtlMinutes));
+        for (int i = 0; i < workers; i++) {
+            Thread dispatcher = new Thread(this::dispatchLoop, "execution-dispatcher-" + i);
+            dispatcher.setDaemon(true);
+            dispatcher.start();
+            dispatchers.add(dispatcher);
+        }
+    }
+
+    public ExecutionSubmission submit(String userId, ExecutionSubmission.Priority priority, ExecuteRequest request) {
+        if (queued.incrementAndGet() > capacity) {
+            queued.decrementAndGet();
+            throw new RejectedExecutionException("Execution queue is full");
+        }
+        boolean[] admitted = new boolean[1];
+        perUser.compute(userId, (u, active) -> {
+            int count = active == null ? 0 : active;
+            admitted[0] = count < perUserMax;
+            return admitted[0] ? count + 1 : active;
+        });
+        if (!admitted[0]) {
+            queued.decrementAndGet();
+            throw new RejectedExecutionException("Too many running submissions for " + userId);
+        }
+
+        String token = UUID.randomUUID().toString();
+        ExecutionSubmission submission = new ExecutionSubmission();
+        submission.setToken(token);
+        submission.setUserId(userId);
+        submission.setPriority(priority);
+        submission.setState(ExecutionSubmission.State.QUEUED);
+        submission.setSubmittedAt(System.currentTimeMillis());
+        submissions.put(token, submission);
+        queue.add(new Task(priority, sequence.incrementAndGet(), request, submission));
+        return submission;
+    }
+
+    public ExecutionSubmission get(String token) {
+        return submissions.get(token);
+    }
+
+    public int depth() {
+        return queued.get();
+    }
+
+    private void dispatchLoop() {
+        while (!Thread.currentThread().isInterrupted()) {
+            List<Task> batch = new ArrayList<>(batchSize);
+            try {
+                batch.add(queue.take());
+            } catch (InterruptedException e) {
+                return;
+            }
+            queue.drainTo(batch, batchSize - 1);
+            queued.addAndGet(-batch.size());
+
+            List<ExecuteRequest> requests = new ArrayList<>(batch.size());
+            for (Task task : batch) {
+                publish(update(task.submission, ExecutionSubmission.State.RUNNING, null, null));
+                requests.add(task.request);
+            }
+            try {
+                List<ExecutionResult> results = executor.executeBatch(requests);
+                for (int i = 0; i < batch.size(); i++) {
+                    finish(batch.get(i), ExecutionSubmission.State.DONE, results.get(i), null);
+                }
+            } catch (RuntimeException e) {
+                System.err.println("❌ Execution batch failed: " + e.getMessage());
+                for (Task task : batch) {
+                    finish(task, ExecutionSubmission.State.FAILED, null, e.getMessage());
+                }
+            }
+        }
+    }
+
+    private void finish(Task task, ExecutionSubmission.State state, ExecutionResult result, String error) {
+        ExecutionSubmission done = update(task.submission, state, result, error);
+        done.setFinishedAt(System.currentTimeMillis());
+        submissions.put(done.getToken(), done);
+        perUser.computeIfPresent(done.getUserId(), (u, active) -> active <= 1 ? null : active - 1);
+        publish(done);
+    }
+
+    // Pollers may be serialising the previous state, so each change is a new object
+    private ExecutionSubmission update(ExecutionSubmission current, ExecutionSubmission.State state,
+                                       ExecutionResult result, String error) {
+        ExecutionSubmission next = new ExecutionSubmission();
+        next.setToken(current.getToken());
+        next.setUserId(current.getUserId());
+        next.setPriority(current.getPriority());
+        next.setSubmittedAt(current.getSubmittedAt());
+        next.setState(state);
+        next.setResult(result);
+        next.setError(error);
+        submissions.put(next.getToken(), next);
+        return next;
+    }
+
+    private void publish(ExecutionSubmission submission) {
+        try {
+            messagingTemplate.convertAndSend("/topic/execute/" + submission.getToken(), submission);
+        } catch (RuntimeException e) {
+            System.err.println("❌ Could not push execution update " + submission.getToken() + ": " + e.getMessage());
+        }
+    }
+
+    @PreDestroy
+    void shutdown() {
+        dispatchers.forEach(Thread::interrupt);
+    }
+
+    private record Task(ExecutionSubmission.Priority priority, long seq, ExecuteRequest request,
+                        ExecutionSubmission submission) implements Comparable<Task> {
+
+        @Override
+        public int compareTo(Task other) {
+            int byPriority = priority.compareTo(other.priority);
+            return byPriority != 0 ? byPriority : Long.compare(seq, other.seq);
+        }
+    }
+}
@@ -0,0 +1,102 @@
+package com.learnforge.service;
+
+import com.learnforge.dto.ExecuteRequest;
+import com.learnforge.dto.ExecutionResult;
+import com.learnforge.dto.ExecutionSubmission;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+
+import java.util.concurrent.RejectedExecutionException;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.mock;
+
+class ExecutionQueueTest {
+
+    private ExecutionQueue queue;
+
+    @AfterEach
+    void tearDown() {
+        if (queue != null) {
+            queue.shutdown();
+        }
+    }
+
+    // No dispatchers, so everything submitted stays queued
+    private ExecutionQueue idleQueue(int capacity, int perUserMax) {
+        return new ExecutionQueue(new FakeCodeExecutor(0), mock(SimpMessagingTemplate.class),
+                capacity, perUserMax, 10, 0, 10);
+    }
+
+    private static ExecuteRequest request(String stdin) {
+        ExecuteRequest request = new ExecuteRequest();
+        request.setLanguage("python");
+        request.setCode("print(input())");
+        request.setStdin(stdin);
+        return request;
+    }
+
+    @Test
+    void capsSubmissionsPerUserWithoutAffectingOthers() {
+        queue = idleQueue(100, 2);
+        queue.submit("alice", ExecutionSubmission.Priority.PRACTICE, request("1"));
+        queue.submit("alice", ExecutionSubmission.Priority.PRACTICE, request("2"));
+
+        assertThrows(RejectedExecutionException.class,
+                () -> queue.submit("alice", ExecutionSubmission.Priority.PRACTICE, request("3")));
+        assertNotNull(queue.submit("bob", ExecutionSubmission.Priority.PRACTICE, request("4")));
+        assertEquals(3, queue.depth());
+    }
+
+    @Test
+    void rejectsOnceTheQueueIsFull() {
+        queue = idleQueue(2, 10);
+        queue.submit("alice", ExecutionSubmission.Priority.PRACTICE, request("1"));
+        queue.submit("bob", ExecutionSubmission.Priority.PRACTICE, request("2"));
+
+        assertThrows(RejectedExecutionException.class,
+                () -> queue.submit("carol", ExecutionSubmission.Priority.PRACTICE, request("3")));
+        assertEquals(2, queue.depth());
+    }
+
+    @Test
+    void finishedSubmissionsFreeTheUsersSlot() throws InterruptedException {
+        queue = new ExecutionQueue(new FakeCodeExecutor(0), mock(SimpMessagingTemplate.class), 100, 1, 10, 1, 10);
+        ExecutionSubmission first = queue.submit("alice", ExecutionSubmission.Priority.PRACTICE, request("hi"));
+
+        ExecutionSubmission done = awaitFinished(first.getToken());
+        assertEquals(ExecutionSubmission.State.DONE, done.getState());
+        assertEquals(ExecutionResult.ACCEPTED, done.getResult().getStatusId());
+        assertEquals("hi", done.getResult().getStdout());
+
+        assertNotNull(submitWhenFree("alice", request("again")));
+    }
+
+    // finishedAt is set a moment before the slot is given back, so retry briefly
+    private ExecutionSubmission submitWhenFree(String userId, ExecuteRequest request) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5_000;
+        while (true) {
+            try {
+                return queue.submit(userId, ExecutionSubmission.Priority.PRACTICE, request);
+            } catch (RejectedExecutionException e) {
+                if (System.currentTimeMillis() > deadline) {
+                    throw e;
+                }
+                Thread.sleep(5);
+            }
+        }
+    }
+
+    private ExecutionSubmission awaitFinished(String token) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5_000;
+        while (System.currentTimeMillis() < deadline) {
+            ExecutionSubmission current = queue.get(token);
+            if (current.getFinishedAt() != null) {
+                return current;
+            }
+            Thread.sleep(5);
+        }
+        return fail("Submission " + token + " did not finish");
+    }
+}
@@ -0,0 +1,38 @@
+package com.learnforge.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Outcome of one program run, independent of the backend that ran it.
+ * <p>
+ * {@code statusId} uses Judge0's numbering (3 accepted, 4 wrong answer,
+ * 5 time limit, 6 compilation error, 7-12 runtime errors, 13 internal error)
+ * so every backend reports verdicts the same way.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ExecutionResult {
+
+    public static final int ACCEPTED = 3;
+    public static final int WRONG_ANSWER = 4;
+    public static final int TIME_LIMIT = 5;
+    public static final int COMPILATION_ERROR = 6;
+    public static final int RUNTIME_ERROR = 11;
+    public static final int INTERNAL_ERROR = 13;
+
+    private String stdout;
+    private String stderr;
+    private String compileOutput;
+    private int statusId;
+    private String status;
+    private Double timeSeconds;
+    private Long memoryKb;
+    private String backend;
+
+    public static ExecutionResult internalError(String message, String backend) {
+        return new ExecutionResult(null, message, null, INTERNAL_ERROR, "Internal Error", null, null, backend);
+    }
+}
@@ -0,0 +1,179 @@
+package com.learnforge.service;
+
+import com.learnforge.dto.ExecuteRequest;
+import com.learnforge.dto.ExecutionResult;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * Results of past executions keyed by SHA-256 of (language, code, stdin, limits).
+ * <p>
+ * An LRU bounded by approximate bytes of output ({@code execution.cache.max-bytes})
+ * rather than entry count, since one noisy program can print megabytes. Only
+ * verdicts that a rerun would reproduce are stored: accepted, wrong answer,
+ * compilation and runtime errors; time limits, queue states and sandbox
+ * errors are always rerun. Identical submissions that arrive while the first
+ * is still running wait for its result instead of going to the sandbox.
+ */
+@Service
+public class ExecutionResultCache {
+
+    // 3 accepted, 4 wrong answer, 6 compilation error, 7-12 runtime errors
+    private static final Set<Integer> CACHEABLE_STATUSES = Set.of(3, 4, 6, 7, 8, 9, 10, 11, 12);
+
+    private final long maxBytes;
+    private final long maxEntryBytes;
+    private final long ttlMillis;
+    private final LinkedHashMap<String, Cached> entries = new LinkedHashMap<>(256, 0.75f, true);
+    private final Map<String, CompletableFuture<ExecutionResult>> inFlight = new ConcurrentHashMap<>();
+    private long bytes;
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder coalesced = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+    public ExecutionResultCache(
+            @Value("${execution.cache.max-bytes:67108864}") long maxBytes,
+            @Value("${execution.cache.max-entry-bytes:262144}") long maxEntryBytes,
+            @Value("${execution.cache.ttl-minutes:60}") long ttlMinutes) {
+        this.maxBytes = maxBytes;
+        this.maxEntryBytes = maxEntryBytes;
+        this.ttlMillis = TimeUnit.MINUTES.toMillis(ttlMinutes);
+    }
+
+    public ExecutionResult execute(ExecuteRequest req, String limits, Supplier<ExecutionResult> backend) {
+        String key = key(req.getLanguage(), req.getCode(), req.getStdin(), limits);
+        ExecutionResult cached = lookup(key);
+        if (cached != null) {
+            hits.increment();
+            return copy(cached);
+        }
+
+        CompletableFuture<ExecutionResult> mine = new CompletableFuture<>();
+        CompletableFuture<ExecutionResult> running = inFlight.putIfAbsent(key, mine);
+        if (running != null) {
+            coalesced.increment();
+            try {
+                return copy(running.join());
+            } catch (CompletionException e) {
+                throw e.getCause() instanceof RuntimeException re ? re : e;
+            }
+        }
+
+        misses.increment();
+        try {
+            ExecutionResult result = backend.get();
+            if (result != null && CACHEABLE_STATUSES.contains(result.getStatusId())) {
+                store(key, copy(result));
+            }
+            mine.complete(result);
+            return result;
+        } catch (RuntimeException e) {
+            mine.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(key, mine);
+        }
+    }
+
+    public Map<String, Object> stats() {
+        long hitCount = hits.sum();
+        long coalescedCount = coalesced.sum();
+        long missCount = misses.sum();
+        long total = hitCount + coalescedCount + missCount;
+        Map<String, Object> stats = new LinkedHashMap<>();
+        synchronized (entries) {
+            stats.put("entries", entries.size());
+            stats.put("bytes", bytes);
+        }
+        stats.put("maxBytes", maxBytes);
+        stats.put("hits", hitCount);
+        stats.put("coalesced", coalescedCount);
+        stats.put("misses", missCount);
+        stats.put("evictions", evictions.sum());
+        stats.put("hitRate", total == 0 ? 0.0 : (double) (hitCount + coalescedCount) / total);
+        return stats;
+    }
+
+    public void invalidateAll() {
+        synchronized (entries) {
+            entries.clear();
+            bytes = 0;
+        }
+    }
+
+    static String key(String language, String code, String stdin, String limits) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            // Length-prefix each part so ("ab", "c") and ("a", "bc") hash differently
+            for (String part : new String[] { language, code, stdin, limits }) {
+                byte[] bytes = part == null ? new byte[0] : part.getBytes(StandardCharsets.UTF_8);
+                digest.update((bytes.length + ":").getBytes(StandardCharsets.US_ASCII));
+                digest.update(bytes);
+            }
+            return HexFormat.of().formatHex(digest.digest());
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private ExecutionResult lookup(String key) {
+        synchronized (entries) {
+            Cached cached = entries.get(key);
+            if (cached == null) {
+                return null;
+            }
+            if (System.currentTimeMillis() - cached.storedAt > ttlMillis) {
+                entries.remove(key);
+                bytes -= cached.size;
+                return null;
+            }
+            return cached.result;
+        }
+    }
+
+    private void store(String key, ExecutionResult result) {
+        long size = estimateSize(result);
+        if (size > maxEntryBytes) {
+            return;
+        }
+        synchronized (entries) {
+            Cached previous = entries.put(key, new Cached(result, size, System.currentTimeMillis()));
+            bytes += size - (previous == null ? 0 : previous.size);
+            Iterator<Cached> eldest = entries.values().iterator();
+            while (bytes > maxBytes && eldest.hasNext()) {
+                bytes -= eldest.next().size;
+                eldest.remove();
+                evictions.increment();
+            }
+        }
+    }
+
+    // Callers may mutate what they get back, so the stored result is never handed out
+    private static ExecutionResult copy(ExecutionResult r) {
+        return r == null ? null : new ExecutionResult(r.getStdout(), r.getStderr(), r.getCompileOutput(),
+                r.getStatusId(), r.getStatus(), r.getTimeSeconds(), r.getMemoryKb(), r.getBackend());
+    }
+
+    // Output strings dominate; two bytes per char plus a fixed overhead is close enough
+    private static long estimateSize(ExecutionResult result) {
+        long size = 128;
+        for (String text : new String[] { result.getStdout(), result.getStderr(), result.getCompileOutput(), result.getStatus() }) {
+            size += text == null ? 0 : 40 + 2L * text.length();
+        }
+        return size;
+    }
+
+    private record Cached(ExecutionResult result, long size, long storedAt) { }
+}
@@ -0,0 +1,24 @@
+package com.learnforge.dto;
+
+import lombok.Data;
+
+/**
+ * State of an asynchronous execution, as returned by {@code GET /execute/submissions/{token}}
+ * and pushed to {@code /topic/execute/{token}} when it changes.
+ */
+@Data
+public class ExecutionSubmission {
+
+    public enum Priority { ARENA, PRACTICE }
+
+    public enum State { QUEUED, RUNNING, DONE, FAILED }
+
+    private String token;
+    private String userId;
+    private Priority priority;
+    private State state;
+    private long submittedAt;
+    private Long finishedAt;
+    private ExecutionResult result;
+    private String error;
+}
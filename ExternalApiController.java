@@ -1,123 +1,102 @@
 package com.learnforge.controller;
 
+import com.learnforge.service.GitHubProfileCache;
+import com.learnforge.service.HomeFeedCache;
+import com.learnforge.service.UpstreamClient;
+import org.springframework.http.CacheControl;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
-import org.springframework.web.client.RestTemplate;
-import java.util.*;
+import java.io.IOException;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
 
 @RestController
 @RequestMapping("/external")
 @CrossOrigin(origins = {"http://localhost:3000", "http://localhost:5173"})
 public class ExternalApiController {
 
-    private final RestTemplate restTemplate = new RestTemplate();
+    private final UpstreamClient upstreams;
+    private final HomeFeedCache homeFeed;
+    private final GitHubProfileCache gitHub;
 
-    @GetMapping("/dev-articles")
-    public ResponseEntity<?> getDevArticles() {
-        try {
-            String url = "https://dev.to/api/articles?tag=programming&per_page=6";
-            Object response = restTemplate.getForObject(url, Object.class);
-            return ResponseEntity.ok(response);
-        } catch (Exception e) {
-            // Return mock data on failure
-            List<Map<String, Object>> mockArticles = new ArrayList<>();
-            for (int i = 1; i <= 6; i++) {
-                Map<String, Object> article = new HashMap<>();
-                article.put("id", i);
-                article.put("title", "Programming Article " + i);
-                article.put("description", "Learn about programming concepts");
-                article.put("url", "https://dev.to");
-                article.put("public_reactions_count", 100 + i * 10);
-                article.put("comments_count", 10 + i);
-                article.put("reading_time_minutes", 5);
-                article.put("readable_publish_date", "Oct 3");
-
-                Map<String, Object> user = new HashMap<>();
-                user.put("name", "Developer " + i);
-                user.put("profile_image_90", "https://via.placeholder.com/90");
-                article.put("user", user);
+    public ExternalApiController(UpstreamClient upstreams, HomeFeedCache homeFeed, GitHubProfileCache gitHub) {
+        this.upstreams = upstreams;
+        this.homeFeed = homeFeed;
+        this.gitHub = gitHub;
+    }
 
-                mockArticles.add(article);
-            }
-            return ResponseEntity.ok(mockArticles);
-        }
+    @GetMapping("/dev-articles")
+    public ResponseEntity<byte[]> getDevArticles() {
+        return feed(homeFeed.articles());
     }
 
     @GetMapping("/trending-repos")
-    public ResponseEntity<?> getTrendingRepos() {
-        try {
-            String url = "https://gh-trending-api.herokuapp.com/repositories?since=daily&spoken_language_code=en";
-            Object response = restTemplate.getForObject(url, Object.class);
-            return ResponseEntity.ok(response);
-        } catch (Exception e) {
-            // Return mock data on failure
-            List<Map<String, Object>> mockRepos = new ArrayList<>();
-            String[] langs = {"JavaScript", "Python", "Java", "TypeScript", "Go"};
-
-            for (int i = 0; i < 5; i++) {
-                Map<String, Object> repo = new HashMap<>();
-                repo.put("author", "developer" + (i + 1));
-                repo.put("name", "awesome-project-" + (i + 1));
-                repo.put("url", "https://github.com");
-                repo.put("description", "An awesome open source project");
-                repo.put("language", langs[i]);
-                repo.put("stars", 10000 + i * 1000);
-                repo.put("forks", 1000 + i * 100);
-                repo.put("currentPeriodStars", 100 + i * 10);
-                mockRepos.add(repo);
-            }
-            return ResponseEntity.ok(mockRepos);
-        }
+    public ResponseEntity<byte[]> getTrendingRepos() {
+        return feed(homeFeed.trendingRepos());
     }
 
     @GetMapping("/github-user/{username}")
     public ResponseEntity<?> getGithubUser(@PathVariable String username) {
-        try {
-            String url = "https://api.github.com/users/" + username;
-            Object response = restTemplate.getForObject(url, Object.class);
-            return ResponseEntity.ok(response);
-        } catch (Exception e) {
-            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
-                    .body(Map.of("error", "GitHub API unavailable"));
-        }
+        return github(() -> gitHub.user(username));
     }
 
     @GetMapping("/github-repos/{username}")
     public ResponseEntity<?> getGithubRepos(@PathVariable String username) {
-        try {
-            String url = "https://api.github.com/users/" + username + "/repos?sort=updated&per_page=5";
-            Object response = restTemplate.getForObject(url, Object.class);
-            return ResponseEntity.ok(response);
-        } catch (Exception e) {
-            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
-                    .body(Map.of("error", "GitHub API unavailable"));
-        }
+        return github(() -> gitHub.repos(username));
+    }
+
+    // ✅ GET - Profile and recent repos in one response: {"user": ..., "repos": [...]}
+    @GetMapping("/github/{username}")
+    public ResponseEntity<?> getGithubProfile(@PathVariable String username) {
+        return github(() -> gitHub.profile(username));
     }
 
     @GetMapping("/trending-devs")
-    public ResponseEntity<?> getTrendingDevs() {
-        try {
-            String reposUrl = "https://gh-trending-api.herokuapp.com/repositories?since=daily&spoken_language_code=en";
-            Object response = restTemplate.getForObject(reposUrl, Object.class);
-            return ResponseEntity.ok(response);
-        } catch (Exception e) {
-            return ResponseEntity.ok(new ArrayList<>());
-        }
+    public ResponseEntity<byte[]> getTrendingDevs() {
+        return ResponseEntity.ok().contentType(MediaType.APPLICATION_JSON).body(homeFeed.trendingDevs());
     }
 
     @GetMapping("/programming-meme")
-    public ResponseEntity<?> getProgrammingMeme() {
+    public ResponseEntity<byte[]> getProgrammingMeme() {
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_JSON)
+                .cacheControl(CacheControl.noStore())
+                .body(homeFeed.nextMeme());
+    }
+
+    @GetMapping("/upstreams/stats")
+    public ResponseEntity<Map<String, Object>> getUpstreamStats() {
+        return ResponseEntity.ok(upstreams.stats());
+    }
+
+    // Feeds only change on the refresher's schedule, so browsers may reuse them briefly
+    private static ResponseEntity<byte[]> feed(HomeFeedCache.Feed feed) {
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_JSON)
+                .cacheControl(CacheControl.maxAge(60, TimeUnit.SECONDS))
+                .header("X-Feed-Fetched-At", String.valueOf(feed.fetchedAt()))
+                .body(feed.json());
+    }
+
+    private interface GitHubLookup {
+        byte[] load() throws IOException;
+    }
+
+    private static ResponseEntity<?> github(GitHubLookup lookup) {
         try {
-            String url = "https://meme-api.com/gimme/ProgrammerHumor";
-            Object response = restTemplate.getForObject(url, Object.class);
-            return ResponseEntity.ok(response);
+            byte[] json = lookup.load();
+            if (json == null) {
+                return ResponseEntity.status(HttpStatus.NOT_FOUND)
+                        .body(Map.of("error", "GitHub user not found"));
+            }
+            return ResponseEntity.ok().contentType(MediaType.APPLICATION_JSON).body(json);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
         } catch (Exception e) {
-            return ResponseEntity.ok(Map.of(
-                    "title", "Programming Humor",
-                    "url", "https://reddit.com/r/ProgrammerHumor",
-                    "postLink", "https://reddit.com/r/ProgrammerHumor"
-            ));
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                    .body(Map.of("error", "GitHub API unavailable"));
         }
     }
 }
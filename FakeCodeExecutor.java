@@ -0,0 +1,53 @@
+package com.learnforge.service;
+
+import com.learnforge.dto.ExecuteRequest;
+import com.learnforge.dto.ExecutionResult;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Service;
+
+/**
+ * In-process {@link CodeExecutor} for local development and tests
+ * ({@code execution.backend=fake}).
+ * <p>
+ * Nothing is compiled or run: stdout echoes stdin, code containing
+ * {@code "COMPILE_ERROR"} or {@code "RUNTIME_ERROR"} produces that verdict, and
+ * every run takes {@code execution.fake.latency-ms}.
+ */
+@Service
+@ConditionalOnProperty(name = "execution.backend", havingValue = "fake")
+public class FakeCodeExecutor implements CodeExecutor {
+
+    private final long latencyMillis;
+
+    public FakeCodeExecutor(@Value("${execution.fake.latency-ms:20}") long latencyMillis) {
+        this.latencyMillis = latencyMillis;
+    }
+
+    @Override
+    public ExecutionResult execute(ExecuteRequest request) {
+        try {
+            Thread.sleep(latencyMillis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return ExecutionResult.internalError("Interrupted", name());
+        }
+        String code = request.getCode() == null ? "" : request.getCode();
+        double time = latencyMillis / 1000.0;
+        if (code.contains("COMPILE_ERROR")) {
+            return new ExecutionResult(null, null, "fake compilation error",
+                    ExecutionResult.COMPILATION_ERROR, "Compilation Error", null, null, name());
+        }
+        if (code.contains("RUNTIME_ERROR")) {
+            return new ExecutionResult(null, "fake runtime error", null,
+                    ExecutionResult.RUNTIME_ERROR, "Runtime Error (NZEC)", time, 1024L, name());
+        }
+        return new ExecutionResult(request.getStdin(), null, null,
+                ExecutionResult.ACCEPTED, "Accepted", time, 1024L, name());
+    }
+
+    @Override
+    public String name() {
+        return "fake";
+    }
+}
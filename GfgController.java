@@ -1,27 +1,26 @@
 package com.learnforge.controller;
-import com.learnforge.service.GfgService;
+import com.learnforge.service.ProfileMetricsService;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 import com.learnforge.dto.GfgMetricsDto;
-import com.learnforge.service.GfgService;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
 @RestController
 @RequestMapping("/gfg") // Changed to /api/gfg for consistency
 public class GfgController {
-    private final GfgService service;
-    public GfgController(GfgService service) { this.service = service; }
+    private final ProfileMetricsService metrics;
+    public GfgController(ProfileMetricsService metrics) { this.metrics = metrics; }
 
     @GetMapping("/{handle}")
     public ResponseEntity<GfgMetricsDto> get(@PathVariable String handle) throws Exception {
-        return ResponseEntity.ok(service.getMetricsCached(handle));
+        return ResponseEntity.ok(metrics.gfg().get(handle));
     }
 
     @PostMapping("/sync/{handle}")
     public ResponseEntity<GfgMetricsDto> sync(@PathVariable String handle) throws Exception {
-        // Protect this endpoint (auth/rate-limit) in production
-        return ResponseEntity.ok(service.forceRefresh(handle));
+        // Rate-limited per handle and per platform; returns the cached metrics when throttled, 429 if there are none
+        return ResponseEntity.ok(metrics.gfg().sync(handle));
     }
 }
 
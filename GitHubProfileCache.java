@@ -0,0 +1,233 @@
+package com.learnforge.service;
+
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.*;
+import java.util.regex.Pattern;
+
+/**
+ * GitHub profiles and recent repos by username, as the raw JSON GitHub sent.
+ * <p>
+ * Entries are served as is for {@code github.cache.fresh-seconds}; after that
+ * they are revalidated with {@code If-None-Match}, so an unchanged profile
+ * costs a 304 and no body. Concurrent lookups of the same resource share one
+ * call. The budget from GitHub's {@code X-RateLimit-*} headers is tracked and
+ * spent carefully: revalidations are spaced so the remaining calls last until
+ * the window resets, nothing is spent below {@code github.rate-limit.reserve},
+ * and while throttled (or when GitHub fails) the stale copy is served. Stale
+ * copies are kept for {@code github.cache.max-stale-hours}. Unknown users are
+ * cached like any other answer.
+ */
+@Service
+public class GitHubProfileCache {
+
+    // GitHub logins: alphanumerics and single hyphens, at most 39 characters
+    private static final Pattern USERNAME = Pattern.compile("[A-Za-z0-9](?:-?[A-Za-z0-9]){0,38}");
+
+    record Resource(byte[] json, String etag, long fetchedAt) {
+
+        boolean missing() {
+            return json == null;
+        }
+    }
+
+    private final UpstreamClient upstreams;
+    private final long freshMillis;
+    private final int reserve;
+    private final String token;
+    private final BoundedCache<String, Resource> resources;
+    private final Map<String, CompletableFuture<Resource>> inFlight = new ConcurrentHashMap<>();
+    private final ExecutorService fetchers = Executors.newVirtualThreadPerTaskExecutor();
+
+    // Budget as of GitHub's last X-RateLimit-* headers, less calls granted since; remaining < 0 means not yet known
+    private int remaining = -1;
+    private long resetAt;
+    private long nextRevalidationAt;
+
+    public GitHubProfileCache(
+            UpstreamClient upstreams,
+            @Value("${github.cache.fresh-seconds:300}") long freshSeconds,
+            @Value("${github.cache.max-stale-hours:24}") long maxStaleHours,
+            @Value("${github.cache.max-entries:5000}") int maxEntries,
+            @Value("${github.rate-limit.reserve:5}") int reserve,
+            @Value("${github.token:}") String token) {
+        this.upstreams = upstreams;
+        this.freshMillis = TimeUnit.SECONDS.toMillis(freshSeconds);
+        this.reserve = Math.max(0, reserve);
+        this.token = token;
+        this.resources = new BoundedCache<>(maxEntries, TimeUnit.HOURS.toMillis(maxStaleHours));
+    }
+
+    /** The user's profile JSON, or null if GitHub has no such user. */
+    public byte[] user(String username) throws IOException {
+        return load(userPath(validate(username))).json();
+    }
+
+    /** The user's five most recently updated repos as a JSON array, or null if GitHub has no such user. */
+    public byte[] repos(String username) throws IOException {
+        return load(reposPath(validate(username))).json();
+    }
+
+    /** {@code {"user": ..., "repos": [...]}}, fetched in parallel, or null if GitHub has no such user. */
+    public byte[] profile(String username) throws IOException {
+        String name = validate(username);
+        Future<Resource> repos = fetchers.submit(() -> load(reposPath(name)));
+        Resource user = load(userPath(name));
+        if (user.missing()) {
+            return null;
+        }
+        Resource repoList;
+        try {
+            repoList = repos.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while loading repos for " + name);
+        } catch (ExecutionException e) {
+            throw e.getCause() instanceof IOException io ? io : new IOException(e.getCause());
+        }
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream(user.json().length + 4096);
+        out.writeBytes("{\"user\":".getBytes(StandardCharsets.US_ASCII));
+        out.writeBytes(user.json());
+        out.writeBytes(",\"repos\":".getBytes(StandardCharsets.US_ASCII));
+        out.writeBytes(repoList.missing() ? "[]".getBytes(StandardCharsets.US_ASCII) : repoList.json());
+        out.write('}');
+        return out.toByteArray();
+    }
+
+    private Resource load(String path) throws IOException {
+        Resource cached = resources.get(path);
+        long now = System.currentTimeMillis();
+        if (cached != null && now - cached.fetchedAt() < freshMillis) {
+            return cached;
+        }
+
+        CompletableFuture<Resource> mine = new CompletableFuture<>();
+        CompletableFuture<Resource> running = inFlight.putIfAbsent(path, mine);
+        if (running != null) {
+            try {
+                return running.join();
+            } catch (CompletionException e) {
+                if (cached != null) {
+                    return cached;
+                }
+                throw e.getCause() instanceof IOException io ? io : new IOException(e.getCause());
+            }
+        }
+
+        // Budget is only spent by the caller that actually goes to GitHub
+        try {
+            if (cached != null && !mayRevalidate(now)) {
+                mine.complete(cached);
+                return cached;
+            }
+            if (cached == null && !mayFetch(now)) {
+                throw new UpstreamClient.UpstreamException("GitHub rate limit reserve reached");
+            }
+            Resource fresh = fetch(path, cached);
+            resources.put(path, fresh);
+            mine.complete(fresh);
+            return fresh;
+        } catch (IOException | RuntimeException e) {
+            mine.completeExceptionally(e);
+            if (cached != null) {
+                System.err.println("❌ GitHub revalidation failed for " + path + ", serving stale copy: " + e.getMessage());
+                return cached;
+            }
+            throw e;
+        } finally {
+            inFlight.remove(path, mine);
+        }
+    }
+
+    private Resource fetch(String path, Resource cached) throws IOException {
+        Map<String, String> headers = new HashMap<>();
+        if (token != null && !token.isBlank()) {
+            headers.put("Authorization", "Bearer " + token);
+        }
+        if (cached != null && cached.etag() != null) {
+            headers.put("If-None-Match", cached.etag());
+        }
+        HttpResponse<byte[]> response = upstreams.get(UpstreamClient.GITHUB, path, headers);
+        updateBudget(response);
+
+        int status = response.statusCode();
+        long now = System.currentTimeMillis();
+        if (status == 304 && cached != null) {
+            return new Resource(cached.json(), cached.etag(), now);
+        }
+        if (status == 404) {
+            return new Resource(null, null, now);
+        }
+        if (status / 100 == 2) {
+            return new Resource(response.body(), response.headers().firstValue("ETag").orElse(null), now);
+        }
+        throw new UpstreamClient.UpstreamException("GitHub returned HTTP " + status + " for " + path);
+    }
+
+    private synchronized void updateBudget(HttpResponse<?> response) {
+        long now = System.currentTimeMillis();
+        response.headers().firstValue("X-RateLimit-Remaining").ifPresent(v -> remaining = Integer.parseInt(v.trim()));
+        response.headers().firstValue("X-RateLimit-Reset").ifPresent(v -> resetAt = Long.parseLong(v.trim()) * 1000);
+        // Secondary limits only say how long to back off
+        response.headers().firstValue("Retry-After").ifPresent(v -> {
+            remaining = 0;
+            resetAt = Math.max(resetAt, now + TimeUnit.SECONDS.toMillis(Long.parseLong(v.trim())));
+        });
+    }
+
+    // Cold lookups may spend anything above the reserve
+    private synchronized boolean mayFetch(long now) {
+        if (remaining < 0 || now >= resetAt) {
+            return true;
+        }
+        if (remaining <= reserve) {
+            return false;
+        }
+        remaining--;
+        return true;
+    }
+
+    // Revalidations have a stale copy to fall back on, so they are spread across the window
+    private synchronized boolean mayRevalidate(long now) {
+        if (remaining < 0 || now >= resetAt) {
+            return true;
+        }
+        int spare = remaining - reserve;
+        if (spare <= 0 || now < nextRevalidationAt) {
+            return false;
+        }
+        nextRevalidationAt = now + (resetAt - now) / spare;
+        remaining--;
+        return true;
+    }
+
+    private static String validate(String username) {
+        if (username == null || !USERNAME.matcher(username).matches()) {
+            throw new IllegalArgumentException("Invalid GitHub username");
+        }
+        return username.toLowerCase(Locale.ROOT);
+    }
+
+    private static String userPath(String name) {
+        return "/users/" + name;
+    }
+
+    private static String reposPath(String name) {
+        return "/users/" + name + "/repos?sort=updated&per_page=5";
+    }
+
+    @PreDestroy
+    void shutdown() {
+        fetchers.shutdownNow();
+    }
+}
@@ -0,0 +1,183 @@
+package com.learnforge.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.*;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Pre-serialised homepage feeds: dev.to articles, trending repos and a pool
+ * of programming memes.
+ * <p>
+ * These are the same for every user, so a background thread fetches them
+ * through {@link UpstreamClient} and requests only ever read memory. Articles
+ * and trending repos are refreshed every {@code home-feed.refresh-minutes}, and
+ * the meme pool ({@code home-feed.meme-pool-size} posts) every
+ * {@code home-feed.meme-refresh-minutes}; each meme request takes the next post
+ * from the pool. A failed or malformed refresh keeps the last good payload, and
+ * the placeholder data is served only until the first refresh succeeds.
+ */
+@Service
+public class HomeFeedCache {
+
+    public record Feed(byte[] json, long fetchedAt, boolean placeholder) { }
+
+    private final UpstreamClient upstreams;
+    private final ObjectMapper objectMapper;
+    private final int memePoolSize;
+    private final ScheduledExecutorService scheduler;
+    private final AtomicInteger memeCursor = new AtomicInteger();
+    private volatile Feed articles;
+    private volatile Feed trendingRepos;
+    private volatile List<byte[]> memes;
+    private final byte[] emptyList;
+
+    public HomeFeedCache(
+            UpstreamClient upstreams,
+            ObjectMapper objectMapper,
+            @Value("${home-feed.refresh-minutes:10}") long refreshMinutes,
+            @Value("${home-feed.meme-refresh-minutes:30}") long memeRefreshMinutes,
+            @Value("${home-feed.meme-pool-size:25}") int memePoolSize) {
+        this.upstreams = upstreams;
+        this.objectMapper = objectMapper;
+        this.memePoolSize = Math.max(1, Math.min(50, memePoolSize));
+        this.articles = new Feed(serialize(placeholderArticles()), 0, true);
+        this.trendingRepos = new Feed(serialize(placeholderRepos()), 0, true);
+        this.memes = List.of(serialize(Map.of(
+                "title", "Programming Humor",
+                "url", "https://reddit.com/r/ProgrammerHumor",
+                "postLink", "https://reddit.com/r/ProgrammerHumor")));
+        this.emptyList = serialize(List.of());
+
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "home-feed-refresher");
+            t.setDaemon(true);
+            return t;
+        });
+        scheduler.scheduleWithFixedDelay(this::refreshFeeds, 0, refreshMinutes, TimeUnit.MINUTES);
+        scheduler.scheduleWithFixedDelay(this::refreshMemes, 0, memeRefreshMinutes, TimeUnit.MINUTES);
+    }
+
+    public Feed articles() {
+        return articles;
+    }
+
+    public Feed trendingRepos() {
+        return trendingRepos;
+    }
+
+    // Same upstream as trending repos, but with no made-up developers when it has never answered
+    public byte[] trendingDevs() {
+        Feed repos = trendingRepos;
+        return repos.placeholder() ? emptyList : repos.json();
+    }
+
+    public byte[] nextMeme() {
+        List<byte[]> pool = memes;
+        return pool.get(Math.floorMod(memeCursor.getAndIncrement(), pool.size()));
+    }
+
+    private void refreshFeeds() {
+        try {
+            Object fetched = upstreams.getJson(UpstreamClient.DEV_TO, "/api/articles?tag=programming&per_page=6");
+            if (fetched instanceof List<?> list && !list.isEmpty()) {
+                articles = new Feed(objectMapper.writeValueAsBytes(list), System.currentTimeMillis(), false);
+            }
+        } catch (Exception e) {
+            System.err.println("❌ Article feed refresh failed, keeping last good copy: " + e.getMessage());
+        }
+        try {
+            Object fetched = upstreams.getJson(UpstreamClient.TRENDING, "/repositories?since=daily&spoken_language_code=en");
+            if (fetched instanceof List<?> list && !list.isEmpty()) {
+                trendingRepos = new Feed(objectMapper.writeValueAsBytes(list), System.currentTimeMillis(), false);
+            }
+        } catch (Exception e) {
+            System.err.println("❌ Trending feed refresh failed, keeping last good copy: " + e.getMessage());
+        }
+    }
+
+    private void refreshMemes() {
+        try {
+            Object fetched = upstreams.getJson(UpstreamClient.MEME, "/gimme/ProgrammerHumor/" + memePoolSize);
+            if (!(fetched instanceof Map<?, ?> body) || !(body.get("memes") instanceof List<?> posts)) {
+                return;
+            }
+            List<byte[]> pool = new ArrayList<>(posts.size());
+            for (Object post : posts) {
+                // The homepage is shown to everyone; skip anything flagged
+                if (post instanceof Map<?, ?> meme && !Boolean.TRUE.equals(meme.get("nsfw"))
+                        && !Boolean.TRUE.equals(meme.get("spoiler"))) {
+                    pool.add(objectMapper.writeValueAsBytes(meme));
+                }
+            }
+            if (!pool.isEmpty()) {
+                Collections.shuffle(pool);
+                memes = List.copyOf(pool);
+            }
+        } catch (Exception e) {
+            System.err.println("❌ Meme pool refresh failed, keeping last good pool: " + e.getMessage());
+        }
+    }
+
+    private byte[] serialize(Object value) {
+        try {
+            return objectMapper.writeValueAsBytes(value);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static List<Map<String, Object>> placeholderArticles() {
+        List<Map<String, Object>> mockArticles = new ArrayList<>();
+        for (int i = 1; i <= 6; i++) {
+            Map<String, Object> article = new HashMap<>();
+            article.put("id", i);
+            article.put("title", "Programming Article " + i);
+            article.put("description", "Learn about programming concepts");
+            article.put("url", "https://dev.to");
+            article.put("public_reactions_count", 100 + i * 10);
+            article.put("comments_count", 10 + i);
+            article.put("reading_time_minutes", 5);
+            article.put("readable_publish_date", "Oct 3");
+
+            Map<String, Object> user = new HashMap<>();
+            user.put("name", "Developer " + i);
+            user.put("profile_image_90", "https://via.placeholder.com/90");
+            article.put("user", user);
+
+            mockArticles.add(article);
+        }
+        return mockArticles;
+    }
+
+    private static List<Map<String, Object>> placeholderRepos() {
+        List<Map<String, Object>> mockRepos = new ArrayList<>();
+        String[] langs = {"JavaScript", "Python", "Java", "TypeScript", "Go"};
+
+        for (int i = 0; i < 5; i++) {
+            Map<String, Object> repo = new HashMap<>();
+            repo.put("author", "developer" + (i + 1));
+            repo.put("name", "awesome-project-" + (i + 1));
+            repo.put("url", "https://github.com");
+            repo.put("description", "An awesome open source project");
+            repo.put("language", langs[i]);
+            repo.put("stars", 10000 + i * 1000);
+            repo.put("forks", 1000 + i * 100);
+            repo.put("currentPeriodStars", 100 + i * 10);
+            mockRepos.add(repo);
+        }
+        return mockRepos;
+    }
+
+    @PreDestroy
+    void shutdown() {
+        scheduler.shutdownNow();
+    }
+}
@@ -0,0 +1,124 @@
+package com.learnforge.service;
+
+import com.learnforge.dto.ExecuteRequest;
+import com.learnforge.dto.ExecutionResult;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnExpression;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.*;
+
+/**
+ * {@link CodeExecutor} backed by {@link Judge0Service}, with results going
+ * through {@link ExecutionResultCache}.
+ * <p>
+ * {@code Judge0Service} only submits one program at a time, and the Judge0 URL
+ * and credentials live inside it, so a batch is sent as parallel single
+ * submissions rather than through Judge0's {@code /submissions/batch}; at most
+ * {@code execution.judge0.max-parallel} are in flight across all batches.
+ */
+@Service
+// Also the fallback for the local backend
+@ConditionalOnExpression("'${execution.backend:judge0}' == 'judge0' or '${execution.backend:judge0}' == 'local'")
+public class Judge0CodeExecutor implements CodeExecutor {
+
+    private final Judge0Service judge0Service;
+    private final ExecutionResultCache resultCache;
+    private final Semaphore permits;
+    private final ExecutorService senders = Executors.newVirtualThreadPerTaskExecutor();
+
+    public Judge0CodeExecutor(
+            Judge0Service judge0Service,
+            ExecutionResultCache resultCache,
+            @Value("${execution.judge0.max-parallel:16}") int maxParallel) {
+        this.judge0Service = judge0Service;
+        this.resultCache = resultCache;
+        this.permits = new Semaphore(maxParallel);
+    }
+
+    @Override
+    public ExecutionResult execute(ExecuteRequest request) {
+        return resultCache.execute(request, null, () -> submit(request));
+    }
+
+    @Override
+    public List<ExecutionResult> executeBatch(List<ExecuteRequest> requests) {
+        List<Future<ExecutionResult>> futures = new ArrayList<>(requests.size());
+        for (ExecuteRequest request : requests) {
+            futures.add(senders.submit(() -> execute(request)));
+        }
+        List<ExecutionResult> results = new ArrayList<>(requests.size());
+        for (Future<ExecutionResult> future : futures) {
+            try {
+                results.add(future.get());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                results.add(ExecutionResult.internalError("Interrupted", name()));
+            } catch (ExecutionException e) {
+                results.add(ExecutionResult.internalError(String.valueOf(e.getCause().getMessage()), name()));
+            }
+        }
+        return results;
+    }
+
+    @Override
+    public String name() {
+        return "judge0";
+    }
+
+    private ExecutionResult submit(ExecuteRequest request) {
+        Map<String, Object> raw;
+        try {
+            permits.acquire();
+            try {
+                raw = judge0Service.execute(request);
+            } finally {
+                permits.release();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return ExecutionResult.internalError("Interrupted", name());
+        } catch (Exception e) {
+            return ExecutionResult.internalError("Execution failed: " + e.getMessage(), name());
+        }
+        return raw == null ? ExecutionResult.internalError("No response from Judge0", name()) : toResult(raw);
+    }
+
+    ExecutionResult toResult(Map<String, Object> raw) {
+        ExecutionResult result = new ExecutionResult();
+        result.setStdout(string(raw.get("stdout")));
+        result.setStderr(string(raw.get("stderr")));
+        result.setCompileOutput(string(raw.get("compile_output")));
+        if (raw.get("status") instanceof Map<?, ?> status) {
+            result.setStatusId(status.get("id") instanceof Number id ? id.intValue() : 0);
+            result.setStatus(string(status.get("description")));
+        } else {
+            result.setStatus("Unknown");
+        }
+        if (raw.get("time") != null) {
+            try {
+                result.setTimeSeconds(Double.valueOf(raw.get("time").toString()));
+            } catch (NumberFormatException ignored) {
+                // Judge0 leaves time empty for compile errors
+            }
+        }
+        if (raw.get("memory") instanceof Number memory) {
+            result.setMemoryKb(memory.longValue());
+        }
+        result.setBackend(name());
+        return result;
+    }
+
+    private static String string(Object value) {
+        return value == null ? null : value.toString();
+    }
+
+    @PreDestroy
+    void shutdown() {
+        senders.shutdownNow();
+    }
+}
@@ -0,0 +1,23 @@
+package com.learnforge.dto;
+
+import lombok.Data;
+
+import java.util.List;
+
+/**
+ * One program judged against many test cases, as sent to {@code POST /execute/judge}.
+ */
+@Data
+public class JudgeRequest {
+
+    private String language;
+    private String code;
+    private List<TestCase> testCases;
+    private boolean stopOnFirstFailure;
+
+    @Data
+    public static class TestCase {
+        private String input;
+        private String expectedOutput;
+    }
+}
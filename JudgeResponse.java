@@ -0,0 +1,33 @@
+package com.learnforge.dto;
+
+import lombok.Data;
+
+import java.util.List;
+
+/**
+ * Per-case verdicts for a {@link JudgeRequest}; {@code verdict} is the first
+ * non-accepted case verdict, or ACCEPTED when every case passed.
+ */
+@Data
+public class JudgeResponse {
+
+    public enum Verdict { ACCEPTED, WRONG_ANSWER, TIME_LIMIT, COMPILATION_ERROR, RUNTIME_ERROR, INTERNAL_ERROR, SKIPPED }
+
+    private Verdict verdict;
+    private int passed;
+    private int total;
+    private Double maxTimeSeconds;
+    private Long maxMemoryKb;
+    private String compileOutput;
+    private List<CaseResult> cases;
+
+    @Data
+    public static class CaseResult {
+        private int index;
+        private Verdict verdict;
+        private Double timeSeconds;
+        private Long memoryKb;
+        private String stdout;
+        private String stderr;
+    }
+}
@@ -1,24 +1,24 @@
 package com.learnforge.controller;
 
 import com.learnforge.dto.LeetCodeMetricsDto;
-import com.learnforge.service.LeetCodeService;
+import com.learnforge.service.ProfileMetricsService;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
 @RestController
 @RequestMapping("/leetcode")
 public class LeetCodeController {
-    private final LeetCodeService service;
-    public LeetCodeController(LeetCodeService service) { this.service = service; }
+    private final ProfileMetricsService metrics;
+    public LeetCodeController(ProfileMetricsService metrics) { this.metrics = metrics; }
 
     @GetMapping("/{handle}")
     public ResponseEntity<LeetCodeMetricsDto> get(@PathVariable String handle) throws Exception {
-        return ResponseEntity.ok(service.getMetricsCached(handle));
+        return ResponseEntity.ok(metrics.leetCode().get(handle));
     }
 
     @PostMapping("/sync/{handle}")
     public ResponseEntity<LeetCodeMetricsDto> sync(@PathVariable String handle) throws Exception {
-        // Protect this endpoint (auth/rate-limit) in production
-        return ResponseEntity.ok(service.forceRefresh(handle));
+        // Rate-limited per handle and per platform; returns the cached metrics when throttled, 429 if there are none
+        return ResponseEntity.ok(metrics.leetCode().sync(handle));
     }
 }
@@ -1,6 +1,10 @@
 package com.learnforge.controller;
 
 import com.learnforge.entity.Lesson;
+import com.learnforge.service.CourseAggregatesService;
+import com.learnforge.service.CourseCatalogCache;
+import com.learnforge.service.CourseOutlineService;
+import com.learnforge.service.CourseSearchIndex;
 import com.learnforge.service.LessonService;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.HttpStatus;
@@ -8,6 +12,7 @@ import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
 import java.util.List;
+import java.util.Set;
 
 @RestController
 @RequestMapping("/courses/{courseId}/lessons")
@@ -17,6 +22,18 @@ public class LessonController {
     @Autowired
     private LessonService lessonService;
 
+    @Autowired
+    private CourseCatalogCache catalogCache;
+
+    @Autowired
+    private CourseSearchIndex searchIndex;
+
+    @Autowired
+    private CourseOutlineService courseOutlineService;
+
+    @Autowired
+    private CourseAggregatesService courseAggregates;
+
     @GetMapping
     public ResponseEntity<List<Lesson>> getLessonsByCourse(@PathVariable Long courseId) {
         System.out.println("🎯 API: GET /courses/" + courseId + "/lessons");
@@ -24,6 +41,23 @@ public class LessonController {
         return ResponseEntity.ok(lessons);
     }
 
+    // Lessons with their resources in one call; cursor-paged, fields=a,b,c projects each lesson
+    @GetMapping("/outline")
+    public ResponseEntity<CourseOutlineService.OutlinePage> getCourseOutline(
+            @PathVariable Long courseId,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "20") int size,
+            @RequestParam(required = false) Set<String> fields,
+            @RequestParam(defaultValue = "true") boolean resources) {
+
+        System.out.println("🎯 API: GET /courses/" + courseId + "/lessons/outline");
+        try {
+            return ResponseEntity.ok(courseOutlineService.outline(courseId, cursor, size, fields, resources));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        }
+    }
+
     @GetMapping("/{lessonId}")
     public ResponseEntity<Lesson> getLessonById(
             @PathVariable Long courseId,
@@ -41,6 +75,9 @@ public class LessonController {
 
         System.out.println("🎯 API: POST /courses/" + courseId + "/lessons");
         Lesson created = lessonService.createLesson(courseId, lesson);
+        catalogCache.invalidate();
+        searchIndex.reindex(courseId);
+        courseAggregates.lessonCreated(courseId, created);
         return ResponseEntity.status(HttpStatus.CREATED).body(created);
     }
 
@@ -52,6 +89,9 @@ public class LessonController {
 
         System.out.println("🎯 API: PUT /courses/" + courseId + "/lessons/" + lessonId);
         Lesson updated = lessonService.updateLesson(lessonId, lessonDetails);
+        catalogCache.invalidate();
+        searchIndex.reindex(courseId);
+        courseAggregates.lessonChanged(courseId);
         return ResponseEntity.ok(updated);
     }
 
@@ -62,12 +102,15 @@ public class LessonController {
 
         System.out.println("🎯 API: DELETE /courses/" + courseId + "/lessons/" + lessonId);
         lessonService.deleteLesson(lessonId);
+        catalogCache.invalidate();
+        searchIndex.reindex(courseId);
+        courseAggregates.lessonChanged(courseId);
         return ResponseEntity.noContent().build();
     }
 
     @GetMapping("/count")
     public ResponseEntity<Long> countLessons(@PathVariable Long courseId) {
-        Long count = lessonService.countLessonsByCourseId(courseId);
+        Long count = courseAggregates.get(courseId).lessonCount();
         return ResponseEntity.ok(count);
     }
 
@@ -1,21 +1,33 @@
 package com.learnforge.controller;
 
+import com.learnforge.dto.LessonProgressEvent;
 import com.learnforge.entity.LessonProgress;
+import com.learnforge.service.LessonProgressPipeline;
 import com.learnforge.service.LessonProgressService;
+import com.learnforge.service.ProgressSummaryCache;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.RejectedExecutionException;
 
 @RestController
 @RequestMapping("/progress")
 public class LessonProgressController {
 
     private final LessonProgressService lessonProgressService;
+    private final LessonProgressPipeline lessonProgressPipeline;
+    private final ProgressSummaryCache progressSummaryCache;
 
-    public LessonProgressController(LessonProgressService lessonProgressService) {
+    public LessonProgressController(LessonProgressService lessonProgressService,
+                                    LessonProgressPipeline lessonProgressPipeline,
+                                    ProgressSummaryCache progressSummaryCache) {
         this.lessonProgressService = lessonProgressService;
+        this.lessonProgressPipeline = lessonProgressPipeline;
+        this.progressSummaryCache = progressSummaryCache;
     }
 
     /**
@@ -23,7 +35,7 @@ public class LessonProgressController {
      */
     @GetMapping("/users/{id}/dashboard")
     public ResponseEntity<List<LessonProgress>> getUserProgress(@PathVariable("id") String userId) {
-        List<LessonProgress> progressList = lessonProgressService.getProgressByUserId(userId);
+        List<LessonProgress> progressList = progressSummaryCache.getLessonProgress(userId);
         return ResponseEntity.ok(progressList);
     }
 
@@ -40,57 +52,83 @@ public class LessonProgressController {
     }
 
     /**
-     * Record video play event
+     * Queue a video play event
      */
-//    @PostMapping("/play")
-//    public ResponseEntity<LessonProgress> recordVideoPlay(
-//            @RequestParam String userId,
-//            @RequestParam Long lessonId) {
-//        LessonProgress progress = lessonProgressService.recordVideoPlay(userId, lessonId);
-//        return ResponseEntity.ok(progress);
-//    }
+    @PostMapping("/play")
+    public ResponseEntity<?> recordVideoPlay(
+            @RequestParam String userId,
+            @RequestParam Long lessonId) {
+        return apply(event(LessonProgressEvent.Type.PLAY, userId, lessonId));
+    }
 
     /**
-     * Record video pause event
+     * Queue a video pause event
      */
     @PostMapping("/pause")
-    public ResponseEntity<LessonProgress> recordVideoPause(
+    public ResponseEntity<?> recordVideoPause(
             @RequestParam String userId,
             @RequestParam Long lessonId,
             @RequestParam(required = false) String currentPosition) {
-        LessonProgress progress = lessonProgressService.recordVideoPause(userId, lessonId, currentPosition);
-        return ResponseEntity.ok(progress);
+        LessonProgressEvent event = event(LessonProgressEvent.Type.PAUSE, userId, lessonId);
+        event.setCurrentPosition(currentPosition);
+        return apply(event);
     }
 
     /**
-     * Mark lesson as completed
+     * Queue a lesson completed event
      */
     @PostMapping("/complete")
-    public ResponseEntity<LessonProgress> markLessonComplete(
+    public ResponseEntity<?> markLessonComplete(
             @RequestParam String userId,
             @RequestParam Long lessonId) {
-        LessonProgress progress = lessonProgressService.markLessonComplete(userId, lessonId);
-        return ResponseEntity.ok(progress);
+        return apply(event(LessonProgressEvent.Type.COMPLETE, userId, lessonId));
     }
 
     /**
-     * Update watch time
+     * Queue a watch time update
      */
     @PostMapping("/watch-time")
-    public ResponseEntity<LessonProgress> updateWatchTime(
+    public ResponseEntity<?> updateWatchTime(
             @RequestParam String userId,
             @RequestParam Long lessonId,
             @RequestParam Integer watchTimeSeconds) {
-        LessonProgress progress = lessonProgressService.updateWatchTime(userId, lessonId, watchTimeSeconds);
-        return ResponseEntity.ok(progress);
+        LessonProgressEvent event = event(LessonProgressEvent.Type.WATCH_TIME, userId, lessonId);
+        event.setWatchTimeSeconds(watchTimeSeconds);
+        return apply(event);
     }
-    @PostMapping("/play")
-    public ResponseEntity<LessonProgress> recordVideoPlay(
-            @RequestParam String userId,
-            @RequestParam Long lessonId) {
-        System.out.println(" Received play request: userId=" + userId + ", lessonId=" + lessonId);
-        LessonProgress progress = lessonProgressService.recordVideoPlay(userId, lessonId);
-        System.out.println(" Saved progress: " + progress.getId());
-        return ResponseEntity.ok(progress);
+
+    /**
+     * Queue several progress events in one request; they are applied asynchronously in order
+     */
+    @PostMapping("/events")
+    public ResponseEntity<?> recordEvents(@RequestBody List<LessonProgressEvent> events) {
+        try {
+            int accepted = lessonProgressPipeline.submitAll(events);
+            HttpStatus status = accepted == events.size() ? HttpStatus.ACCEPTED : HttpStatus.TOO_MANY_REQUESTS;
+            return ResponseEntity.status(status).body(Map.of("accepted", accepted, "received", events.size()));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        }
+    }
+
+    // Single-event endpoints go through the same per-user queue so they stay ordered with batches,
+    // and like batches they answer once the event is logged rather than after it is folded
+    private ResponseEntity<?> apply(LessonProgressEvent event) {
+        try {
+            lessonProgressPipeline.submit(event);
+            return ResponseEntity.status(HttpStatus.ACCEPTED).body(Map.of("accepted", 1, "received", 1));
+        } catch (RejectedExecutionException e) {
+            return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS).body(Map.of("accepted", 0, "received", 1));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        }
+    }
+
+    private LessonProgressEvent event(LessonProgressEvent.Type type, String userId, Long lessonId) {
+        LessonProgressEvent event = new LessonProgressEvent();
+        event.setType(type);
+        event.setUserId(userId);
+        event.setLessonId(lessonId);
+        return event;
     }
 }
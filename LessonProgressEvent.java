@@ -0,0 +1,18 @@
+package com.learnforge.dto;
+
+import lombok.Data;
+
+/**
+ * One client-side lesson progress event, as sent to {@code POST /progress/events}.
+ */
+@Data
+public class LessonProgressEvent {
+
+    public enum Type { PLAY, PAUSE, WATCH_TIME, COMPLETE }
+
+    private Type type;
+    private String userId;
+    private Long lessonId;
+    private String currentPosition;
+    private Integer watchTimeSeconds;
+}
@@ -0,0 +1,51 @@
+package com.learnforge.entity;
+
+import com.learnforge.dto.LessonProgressEvent;
+import jakarta.persistence.*;
+import lombok.Data;
+
+/**
+ * One lesson progress event as it was accepted, in the append-only
+ * {@code lesson_progress_events} log. The event columns are never changed;
+ * {@code processedAt} (and {@code error} if folding failed) is set once the
+ * event has been folded into {@link LessonProgress}. {@code owner} is the node
+ * that accepted the event and is the only one that replays it.
+ */
+@Data
+@Entity
+@Table(name = "lesson_progress_events", indexes = {
+        @Index(columnList = "processedAt"),
+        @Index(columnList = "owner, processedAt")
+})
+public class LessonProgressLogEntry {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, updatable = false)
+    private LessonProgressEvent.Type type;
+
+    @Column(nullable = false, updatable = false)
+    private String userId;
+
+    @Column(nullable = false, updatable = false)
+    private Long lessonId;
+
+    @Column(updatable = false)
+    private String currentPosition;
+
+    @Column(updatable = false)
+    private Integer watchTimeSeconds;
+
+    @Column(nullable = false, updatable = false)
+    private Long recordedAt;
+
+    @Column(nullable = false, updatable = false)
+    private String owner;
+
+    private Long processedAt;
+
+    private String error;
+}
@@ -0,0 +1,27 @@
+package com.learnforge.repository;
+
+import com.learnforge.entity.LessonProgressLogEntry;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.List;
+
+@Repository
+public interface LessonProgressLogRepository extends JpaRepository<LessonProgressLogEntry, Long> {
+
+    List<LessonProgressLogEntry> findByOwnerAndProcessedAtIsNullOrderByIdAsc(String owner);
+
+    @Transactional
+    @Modifying
+    @Query("UPDATE LessonProgressLogEntry e SET e.processedAt = :at, e.error = :error WHERE e.id = :id")
+    int markProcessed(@Param("id") Long id, @Param("at") long at, @Param("error") String error);
+
+    @Transactional
+    @Modifying
+    @Query("DELETE FROM LessonProgressLogEntry e WHERE e.processedAt < :before")
+    int deleteProcessedBefore(@Param("before") long before);
+}
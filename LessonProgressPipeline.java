@@ -0,0 +1,211 @@
+package com.learnforge.service;
+
+import com.learnforge.dto.LessonProgressEvent;
+import com.learnforge.entity.LessonProgress;
+import com.learnforge.entity.LessonProgressLogEntry;
+import com.learnforge.repository.LessonProgressLogRepository;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+
+/**
+ * Ordered, asynchronous fold of lesson progress events into {@link LessonProgress}.
+ * <p>
+ * Events are routed by user id to one of {@code lesson-progress.stripes}
+ * single-threaded executors, so events of one user are applied in arrival order
+ * while different users never wait on each other. Each stripe has a bounded
+ * queue of {@code lesson-progress.queue-capacity}; a full queue rejects the
+ * event with {@link RejectedExecutionException} so callers can push back.
+ * <p>
+ * Every accepted event is first appended to the {@code lesson_progress_events}
+ * log and marked processed once folded (with the error, if folding failed, which
+ * is also logged). Each entry records the node that accepted it
+ * ({@code lesson-progress.node-id}, the host name by default). Events that were
+ * appended but never processed, because the node stopped with them queued, are
+ * folded in log order on startup before any request is served, but only by the
+ * node that owns them: other nodes sharing the table are still folding their
+ * own queues. The node id must therefore survive restarts; events owned by a
+ * node that never comes back stay unprocessed until a node with its id starts.
+ * Delivery is therefore at least once: an event folded just
+ * before a crash, but not yet marked, is folded again. Processed events are
+ * kept for {@code lesson-progress.log-retention-days} and then pruned.
+ */
+@Service
+public class LessonProgressPipeline {
+
+    private final LessonProgressService lessonProgressService;
+    private final ProgressSummaryCache progressSummaryCache;
+    private final LessonProgressLogRepository progressLog;
+    private final String nodeId;
+    private final ThreadPoolExecutor[] stripes;
+    private final ScheduledExecutorService pruner;
+
+    public LessonProgressPipeline(
+            LessonProgressService lessonProgressService,
+            ProgressSummaryCache progressSummaryCache,
+            LessonProgressLogRepository progressLog,
+            @Value("${lesson-progress.stripes:0}") int stripeCount,
+            @Value("${lesson-progress.queue-capacity:1000}") int queueCapacity,
+            @Value("${lesson-progress.log-retention-days:30}") long retentionDays,
+            @Value("${lesson-progress.node-id:${HOSTNAME:local}}") String nodeId) {
+        this.lessonProgressService = lessonProgressService;
+        this.progressSummaryCache = progressSummaryCache;
+        this.progressLog = progressLog;
+        this.nodeId = nodeId;
+        int count = stripeCount > 0 ? stripeCount : Runtime.getRuntime().availableProcessors();
+        this.stripes = new ThreadPoolExecutor[count];
+        for (int i = 0; i < count; i++) {
+            String name = "lesson-progress-" + i;
+            stripes[i] = new ThreadPoolExecutor(1, 1, 0L, TimeUnit.MILLISECONDS,
+                    new ArrayBlockingQueue<>(queueCapacity),
+                    r -> {
+                        Thread t = new Thread(r, name);
+                        t.setDaemon(true);
+                        return t;
+                    },
+                    new ThreadPoolExecutor.AbortPolicy());
+        }
+        long retentionMillis = TimeUnit.DAYS.toMillis(retentionDays);
+        this.pruner = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "lesson-progress-pruner");
+            t.setDaemon(true);
+            return t;
+        });
+        pruner.scheduleWithFixedDelay(() -> prune(retentionMillis), 1, 24, TimeUnit.HOURS);
+    }
+
+    // Folds what this node's previous run appended but never got to
+    @PostConstruct
+    void replay() {
+        List<LessonProgressLogEntry> unprocessed = progressLog.findByOwnerAndProcessedAtIsNullOrderByIdAsc(nodeId);
+        if (!unprocessed.isEmpty()) {
+            System.out.println("🔁 Replaying " + unprocessed.size() + " unprocessed lesson progress events");
+        }
+        for (LessonProgressLogEntry entry : unprocessed) {
+            try {
+                fold(entry);
+            } catch (RuntimeException e) {
+                // Already recorded against the entry by fold
+            }
+        }
+    }
+
+    public CompletableFuture<LessonProgress> submit(LessonProgressEvent event) {
+        validate(event);
+        return enqueue(progressLog.save(entry(event)));
+    }
+
+    // Appends all events in one call, then queues them in order and stops at the first
+    // rejection; returns how many were queued
+    public int submitAll(List<LessonProgressEvent> events) {
+        events.forEach(this::validate);
+        List<LessonProgressLogEntry> entries = new ArrayList<>(events.size());
+        for (LessonProgressEvent event : events) {
+            entries.add(entry(event));
+        }
+        entries = progressLog.saveAll(entries);
+        int accepted = 0;
+        for (LessonProgressLogEntry entry : entries) {
+            try {
+                enqueue(entry);
+            } catch (RejectedExecutionException e) {
+                // enqueue dropped the rejected one; the rest were never acknowledged either
+                progressLog.deleteAll(entries.subList(accepted + 1, entries.size()));
+                break;
+            }
+            accepted++;
+        }
+        return accepted;
+    }
+
+    private CompletableFuture<LessonProgress> enqueue(LessonProgressLogEntry entry) {
+        try {
+            return CompletableFuture.supplyAsync(() -> fold(entry), stripeFor(entry.getUserId()));
+        } catch (RejectedExecutionException e) {
+            if (entry.getId() != null) {
+                progressLog.deleteById(entry.getId());
+            }
+            throw e;
+        }
+    }
+
+    private void validate(LessonProgressEvent event) {
+        if (event.getType() == null || event.getUserId() == null || event.getLessonId() == null) {
+            throw new IllegalArgumentException("Event needs type, userId and lessonId");
+        }
+        if (event.getType() == LessonProgressEvent.Type.WATCH_TIME && event.getWatchTimeSeconds() == null) {
+            throw new IllegalArgumentException("WATCH_TIME event needs watchTimeSeconds");
+        }
+    }
+
+    private LessonProgressLogEntry entry(LessonProgressEvent event) {
+        LessonProgressLogEntry entry = new LessonProgressLogEntry();
+        entry.setType(event.getType());
+        entry.setUserId(event.getUserId());
+        entry.setLessonId(event.getLessonId());
+        entry.setCurrentPosition(event.getCurrentPosition());
+        entry.setWatchTimeSeconds(event.getWatchTimeSeconds());
+        entry.setRecordedAt(System.currentTimeMillis());
+        entry.setOwner(nodeId);
+        return entry;
+    }
+
+    private LessonProgress fold(LessonProgressLogEntry entry) {
+        LessonProgress progress;
+        try {
+            progress = switch (entry.getType()) {
+                case PLAY -> lessonProgressService.recordVideoPlay(entry.getUserId(), entry.getLessonId());
+                case PAUSE -> lessonProgressService.recordVideoPause(
+                        entry.getUserId(), entry.getLessonId(), entry.getCurrentPosition());
+                case WATCH_TIME -> lessonProgressService.updateWatchTime(
+                        entry.getUserId(), entry.getLessonId(), entry.getWatchTimeSeconds());
+                case COMPLETE -> lessonProgressService.markLessonComplete(entry.getUserId(), entry.getLessonId());
+            };
+        } catch (RuntimeException e) {
+            System.err.println("❌ Lesson progress event " + entry.getId() + " (" + entry.getType() + " for user "
+                    + entry.getUserId() + ", lesson " + entry.getLessonId() + ") failed: " + e.getMessage());
+            markProcessed(entry, String.valueOf(e.getMessage()));
+            throw e;
+        }
+        markProcessed(entry, null);
+        progressSummaryCache.lessonProgressChanged(entry.getUserId(), progress);
+        return progress;
+    }
+
+    private void markProcessed(LessonProgressLogEntry entry, String error) {
+        try {
+            progressLog.markProcessed(entry.getId(), System.currentTimeMillis(), error);
+        } catch (RuntimeException e) {
+            // The event stays unprocessed and is folded again on the next startup
+            System.err.println("❌ Could not mark lesson progress event " + entry.getId() + " processed: " + e.getMessage());
+        }
+    }
+
+    private void prune(long retentionMillis) {
+        try {
+            progressLog.deleteProcessedBefore(System.currentTimeMillis() - retentionMillis);
+        } catch (RuntimeException e) {
+            System.err.println("❌ Pruning the lesson progress log failed: " + e.getMessage());
+        }
+    }
+
+    private Executor stripeFor(String userId) {
+        return stripes[Math.floorMod(userId.hashCode(), stripes.length)];
+    }
+
+    @PreDestroy
+    void shutdown() throws InterruptedException {
+        pruner.shutdownNow();
+        for (ThreadPoolExecutor stripe : stripes) {
+            stripe.shutdown();
+        }
+        for (ThreadPoolExecutor stripe : stripes) {
+            stripe.awaitTermination(10, TimeUnit.SECONDS);
+        }
+    }
+}
@@ -0,0 +1,37 @@
+package com.learnforge.service;
+
+import com.learnforge.dto.ArenaEvent;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+
+/**
+ * Single-node backplane: events are handed straight to local subscribers.
+ */
+@Component
+@ConditionalOnProperty(name = "arena.backplane.mode", havingValue = "local", matchIfMissing = true)
+public class LocalArenaBackplane implements ArenaBackplane {
+
+    private final List<Consumer<ArenaEvent>> handlers = new CopyOnWriteArrayList<>();
+
+    @Override
+    public void publish(ArenaEvent event) {
+        event.setOriginNode(nodeId());
+        for (Consumer<ArenaEvent> handler : handlers) {
+            handler.accept(event);
+        }
+    }
+
+    @Override
+    public void subscribe(Consumer<ArenaEvent> handler) {
+        handlers.add(handler);
+    }
+
+    @Override
+    public String nodeId() {
+        return "local";
+    }
+}
@@ -0,0 +1,577 @@
+package com.learnforge.service;
+
+import com.learnforge.dto.ExecuteRequest;
+import com.learnforge.dto.ExecutionResult;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Primary;
+import org.springframework.stereotype.Service;
+
+import javax.tools.JavaCompiler;
+import javax.tools.ToolProvider;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.Stream;
+
+/**
+ * Runs Java and Python locally as OS processes ({@code execution.backend=local}),
+ * falling back to Judge0 for other languages or when a local worker can't be
+ * started. A program that fails on its own is reported, not sent to Judge0.
+ * <p>
+ * Each language keeps {@code execution.local.warm-workers} interpreters/JVMs
+ * already started and blocked on stdin: a worker reads the artifact path as its
+ * first line, then runs the program with the rest of stdin, so a run doesn't
+ * pay process start-up. Workers are single-use. Java sources are compiled
+ * in-process once per code hash and the class directories are kept in an LRU
+ * of {@code execution.local.compiled-cache-size}; each run holds a reference
+ * to its artifact, and an evicted directory is only deleted once no run holds it.
+ * <p>
+ * Every worker runs as {@code execution.local.run-as} (through {@code sudo -n -u},
+ * so the application user needs a sudoers entry for it) inside a bubblewrap
+ * sandbox: new user, PID, IPC, UTS, mount and network namespaces (so no network
+ * at all), a cleared environment and a read-only root holding only the system
+ * directories in {@code execution.local.sandbox-paths}, the JDK, the launcher
+ * and the artifact directory. The artifact directory can be traversed but not
+ * listed, and artifact names are code hashes, so a program can't find other
+ * submissions. Inside, {@code prlimit} caps CPU seconds, file size, address
+ * space ({@code execution.local.memory-mb}, plus
+ * {@code execution.local.java-overhead-mb} for the JVM's own reservations on
+ * top of {@code -Xmx}) and processes. {@code execution.local.max-processes} is
+ * the budget of processes and threads (JVM threads count) for one run; the
+ * kernel counts that limit across every process of the sandbox user, so the
+ * value passed is the budget times the runs and warm workers that can be alive
+ * at once. A wall-clock limit kills the
+ * process. If the sandbox can't start, startup fails; {@code
+ * execution.local.sandbox=none} turns it off for local development only.
+ */
+@Service
+@Primary
+@ConditionalOnProperty(name = "execution.backend", havingValue = "local")
+public class LocalProcessExecutor implements CodeExecutor {
+
+    enum Language {
+        JAVA(Set.of("java", "62", "91")),
+        PYTHON(Set.of("python", "python3", "py", "71", "92"));
+
+        private final Set<String> aliases;
+
+        Language(Set<String> aliases) {
+            this.aliases = aliases;
+        }
+
+        static Language of(String language) {
+            if (language == null) {
+                return null;
+            }
+            String key = language.trim().toLowerCase(Locale.ROOT);
+            for (Language candidate : values()) {
+                if (candidate.aliases.contains(key)) {
+                    return candidate;
+                }
+            }
+            return null;
+        }
+    }
+
+    private static final String PYTHON_BOOTSTRAP = String.join("\n",
+            "import sys, runpy",
+            "path = sys.stdin.readline().rstrip('\\n')",
+            "sys.argv = [path]",
+            "runpy.run_path(path, run_name='__main__')");
+
+    private static final String JAVA_LAUNCHER = String.join("\n",
+            "import java.io.File;",
+            "import java.lang.reflect.InvocationTargetException;",
+            "import java.net.URL;",
+            "import java.net.URLClassLoader;",
+            "public class Launcher {",
+            "    public static void main(String[] args) throws Throwable {",
+            "        StringBuilder path = new StringBuilder();",
+            "        int c;",
+            "        while ((c = System.in.read()) != -1 && c != '\\n') path.append((char) c);",
+            "        URLClassLoader loader = new URLClassLoader(new URL[] { new File(path.toString()).toURI().toURL() },",
+            "                ClassLoader.getPlatformClassLoader());",
+            "        try {",
+            "            loader.loadClass(\"Main\").getMethod(\"main\", String[].class).invoke(null, (Object) new String[0]);",
+            "        } catch (InvocationTargetException e) {",
+            "            throw e.getCause();",
+            "        }",
+            "    }",
+            "}");
+
+    private final CodeExecutor fallback;
+    private final ExecutionResultCache resultCache;
+    private final long wallTimeMillis;
+    private final int cpuSeconds;
+    private final int memoryMb;
+    private final int maxOutputBytes;
+    private final int warmWorkers;
+    private final int compiledCacheSize;
+    private final String pythonCommand;
+    private final String javaCommand;
+    private final int javaOverheadMb;
+    private final long processLimit;
+    private final List<String> sandbox;
+    private final Semaphore permits;
+    private final Path workDir;
+    private final Path artifactsDir;
+    private final Path launcherDir;
+    private final Map<Language, WarmPool> pools = new EnumMap<>(Language.class);
+    private final LinkedHashMap<String, Compiled> compiled = new LinkedHashMap<>(64, 0.75f, true);
+    private final Map<String, CompletableFuture<Compiled>> compiling = new ConcurrentHashMap<>();
+    private final ExecutorService spawner = Executors.newVirtualThreadPerTaskExecutor();
+
+    public LocalProcessExecutor(
+            Judge0CodeExecutor fallback,
+            ExecutionResultCache resultCache,
+            @Value("${execution.local.time-limit-ms:3000}") long wallTimeMillis,
+            @Value("${execution.local.cpu-seconds:2}") int cpuSeconds,
+            @Value("${execution.local.memory-mb:256}") int memoryMb,
+            @Value("${execution.local.max-output-bytes:65536}") int maxOutputBytes,
+            @Value("${execution.local.warm-workers:2}") int warmWorkers,
+            @Value("${execution.local.compiled-cache-size:500}") int compiledCacheSize,
+            @Value("${execution.local.max-concurrent:0}") int maxConcurrent,
+            @Value("${execution.local.python:python3}") String pythonCommand,
+            @Value("${execution.local.java:java}") String javaCommand,
+            @Value("${execution.local.java-overhead-mb:768}") int javaOverheadMb,
+            @Value("${execution.local.max-processes:64}") int maxProcesses,
+            @Value("${execution.local.sandbox:bwrap}") String sandboxMode,
+            @Value("${execution.local.run-as:learnforge-runner}") String runAs,
+            @Value("${execution.local.sandbox-paths:/usr,/bin,/lib,/lib64,/etc/alternatives,/etc/ld.so.cache}") String sandboxPaths)
+            throws IOException {
+        this.fallback = fallback;
+        this.resultCache = resultCache;
+        this.wallTimeMillis = wallTimeMillis;
+        this.cpuSeconds = cpuSeconds;
+        this.memoryMb = memoryMb;
+        this.maxOutputBytes = maxOutputBytes;
+        this.warmWorkers = warmWorkers;
+        this.compiledCacheSize = compiledCacheSize;
+        this.pythonCommand = pythonCommand;
+        this.javaCommand = javaCommand;
+        this.javaOverheadMb = javaOverheadMb;
+        int maxRunning = maxConcurrent > 0 ? maxConcurrent : Runtime.getRuntime().availableProcessors();
+        this.permits = new Semaphore(maxRunning);
+        // Every run plus every idle warm worker of both languages can be alive at the same time
+        this.processLimit = (long) maxProcesses * (maxRunning + 2L * Math.max(0, warmWorkers));
+        // The sandbox user may traverse these directories but not list them
+        this.workDir = Files.createTempDirectory("learnforge-exec");
+        Files.setPosixFilePermissions(workDir, PosixFilePermissions.fromString("rwx--x--x"));
+        this.artifactsDir = Files.createDirectories(workDir.resolve("artifacts"));
+        Files.setPosixFilePermissions(artifactsDir, PosixFilePermissions.fromString("rwx--x--x"));
+        this.launcherDir = compileLauncher();
+        this.sandbox = sandbox(sandboxMode, runAs, sandboxPaths);
+        pools.put(Language.PYTHON, new WarmPool(Language.PYTHON));
+        if (launcherDir != null) {
+            pools.put(Language.JAVA, new WarmPool(Language.JAVA));
+        }
+        pools.values().forEach(WarmPool::refill);
+    }
+
+    @Override
+    public ExecutionResult execute(ExecuteRequest request) {
+        Language language = Language.of(request.getLanguage());
+        if (language == null || !pools.containsKey(language)) {
+            return fallback.execute(request);
+        }
+        try {
+            return resultCache.execute(request, limitsKey(), () -> runLocally(language, request));
+        } catch (WorkerUnavailableException e) {
+            // Only when no local worker could start; the program itself never ran
+            System.err.println("❌ Local " + language + " worker unavailable, using Judge0: " + e.getMessage());
+            return fallback.execute(request);
+        }
+    }
+
+    @Override
+    public List<ExecutionResult> executeBatch(List<ExecuteRequest> requests) {
+        List<Future<ExecutionResult>> futures = new ArrayList<>(requests.size());
+        for (ExecuteRequest request : requests) {
+            futures.add(spawner.submit(() -> execute(request)));
+        }
+        List<ExecutionResult> results = new ArrayList<>(requests.size());
+        for (Future<ExecutionResult> future : futures) {
+            try {
+                results.add(future.get());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                results.add(ExecutionResult.internalError("Interrupted", name()));
+            } catch (ExecutionException e) {
+                results.add(ExecutionResult.internalError(String.valueOf(e.getCause().getMessage()), name()));
+            }
+        }
+        return results;
+    }
+
+    @Override
+    public String name() {
+        return "local";
+    }
+
+    private ExecutionResult runLocally(Language language, ExecuteRequest request) {
+        try {
+            Compiled artifact = artifact(language, request.getCode());
+            try {
+                if (artifact.compileOutput != null) {
+                    return new ExecutionResult(null, null, artifact.compileOutput,
+                            ExecutionResult.COMPILATION_ERROR, "Compilation Error", null, null, name());
+                }
+                permits.acquire();
+                try {
+                    Worker worker;
+                    try {
+                        worker = pools.get(language).take();
+                    } catch (IOException e) {
+                        throw new WorkerUnavailableException(e.getMessage());
+                    }
+                    return run(worker, artifact.path, request.getStdin());
+                } finally {
+                    permits.release();
+                }
+            } finally {
+                release(artifact);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return ExecutionResult.internalError("Interrupted", name());
+        } catch (WorkerUnavailableException e) {
+            throw e;
+        } catch (IOException | RuntimeException e) {
+            return ExecutionResult.internalError("Local execution failed: " + e.getMessage(), name());
+        }
+    }
+
+    private ExecutionResult run(Worker worker, Path artifact, String stdin) throws IOException, InterruptedException {
+        long started = System.nanoTime();
+        // Fed from its own thread: a program that never reads stdin must still hit the wall-clock limit
+        Future<?> feeder = spawner.submit(() -> {
+            try (OutputStream in = worker.process.getOutputStream()) {
+                in.write((artifact.toString() + "\n").getBytes(StandardCharsets.UTF_8));
+                if (stdin != null) {
+                    in.write(stdin.getBytes(StandardCharsets.UTF_8));
+                }
+            } catch (IOException e) {
+                // The program may exit or be killed without reading all of stdin
+            }
+        });
+        try {
+            boolean exited = worker.process.waitFor(wallTimeMillis, TimeUnit.MILLISECONDS);
+            double seconds = (System.nanoTime() - started) / 1e9;
+            if (!exited) {
+                worker.process.destroyForcibly().waitFor();
+                return new ExecutionResult(read(worker.dir.resolve("stdout")), read(worker.dir.resolve("stderr")), null,
+                        ExecutionResult.TIME_LIMIT, "Time Limit Exceeded", seconds, null, name());
+            }
+            int exit = worker.process.exitValue();
+            String stdout = read(worker.dir.resolve("stdout"));
+            String stderr = read(worker.dir.resolve("stderr"));
+            if (exit == 0) {
+                return new ExecutionResult(stdout, stderr, null, ExecutionResult.ACCEPTED, "Accepted", seconds, null, name());
+            }
+            // 128+9 and 128+24: killed by the kernel for exceeding the CPU limit
+            if (exit == 137 || exit == 152) {
+                return new ExecutionResult(stdout, stderr, null, ExecutionResult.TIME_LIMIT, "Time Limit Exceeded", seconds, null, name());
+            }
+            return new ExecutionResult(stdout, stderr, null, ExecutionResult.RUNTIME_ERROR, "Runtime Error (NZEC)", seconds, null, name());
+        } finally {
+            worker.process.destroyForcibly();
+            feeder.cancel(true);
+            deleteRecursively(worker.dir);
+        }
+    }
+
+    // The artifact for this code, compiled if needed, with a reference held for the caller to release
+    private Compiled artifact(Language language, String code) throws IOException {
+        String key = language + ":" + ExecutionResultCache.key(language.name(), code, null, null);
+        while (true) {
+            synchronized (compiled) {
+                Compiled cached = compiled.get(key);
+                if (cached != null && retainLocked(cached)) {
+                    return cached;
+                }
+            }
+            CompletableFuture<Compiled> mine = new CompletableFuture<>();
+            CompletableFuture<Compiled> running = compiling.putIfAbsent(key, mine);
+            if (running != null) {
+                Compiled shared = running.join();
+                synchronized (compiled) {
+                    if (retainLocked(shared)) {
+                        return shared;
+                    }
+                }
+                // Evicted and deleted before we got to it: look again
+                continue;
+            }
+            try {
+                Path dir = artifactsDir.resolve(key.replace(':', '-'));
+                Files.createDirectories(dir);
+                Files.setPosixFilePermissions(dir, PosixFilePermissions.fromString("rwxr-xr-x"));
+                Compiled artifact = language == Language.JAVA ? compileJava(dir, code) : writePython(dir, code);
+                synchronized (compiled) {
+                    retainLocked(artifact);
+                    compiled.put(key, artifact);
+                    Iterator<Compiled> eldest = compiled.values().iterator();
+                    while (compiled.size() > compiledCacheSize && eldest.hasNext()) {
+                        Compiled evicted = eldest.next();
+                        eldest.remove();
+                        evicted.evicted = true;
+                        deleteIfUnusedLocked(evicted);
+                    }
+                }
+                mine.complete(artifact);
+                return artifact;
+            } catch (IOException | RuntimeException e) {
+                mine.completeExceptionally(e);
+                throw e;
+            } finally {
+                compiling.remove(key, mine);
+            }
+        }
+    }
+
+    // Caller holds the compiled lock; false once the directory is gone
+    private static boolean retainLocked(Compiled artifact) {
+        if (artifact.deleted) {
+            return false;
+        }
+        artifact.users++;
+        return true;
+    }
+
+    private void release(Compiled artifact) {
+        synchronized (compiled) {
+            artifact.users--;
+            deleteIfUnusedLocked(artifact);
+        }
+    }
+
+    private static void deleteIfUnusedLocked(Compiled artifact) {
+        if (artifact.evicted && artifact.users == 0 && !artifact.deleted) {
+            artifact.deleted = true;
+            deleteRecursively(artifact.dir);
+        }
+    }
+
+    private Compiled writePython(Path dir, String code) throws IOException {
+        Path script = dir.resolve("main.py");
+        Files.writeString(script, code == null ? "" : code);
+        return new Compiled(dir, script, null);
+    }
+
+    private Compiled compileJava(Path dir, String code) throws IOException {
+        Path source = dir.resolve("Main.java");
+        Files.writeString(source, code == null ? "" : code);
+        String errors = javac(dir, source);
+        return new Compiled(dir, dir, errors);
+    }
+
+    // In-process javac, so a compile doesn't start a JVM; returns null on success, else the diagnostics
+    private static String javac(Path outputDir, Path source) {
+        JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+        ByteArrayOutputStream diagnostics = new ByteArrayOutputStream();
+        int status = compiler.run(null, OutputStream.nullOutputStream(), diagnostics,
+                "-proc:none", "-nowarn", "-d", outputDir.toString(), source.toString());
+        return status == 0 ? null : diagnostics.toString(StandardCharsets.UTF_8);
+    }
+
+    private Path compileLauncher() throws IOException {
+        if (ToolProvider.getSystemJavaCompiler() == null) {
+            System.err.println("❌ No system Java compiler; Java runs will use Judge0");
+            return null;
+        }
+        Path dir = workDir.resolve("launcher");
+        Files.createDirectories(dir);
+        Files.setPosixFilePermissions(dir, PosixFilePermissions.fromString("rwxr-xr-x"));
+        Path source = dir.resolve("Launcher.java");
+        Files.writeString(source, JAVA_LAUNCHER);
+        String errors = javac(dir, source);
+        if (errors != null) {
+            System.err.println("❌ Could not compile the Java launcher: " + errors);
+            return null;
+        }
+        return dir;
+    }
+
+    private Worker spawn(Language language) throws IOException {
+        Path dir = Files.createTempDirectory(workDir, "run");
+        long addressSpaceMb = language == Language.JAVA ? memoryMb + javaOverheadMb : memoryMb;
+        List<String> command = new ArrayList<>(sandbox);
+        command.addAll(List.of("prlimit", "--cpu=" + cpuSeconds, "--fsize=" + maxOutputBytes,
+                "--nproc=" + processLimit, "--as=" + addressSpaceMb * 1024 * 1024, "--"));
+        if (language == Language.PYTHON) {
+            command.addAll(List.of(pythonCommand, "-c", PYTHON_BOOTSTRAP));
+        } else {
+            command.addAll(List.of(javaCommand, "-Xmx" + memoryMb + "m", "-Xss1m", "-XX:+UseSerialGC",
+                    "-XX:TieredStopAtLevel=1", "-XX:ActiveProcessorCount=1", "-XX:ReservedCodeCacheSize=32m",
+                    "-XX:MaxMetaspaceSize=64m", "-XX:CompressedClassSpaceSize=32m", "-XX:MaxDirectMemorySize=16m",
+                    "-XX:-UsePerfData", "-Xshare:auto", "-cp", launcherDir.toString(), "Launcher"));
+        }
+        Process process = new ProcessBuilder(command)
+                .directory(dir.toFile())
+                .redirectOutput(dir.resolve("stdout").toFile())
+                .redirectError(dir.resolve("stderr").toFile())
+                .start();
+        return new Worker(process, dir);
+    }
+
+    // The command prefix every worker runs under; checked once here so a broken sandbox fails startup
+    private List<String> sandbox(String mode, String runAs, String paths) throws IOException {
+        if ("none".equalsIgnoreCase(mode)) {
+            System.err.println("❌ execution.local.sandbox=none: submissions run unisolated as the application user; "
+                    + "use this for local development only");
+            return List.of();
+        }
+        if (!"bwrap".equalsIgnoreCase(mode)) {
+            throw new IllegalStateException("Unknown execution.local.sandbox " + mode + " (expected bwrap or none)");
+        }
+        if (runAs == null || runAs.isBlank()) {
+            throw new IllegalStateException("execution.local.run-as must name an unprivileged user for the sandbox");
+        }
+        List<String> prefix = new ArrayList<>(List.of("sudo", "-n", "-u", runAs, "--",
+                "bwrap", "--unshare-all", "--die-with-parent", "--new-session", "--clearenv",
+                "--setenv", "PATH", "/usr/local/bin:/usr/bin:/bin",
+                "--setenv", "PYTHONDONTWRITEBYTECODE", "1",
+                "--proc", "/proc", "--dev", "/dev", "--dir", "/tmp"));
+        Set<String> readOnly = new LinkedHashSet<>(List.of(paths.split("\\s*,\\s*")));
+        readOnly.add(System.getProperty("java.home"));
+        for (String path : readOnly) {
+            if (!path.isBlank()) {
+                prefix.addAll(List.of("--ro-bind-try", path, path));
+            }
+        }
+        prefix.addAll(List.of("--ro-bind", artifactsDir.toString(), artifactsDir.toString()));
+        if (launcherDir != null) {
+            prefix.addAll(List.of("--ro-bind", launcherDir.toString(), launcherDir.toString()));
+        }
+        prefix.addAll(List.of("--remount-ro", "/", "--chdir", "/tmp", "--"));
+
+        List<String> probe = new ArrayList<>(prefix);
+        probe.add("/bin/true");
+        Process process = new ProcessBuilder(probe).redirectErrorStream(true).start();
+        try {
+            if (!process.waitFor(10, TimeUnit.SECONDS) || process.exitValue() != 0) {
+                process.destroyForcibly();
+                throw new IllegalStateException("Could not start the execution sandbox as " + runAs + ": "
+                        + new String(process.getInputStream().readNBytes(4096), StandardCharsets.UTF_8).trim());
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while checking the execution sandbox");
+        }
+        return List.copyOf(prefix);
+    }
+
+    private String read(Path file) throws IOException {
+        if (!Files.exists(file)) {
+            return null;
+        }
+        try (InputStream in = Files.newInputStream(file)) {
+            byte[] bytes = in.readNBytes(maxOutputBytes);
+            return bytes.length == 0 ? null : new String(bytes, StandardCharsets.UTF_8);
+        }
+    }
+
+    private String limitsKey() {
+        return "local:" + wallTimeMillis + ":" + cpuSeconds + ":" + memoryMb + ":" + maxOutputBytes;
+    }
+
+    private static void deleteRecursively(Path dir) {
+        if (dir == null || !Files.exists(dir)) {
+            return;
+        }
+        try (Stream<Path> paths = Files.walk(dir)) {
+            paths.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+        } catch (IOException e) {
+            System.err.println("❌ Could not clean up " + dir + ": " + e.getMessage());
+        }
+    }
+
+    @PreDestroy
+    void shutdown() {
+        spawner.shutdownNow();
+        for (WarmPool pool : pools.values()) {
+            Worker worker;
+            while ((worker = pool.idle.poll()) != null) {
+                worker.process.destroyForcibly();
+            }
+        }
+        deleteRecursively(workDir);
+    }
+
+    private record Worker(Process process, Path dir) { }
+
+    // users, evicted and deleted are guarded by the compiled lock
+    private static final class Compiled {
+        private final Path dir;
+        private final Path path;
+        private final String compileOutput;
+        private int users;
+        private boolean evicted;
+        private boolean deleted;
+
+        Compiled(Path dir, Path path, String compileOutput) {
+            this.dir = dir;
+            this.path = path;
+            this.compileOutput = compileOutput;
+        }
+    }
+
+    // No local worker could be started, so the program never ran and Judge0 can take it
+    private static final class WorkerUnavailableException extends RuntimeException {
+        WorkerUnavailableException(String message) {
+            super(message);
+        }
+    }
+
+    private final class WarmPool {
+        private final Language language;
+        private final BlockingQueue<Worker> idle;
+        private final AtomicBoolean refilling = new AtomicBoolean();
+
+        WarmPool(Language language) {
+            this.language = language;
+            this.idle = new ArrayBlockingQueue<>(Math.max(1, warmWorkers));
+        }
+
+        // A warm worker if one is ready, else a cold start; either way top the pool back up
+        Worker take() throws IOException {
+            Worker worker;
+            while ((worker = idle.poll()) != null && !worker.process.isAlive()) {
+                deleteRecursively(worker.dir);
+            }
+            refill();
+            return worker != null ? worker : spawn(language);
+        }
+
+        void refill() {
+            if (warmWorkers <= 0 || !refilling.compareAndSet(false, true)) {
+                return;
+            }
+            spawner.execute(() -> {
+                try {
+                    while (idle.remainingCapacity() > 0) {
+                        Worker worker = spawn(language);
+                        if (!idle.offer(worker)) {
+                            worker.process.destroyForcibly();
+                            deleteRecursively(worker.dir);
+                        }
+                    }
+                } catch (IOException e) {
+                    System.err.println("❌ Could not start a " + language + " worker: " + e.getMessage());
+                } finally {
+                    refilling.set(false);
+                }
+            });
+        }
+    }
+}
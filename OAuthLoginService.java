@@ -0,0 +1,402 @@
+package com.learnforge.service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.learnforge.entity.User;
+import com.learnforge.repository.UserLookupRepository;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.math.BigInteger;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.KeyFactory;
+import java.security.PublicKey;
+import java.security.Signature;
+import java.security.spec.RSAPublicKeySpec;
+import java.util.*;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * The OAuth login fast path, enabled with {@code oauth.fast-path.enabled}.
+ * <p>
+ * Compared with {@link AuthService}, which makes every provider call in turn:
+ * GitHub's profile and email lookups run in parallel once the code is
+ * exchanged, and Google's ID token is verified locally against its published
+ * keys instead of calling the userinfo endpoint. The OpenID discovery document
+ * and signing keys are cached for as long as Google's {@code Cache-Control}
+ * allows, warmed at startup, and refetched early only when a token names an
+ * unknown key (at most once a minute); one caller refetches while the others
+ * wait on a {@link ReentrantLock}, which unlike a monitor doesn't pin a virtual
+ * thread for the length of the HTTP call. All provider calls go through
+ * {@link UpstreamClient}, so they share its timeouts and breakers. GitHub's
+ * {@code /user} calls use their own {@code github-api-auth} upstream, so profile
+ * lookups filling the public {@code github} bulkhead or tripping its breaker
+ * can't block logins.
+ * <p>
+ * {@link #login} returns only the user, so with the fast path the login
+ * endpoints answer {@code {"user": ...}} and none of the other keys
+ * {@link AuthService} puts in its response.
+ * <p>
+ * The user id for each provider identity is remembered for
+ * {@code oauth.user-cache-minutes}; a repeat login with an identical provider
+ * profile reloads the user by id instead of searching by email and comparing
+ * fields, so the token always carries the current admin flag. Otherwise the
+ * user is found by email, and is only written when it is new or its avatar
+ * changed, or it has no name yet.
+ * <p>
+ * With {@code oauth.stub.enabled} a {@code stub} provider accepts any code as
+ * a username after {@code oauth.stub.latency-ms}, for measuring the login path
+ * without real providers. Never enable it in production.
+ */
+@Service
+public class OAuthLoginService {
+
+    public record ProviderProfile(String provider, String subject, String email, String name, String avatarUrl) { }
+
+    private record CachedLogin(ProviderProfile profile, String userId) { }
+
+    private record Discovery(String issuer, String tokenEndpoint, String jwksUri, long expiresAt) { }
+
+    private record SigningKeys(Map<String, PublicKey> byId, long fetchedAt, long expiresAt) { }
+
+    private static final Pattern MAX_AGE = Pattern.compile("max-age=(\\d+)");
+    private static final long DEFAULT_MAX_AGE_MILLIS = TimeUnit.HOURS.toMillis(1);
+    private static final long MIN_KEY_REFETCH_MILLIS = TimeUnit.MINUTES.toMillis(1);
+    private static final long CLOCK_SKEW_MILLIS = TimeUnit.MINUTES.toMillis(1);
+
+    private final UpstreamClient upstreams;
+    private final ObjectMapper objectMapper;
+    private final UserLookupRepository userLookup;
+    private final UserService userService;
+    private final boolean enabled;
+    private final boolean stubEnabled;
+    private final long stubLatencyMillis;
+    private final String githubClientId;
+    private final String githubClientSecret;
+    private final String googleClientId;
+    private final String googleClientSecret;
+    private final String googleRedirectUri;
+    private final BoundedCache<String, CachedLogin> logins;
+    private final ExecutorService fetchers = Executors.newVirtualThreadPerTaskExecutor();
+    private final Lock discoveryLock = new ReentrantLock();
+    private final Lock keysLock = new ReentrantLock();
+    private volatile Discovery discovery;
+    private volatile SigningKeys signingKeys;
+
+    public OAuthLoginService(
+            UpstreamClient upstreams,
+            ObjectMapper objectMapper,
+            UserLookupRepository userLookup,
+            UserService userService,
+            @Value("${oauth.fast-path.enabled:false}") boolean enabled,
+            @Value("${oauth.stub.enabled:false}") boolean stubEnabled,
+            @Value("${oauth.stub.latency-ms:0}") long stubLatencyMillis,
+            @Value("${oauth.user-cache-minutes:10}") long userCacheMinutes,
+            @Value("${oauth.github.client-id:${spring.security.oauth2.client.registration.github.client-id:}}") String githubClientId,
+            @Value("${oauth.github.client-secret:${spring.security.oauth2.client.registration.github.client-secret:}}") String githubClientSecret,
+            @Value("${oauth.google.client-id:${spring.security.oauth2.client.registration.google.client-id:}}") String googleClientId,
+            @Value("${oauth.google.client-secret:${spring.security.oauth2.client.registration.google.client-secret:}}") String googleClientSecret,
+            @Value("${oauth.google.redirect-uri:postmessage}") String googleRedirectUri) {
+        this.upstreams = upstreams;
+        this.objectMapper = objectMapper;
+        this.userLookup = userLookup;
+        this.userService = userService;
+        this.enabled = enabled;
+        this.stubEnabled = stubEnabled;
+        this.stubLatencyMillis = stubLatencyMillis;
+        this.githubClientId = githubClientId;
+        this.githubClientSecret = githubClientSecret;
+        this.googleClientId = googleClientId;
+        this.googleClientSecret = googleClientSecret;
+        this.googleRedirectUri = googleRedirectUri;
+        this.logins = new BoundedCache<>(10_000, TimeUnit.MINUTES.toMillis(userCacheMinutes));
+    }
+
+    public boolean enabled() {
+        return enabled;
+    }
+
+    public boolean stubEnabled() {
+        return stubEnabled;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    void warmUp() {
+        if (!enabled || googleClientId.isBlank()) {
+            return;
+        }
+        fetchers.execute(() -> {
+            try {
+                keys(discovery(), false);
+            } catch (Exception e) {
+                System.err.println("❌ Could not prefetch Google signing keys: " + e.getMessage());
+            }
+        });
+    }
+
+    /** Exchanges the code with the provider and returns the matching (possibly new) user. */
+    public User login(String provider, String code) throws Exception {
+        if (code == null || code.isBlank()) {
+            throw new IllegalArgumentException("Missing authorization code");
+        }
+        ProviderProfile profile = switch (provider) {
+            case "github" -> githubProfile(code);
+            case "google" -> googleProfile(code);
+            case "stub" -> stubProfile(code);
+            default -> throw new IllegalArgumentException("Unknown provider " + provider);
+        };
+        if (profile.email() == null || profile.email().isBlank()) {
+            throw new IllegalStateException(provider + " account has no verified email");
+        }
+        return upsert(profile);
+    }
+
+    private ProviderProfile githubProfile(String code) throws Exception {
+        JsonNode token = json(UpstreamClient.GITHUB_OAUTH, upstreams.postForm(UpstreamClient.GITHUB_OAUTH,
+                "/login/oauth/access_token",
+                Map.of("client_id", githubClientId, "client_secret", githubClientSecret, "code", code)));
+        String accessToken = text(token, "access_token");
+        if (accessToken == null) {
+            throw new IllegalStateException("GitHub rejected the code: " + token.path("error").asText("unknown error"));
+        }
+
+        Map<String, String> auth = Map.of("Authorization", "Bearer " + accessToken);
+        Future<JsonNode> emails = fetchers.submit(
+                () -> json(UpstreamClient.GITHUB_AUTH, upstreams.get(UpstreamClient.GITHUB_AUTH, "/user/emails", auth)));
+        JsonNode user = json(UpstreamClient.GITHUB_AUTH, upstreams.get(UpstreamClient.GITHUB_AUTH, "/user", auth));
+
+        String email = null;
+        for (JsonNode entry : await(emails)) {
+            if (entry.path("primary").asBoolean() && entry.path("verified").asBoolean()) {
+                email = text(entry, "email");
+            }
+        }
+        if (email == null) {
+            email = text(user, "email");
+        }
+        String name = text(user, "name");
+        return new ProviderProfile("github", user.path("id").asText(), email,
+                name != null ? name : text(user, "login"), text(user, "avatar_url"));
+    }
+
+    private ProviderProfile googleProfile(String code) throws Exception {
+        Discovery d = discovery();
+        // Keys are almost always cached; when not, fetch them while the code is exchanged
+        Future<SigningKeys> keys = fetchers.submit(() -> keys(d, false));
+        JsonNode tokens = json(UpstreamClient.GOOGLE, upstreams.postForm(UpstreamClient.GOOGLE, d.tokenEndpoint(), Map.of(
+                "code", code,
+                "client_id", googleClientId,
+                "client_secret", googleClientSecret,
+                "redirect_uri", googleRedirectUri,
+                "grant_type", "authorization_code")));
+        String idToken = text(tokens, "id_token");
+        if (idToken == null) {
+            throw new IllegalStateException("Google returned no ID token");
+        }
+        JsonNode claims = verifyIdToken(idToken, d, await(keys));
+        String email = claims.path("email_verified").asBoolean() ? text(claims, "email") : null;
+        return new ProviderProfile("google", text(claims, "sub"), email, text(claims, "name"), text(claims, "picture"));
+    }
+
+    private ProviderProfile stubProfile(String code) throws InterruptedException {
+        if (!stubEnabled) {
+            throw new IllegalArgumentException("Unknown provider stub");
+        }
+        if (stubLatencyMillis > 0) {
+            Thread.sleep(stubLatencyMillis);
+        }
+        String handle = code.trim().toLowerCase(Locale.ROOT);
+        return new ProviderProfile("stub", handle, handle + "@stub.learnforge.local", handle, null);
+    }
+
+    private User upsert(ProviderProfile profile) {
+        String key = profile.provider() + ":" + profile.subject();
+        CachedLogin cached = logins.get(key);
+        if (cached != null && cached.profile().equals(profile)) {
+            // Reloaded rather than cached, so an admin flag change reaches the next token
+            Optional<User> current = userService.getById(cached.userId());
+            if (current.isPresent()) {
+                return current.get();
+            }
+            logins.invalidate(key);
+        }
+
+        Optional<User> found = userLookup.findFirstByEmail(profile.email());
+        User user;
+        if (found.isEmpty()) {
+            user = new User();
+            user.setEmail(profile.email());
+            user.setName(profile.name());
+            user.setAvatarUrl(profile.avatarUrl());
+            user = userService.register(user);
+        } else {
+            user = found.get();
+            boolean changed = false;
+            if ((user.getName() == null || user.getName().isBlank()) && profile.name() != null) {
+                user.setName(profile.name());
+                changed = true;
+            }
+            if (profile.avatarUrl() != null && !profile.avatarUrl().equals(user.getAvatarUrl())) {
+                user.setAvatarUrl(profile.avatarUrl());
+                changed = true;
+            }
+            if (changed) {
+                user = userService.updateProfile(user);
+            }
+        }
+        logins.put(key, new CachedLogin(profile, user.getUserId()));
+        return user;
+    }
+
+    private JsonNode verifyIdToken(String idToken, Discovery d, SigningKeys keys) throws Exception {
+        String[] parts = idToken.split("\\.");
+        if (parts.length != 3) {
+            throw new IllegalStateException("Malformed ID token");
+        }
+        Base64.Decoder b64 = Base64.getUrlDecoder();
+        JsonNode header = objectMapper.readTree(b64.decode(parts[0]));
+        if (!"RS256".equals(text(header, "alg"))) {
+            throw new IllegalStateException("Unexpected ID token algorithm " + text(header, "alg"));
+        }
+        String kid = text(header, "kid");
+        PublicKey key = keys.byId().get(kid);
+        if (key == null) {
+            // Google has probably rotated its keys since we last fetched them
+            key = keys(d, true).byId().get(kid);
+        }
+        if (key == null) {
+            throw new IllegalStateException("ID token signed with unknown key " + kid);
+        }
+        Signature verifier = Signature.getInstance("SHA256withRSA");
+        verifier.initVerify(key);
+        verifier.update((parts[0] + "." + parts[1]).getBytes(StandardCharsets.US_ASCII));
+        if (!verifier.verify(b64.decode(parts[2]))) {
+            throw new IllegalStateException("ID token signature is invalid");
+        }
+
+        JsonNode claims = objectMapper.readTree(b64.decode(parts[1]));
+        String issuer = text(claims, "iss");
+        // Google issues both forms of its issuer
+        if (issuer == null || !(issuer.equals(d.issuer()) || ("https://" + issuer).equals(d.issuer()))) {
+            throw new IllegalStateException("ID token has unexpected issuer " + issuer);
+        }
+        if (!googleClientId.equals(text(claims, "aud"))) {
+            throw new IllegalStateException("ID token is for another client");
+        }
+        if (TimeUnit.SECONDS.toMillis(claims.path("exp").asLong()) + CLOCK_SKEW_MILLIS < System.currentTimeMillis()) {
+            throw new IllegalStateException("ID token has expired");
+        }
+        return claims;
+    }
+
+    private Discovery discovery() throws IOException {
+        Discovery cached = discovery;
+        if (cached != null && cached.expiresAt() > System.currentTimeMillis()) {
+            return cached;
+        }
+        discoveryLock.lock();
+        try {
+            cached = discovery;
+            if (cached != null && cached.expiresAt() > System.currentTimeMillis()) {
+                return cached;
+            }
+            try {
+                HttpResponse<byte[]> response = upstreams.get(UpstreamClient.GOOGLE,
+                        "/.well-known/openid-configuration", Map.of());
+                JsonNode doc = json(UpstreamClient.GOOGLE, response);
+                discovery = new Discovery(text(doc, "issuer"), text(doc, "token_endpoint"), text(doc, "jwks_uri"),
+                        System.currentTimeMillis() + maxAge(response));
+                return discovery;
+            } catch (IOException e) {
+                if (cached != null) {
+                    return cached;
+                }
+                throw e;
+            }
+        } finally {
+            discoveryLock.unlock();
+        }
+    }
+
+    private SigningKeys keys(Discovery d, boolean force) throws IOException, GeneralSecurityException {
+        SigningKeys cached = signingKeys;
+        long now = System.currentTimeMillis();
+        if (cached != null && (force ? now - cached.fetchedAt() < MIN_KEY_REFETCH_MILLIS : cached.expiresAt() > now)) {
+            return cached;
+        }
+        keysLock.lock();
+        try {
+            cached = signingKeys;
+            now = System.currentTimeMillis();
+            if (cached != null && (force ? now - cached.fetchedAt() < MIN_KEY_REFETCH_MILLIS : cached.expiresAt() > now)) {
+                return cached;
+            }
+            try {
+                HttpResponse<byte[]> response = upstreams.get(UpstreamClient.GOOGLE, d.jwksUri(), Map.of());
+                Map<String, PublicKey> byId = new HashMap<>();
+                KeyFactory rsa = KeyFactory.getInstance("RSA");
+                Base64.Decoder b64 = Base64.getUrlDecoder();
+                for (JsonNode jwk : json(UpstreamClient.GOOGLE, response).path("keys")) {
+                    if ("RSA".equals(text(jwk, "kty")) && text(jwk, "kid") != null) {
+                        byId.put(text(jwk, "kid"), rsa.generatePublic(new RSAPublicKeySpec(
+                                new BigInteger(1, b64.decode(text(jwk, "n"))),
+                                new BigInteger(1, b64.decode(text(jwk, "e"))))));
+                    }
+                }
+                signingKeys = new SigningKeys(Map.copyOf(byId), now, now + maxAge(response));
+                return signingKeys;
+            } catch (IOException e) {
+                if (cached != null) {
+                    return cached;
+                }
+                throw e;
+            }
+        } finally {
+            keysLock.unlock();
+        }
+    }
+
+    private static long maxAge(HttpResponse<?> response) {
+        Matcher m = MAX_AGE.matcher(response.headers().firstValue("Cache-Control").orElse(""));
+        return m.find() ? TimeUnit.SECONDS.toMillis(Long.parseLong(m.group(1))) : DEFAULT_MAX_AGE_MILLIS;
+    }
+
+    private JsonNode json(String upstream, HttpResponse<byte[]> response) throws IOException {
+        if (response.statusCode() / 100 != 2) {
+            throw new UpstreamClient.UpstreamException(upstream + " returned HTTP " + response.statusCode());
+        }
+        return objectMapper.readTree(response.body());
+    }
+
+    private static String text(JsonNode node, String field) {
+        JsonNode value = node.get(field);
+        return value == null || value.isNull() ? null : value.asText();
+    }
+
+    private static <T> T await(Future<T> future) throws Exception {
+        try {
+            return future.get();
+        } catch (ExecutionException e) {
+            throw e.getCause() instanceof Exception cause ? cause : e;
+        }
+    }
+
+    @PreDestroy
+    void shutdown() {
+        fetchers.shutdownNow();
+    }
+}
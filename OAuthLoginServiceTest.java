@@ -0,0 +1,89 @@
+package com.learnforge.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.learnforge.entity.User;
+import com.learnforge.repository.UserLookupRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+class OAuthLoginServiceTest {
+
+    private UserLookupRepository userLookup;
+    private UserService userService;
+    private OAuthLoginService logins;
+
+    @BeforeEach
+    void setUp() {
+        userLookup = mock(UserLookupRepository.class);
+        userService = mock(UserService.class);
+        when(userLookup.findFirstByEmail(any())).thenReturn(Optional.empty());
+        when(userService.register(any())).thenAnswer(invocation -> {
+            User user = invocation.getArgument(0);
+            user.setUserId("id-" + user.getName());
+            return user;
+        });
+        logins = new OAuthLoginService(mock(UpstreamClient.class), new ObjectMapper(), userLookup, userService,
+                true, true, 0, 10, "", "", "", "", "postmessage");
+    }
+
+    @AfterEach
+    void tearDown() {
+        logins.shutdown();
+    }
+
+    private static User stored(String id, boolean admin) {
+        User user = new User();
+        user.setUserId(id);
+        user.setName("ada");
+        user.setEmail("ada@stub.learnforge.local");
+        user.setIsAdmin(admin);
+        return user;
+    }
+
+    @Test
+    void firstLoginRegistersTheStubUser() throws Exception {
+        User user = logins.login("stub", " Ada ");
+
+        assertEquals("id-ada", user.getUserId());
+        assertEquals("ada@stub.learnforge.local", user.getEmail());
+        verify(userService).register(any());
+    }
+
+    @Test
+    void repeatLoginReloadsTheUserSoAdminChangesShowUp() throws Exception {
+        logins.login("stub", "ada");
+        when(userService.getById("id-ada")).thenReturn(Optional.of(stored("id-ada", true)));
+
+        User again = logins.login("stub", "ada");
+
+        assertTrue(again.getIsAdmin());
+        verify(userService).getById("id-ada");
+        verify(userLookup, times(1)).findFirstByEmail(any());
+        verify(userService, times(1)).register(any());
+    }
+
+    @Test
+    void cachedIdForADeletedUserFallsBackToTheEmailLookup() throws Exception {
+        logins.login("stub", "ada");
+        when(userService.getById("id-ada")).thenReturn(Optional.empty());
+        when(userLookup.findFirstByEmail("ada@stub.learnforge.local")).thenReturn(Optional.of(stored("id-other", false)));
+
+        User again = logins.login("stub", "ada");
+
+        assertEquals("id-other", again.getUserId());
+        verify(userLookup, times(2)).findFirstByEmail(any());
+    }
+
+    @Test
+    void rejectsUnknownProvidersAndMissingCodes() {
+        assertThrows(IllegalArgumentException.class, () -> logins.login("myspace", "code"));
+        assertThrows(IllegalArgumentException.class, () -> logins.login("stub", " "));
+    }
+}
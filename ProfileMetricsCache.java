@@ -0,0 +1,257 @@
+package com.learnforge.service;
+
+import com.fasterxml.jackson.databind.JavaType;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Stale-while-revalidate cache of one platform's profile metrics, by handle.
+ * <p>
+ * Reads younger than {@code freshMillis} are served as is; older ones are
+ * served immediately while a background refresh runs, and only a miss (or an
+ * entry past {@code maxStaleMillis}) waits for the fetch. A miss is seeded from
+ * the platform service's own cache rather than a forced refresh, and the seeded
+ * entry is treated as due, so the next read or tick revalidates it in the
+ * background. Concurrent fetches of one handle share a single call. Every call,
+ * whatever triggered it, spends from a per-platform token bucket, but
+ * background refreshes leave the last {@code reservedPermits} tokens to reads a
+ * user is waiting on, so a busy refresh tick can't starve them. A handle is
+ * never re-synced within {@code minSyncMillis}; when a limit applies, the
+ * cached value is returned instead, or {@link ThrottledException} (a 429) if
+ * there is none. {@link #refreshActive()} re-fetches handles read within
+ * {@code activeWindowMillis}, each after a random delay so they don't hit the
+ * platform together. At most {@code maxEntries} handles are kept, least
+ * recently read first out. Entries are snapshotted to disk so a restart starts warm.
+ */
+public class ProfileMetricsCache<T> {
+
+    @FunctionalInterface
+    public interface Fetcher<T> {
+        T fetch(String handle) throws Exception;
+    }
+
+    public record Settings(long freshMillis, long maxStaleMillis, long minSyncMillis, long activeWindowMillis,
+                           long jitterMillis, int permitsPerMinute, int reservedPermits, int maxEntries) { }
+
+    @ResponseStatus(HttpStatus.TOO_MANY_REQUESTS)
+    public static class ThrottledException extends RuntimeException {
+        public ThrottledException(String message) {
+            super(message);
+        }
+    }
+
+    record SnapshotEntry<T>(String handle, T value, long fetchedAt, long lastAccess) { }
+
+    private final String platform;
+    private final Fetcher<T> seeder;
+    private final Fetcher<T> fetcher;
+    private final Settings settings;
+    private final ObjectMapper objectMapper;
+    private final JavaType snapshotType;
+    private final Path snapshotFile;
+    private final ScheduledExecutorService scheduler;
+    private final ExecutorService fetchers;
+    private final BoundedCache<String, Entry<T>> entries;
+    private final Map<String, CompletableFuture<T>> inFlight = new ConcurrentHashMap<>();
+    private final AtomicBoolean dirty = new AtomicBoolean();
+    private double tokens;
+    private long tokensAt = System.nanoTime();
+
+    public ProfileMetricsCache(String platform, Class<T> type, Fetcher<T> seeder, Fetcher<T> fetcher, Settings settings,
+                               ObjectMapper objectMapper, Path snapshotDir,
+                               ScheduledExecutorService scheduler, ExecutorService fetchers) {
+        this.platform = platform;
+        this.seeder = seeder;
+        this.fetcher = fetcher;
+        this.settings = settings;
+        this.objectMapper = objectMapper;
+        this.scheduler = scheduler;
+        this.fetchers = fetchers;
+        this.tokens = settings.permitsPerMinute();
+        // Entries leave by inactivity in refreshActive(); the TTL only backs that up
+        this.entries = new BoundedCache<>(settings.maxEntries(),
+                Math.max(settings.activeWindowMillis(), settings.maxStaleMillis()));
+        this.snapshotFile = snapshotDir.resolve(platform + ".json");
+        this.snapshotType = objectMapper.getTypeFactory().constructCollectionType(List.class,
+                objectMapper.getTypeFactory().constructParametricType(SnapshotEntry.class, type));
+        loadSnapshot();
+    }
+
+    public T get(String handle) throws Exception {
+        String key = key(handle);
+        Entry<T> entry = entries.get(key);
+        long now = System.currentTimeMillis();
+        if (entry == null) {
+            return await(fetch(handle, key, Source.SEED));
+        }
+        entry.lastAccess = now;
+        long age = now - entry.fetchedAt;
+        if (age >= settings.maxStaleMillis()) {
+            try {
+                return await(fetch(handle, key, Source.INTERACTIVE));
+            } catch (Exception e) {
+                // Too old to serve by choice, but better than an error
+                return entry.value;
+            }
+        }
+        if (age >= settings.freshMillis() && !inFlight.containsKey(key)) {
+            fetch(handle, key, Source.BACKGROUND);
+        }
+        return entry.value;
+    }
+
+    // Explicit sync: refetch unless the handle was just fetched or the platform budget is spent
+    public T sync(String handle) throws Exception {
+        String key = key(handle);
+        Entry<T> entry = entries.get(key);
+        if (entry != null) {
+            entry.lastAccess = System.currentTimeMillis();
+            if (System.currentTimeMillis() - entry.fetchedAt < settings.minSyncMillis()) {
+                return entry.value;
+            }
+            try {
+                return await(fetch(handle, key, Source.INTERACTIVE));
+            } catch (ThrottledException e) {
+                return entry.value;
+            }
+        }
+        return await(fetch(handle, key, Source.INTERACTIVE));
+    }
+
+    public void refreshActive() {
+        long now = System.currentTimeMillis();
+        for (Map.Entry<String, Entry<T>> e : entries.snapshot().entrySet()) {
+            Entry<T> entry = e.getValue();
+            if (now - entry.lastAccess > settings.activeWindowMillis()) {
+                // Nobody has looked at this handle in a while; stop tracking it
+                entries.invalidate(e.getKey());
+                dirty.set(true);
+                continue;
+            }
+            if (now - entry.fetchedAt >= settings.freshMillis() && !inFlight.containsKey(e.getKey())) {
+                long delay = ThreadLocalRandom.current().nextLong(Math.max(1, settings.jitterMillis()));
+                scheduler.schedule(() -> fetch(entry.handle, e.getKey(), Source.BACKGROUND), delay, TimeUnit.MILLISECONDS);
+            }
+        }
+    }
+
+    // Only the caller that starts a fetch pays for it; without budget the future fails with ThrottledException
+    private CompletableFuture<T> fetch(String handle, String key, Source source) {
+        CompletableFuture<T> mine = new CompletableFuture<>();
+        CompletableFuture<T> running = inFlight.putIfAbsent(key, mine);
+        if (running != null) {
+            return running;
+        }
+        if (!tryAcquire(source != Source.BACKGROUND)) {
+            inFlight.remove(key, mine);
+            mine.completeExceptionally(new ThrottledException(platform + " request budget is spent; try again shortly"));
+            return mine;
+        }
+        fetchers.execute(() -> {
+            try {
+                T value = (source == Source.SEED ? seeder : fetcher).fetch(handle);
+                long now = System.currentTimeMillis();
+                Entry<T> old = entries.get(key);
+                // The service's cache may be old itself, so a seeded value is already due for a refresh
+                Entry<T> fresh = new Entry<>(handle, value, source == Source.SEED ? now - settings.freshMillis() : now);
+                fresh.lastAccess = old == null ? now : old.lastAccess;
+                entries.put(key, fresh);
+                dirty.set(true);
+                mine.complete(value);
+            } catch (Exception e) {
+                System.err.println("❌ " + platform + " refresh failed for " + handle + ": " + e.getMessage());
+                mine.completeExceptionally(e);
+            } finally {
+                inFlight.remove(key, mine);
+            }
+        });
+        return mine;
+    }
+
+    private static <T> T await(CompletableFuture<T> future) throws Exception {
+        try {
+            return future.get();
+        } catch (ExecutionException e) {
+            throw e.getCause() instanceof Exception cause ? cause : e;
+        }
+    }
+
+    // Token bucket refilled continuously at permitsPerMinute; background calls stop short of the reserve
+    private synchronized boolean tryAcquire(boolean interactive) {
+        long now = System.nanoTime();
+        double perNano = settings.permitsPerMinute() / (double) TimeUnit.MINUTES.toNanos(1);
+        tokens = Math.min(settings.permitsPerMinute(), tokens + (now - tokensAt) * perNano);
+        tokensAt = now;
+        if (tokens < (interactive ? 1 : 1 + settings.reservedPermits())) {
+            return false;
+        }
+        tokens -= 1;
+        return true;
+    }
+
+    private static String key(String handle) {
+        return handle.trim().toLowerCase(Locale.ROOT);
+    }
+
+    public void writeSnapshot() {
+        if (!dirty.getAndSet(false)) {
+            return;
+        }
+        Collection<Entry<T>> current = entries.snapshot().values();
+        List<SnapshotEntry<T>> snapshot = new ArrayList<>(current.size());
+        for (Entry<T> entry : current) {
+            snapshot.add(new SnapshotEntry<>(entry.handle, entry.value, entry.fetchedAt, entry.lastAccess));
+        }
+        try {
+            Files.createDirectories(snapshotFile.getParent());
+            Path tmp = Files.createTempFile(snapshotFile.getParent(), platform, ".tmp");
+            objectMapper.writeValue(tmp.toFile(), snapshot);
+            Files.move(tmp, snapshotFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            dirty.set(true);
+            System.err.println("❌ Could not write " + platform + " metrics snapshot: " + e.getMessage());
+        }
+    }
+
+    private void loadSnapshot() {
+        if (!Files.exists(snapshotFile)) {
+            return;
+        }
+        try {
+            List<SnapshotEntry<T>> snapshot = objectMapper.readValue(snapshotFile.toFile(), snapshotType);
+            for (SnapshotEntry<T> stored : snapshot) {
+                Entry<T> entry = new Entry<>(stored.handle(), stored.value(), stored.fetchedAt());
+                entry.lastAccess = stored.lastAccess();
+                entries.put(key(stored.handle()), entry);
+            }
+        } catch (IOException e) {
+            System.err.println("❌ Ignoring unreadable " + platform + " metrics snapshot: " + e.getMessage());
+        }
+    }
+
+    // SEED and INTERACTIVE have a caller waiting; BACKGROUND is a revalidation nobody waits on
+    private enum Source { SEED, INTERACTIVE, BACKGROUND }
+
+    private static final class Entry<T> {
+        private final String handle;
+        private final T value;
+        private final long fetchedAt;
+        private volatile long lastAccess;
+
+        Entry(String handle, T value, long fetchedAt) {
+            this.handle = handle;
+            this.value = value;
+            this.fetchedAt = fetchedAt;
+            this.lastAccess = fetchedAt;
+        }
+    }
+}
@@ -0,0 +1,117 @@
+package com.learnforge.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.learnforge.dto.CodeChefMetricsDto;
+import com.learnforge.dto.GfgMetricsDto;
+import com.learnforge.dto.LeetCodeMetricsDto;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.env.Environment;
+import org.springframework.stereotype.Service;
+
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+/**
+ * The {@link ProfileMetricsCache}s for LeetCode, GFG and CodeChef, sharing one
+ * refresh scheduler. Active handles are revisited every
+ * {@code profile-metrics.refresh-interval-seconds} and snapshots are written on
+ * the same tick and on shutdown. Per-platform budgets are
+ * {@code profile-metrics.<platform>.permits-per-minute}, of which
+ * {@code profile-metrics.<platform>.reserved-permits} (a quarter by default)
+ * are kept for reads a user is waiting on, and each platform keeps at most
+ * {@code profile-metrics.max-handles} handles. Misses are seeded from each
+ * service's {@code getMetricsCached}; refreshes use {@code forceRefresh}.
+ */
+@Service
+public class ProfileMetricsService {
+
+    private final ScheduledExecutorService scheduler;
+    private final ExecutorService fetchers = Executors.newVirtualThreadPerTaskExecutor();
+    private final ProfileMetricsCache<LeetCodeMetricsDto> leetCode;
+    private final ProfileMetricsCache<GfgMetricsDto> gfg;
+    private final ProfileMetricsCache<CodeChefMetricsDto> codeChef;
+
+    public ProfileMetricsService(
+            LeetCodeService leetCodeService,
+            GfgService gfgService,
+            CodeChefService codeChefService,
+            ObjectMapper objectMapper,
+            Environment env,
+            @Value("${profile-metrics.fresh-minutes:15}") long freshMinutes,
+            @Value("${profile-metrics.max-stale-hours:24}") long maxStaleHours,
+            @Value("${profile-metrics.min-sync-seconds:60}") long minSyncSeconds,
+            @Value("${profile-metrics.active-days:7}") long activeDays,
+            @Value("${profile-metrics.refresh-interval-seconds:60}") long refreshIntervalSeconds,
+            @Value("${profile-metrics.max-handles:10000}") int maxHandles,
+            @Value("${profile-metrics.snapshot-dir:${java.io.tmpdir}/learnforge-profile-metrics}") String snapshotDir) {
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "profile-metrics-refresher");
+            t.setDaemon(true);
+            return t;
+        });
+        Path dir = Path.of(snapshotDir);
+        long jitterMillis = TimeUnit.SECONDS.toMillis(refreshIntervalSeconds);
+        Function<String, ProfileMetricsCache.Settings> settings = platform -> {
+            int permits = env.getProperty("profile-metrics." + platform + ".permits-per-minute", Integer.class, 20);
+            return new ProfileMetricsCache.Settings(
+                    TimeUnit.MINUTES.toMillis(freshMinutes),
+                    TimeUnit.HOURS.toMillis(maxStaleHours),
+                    TimeUnit.SECONDS.toMillis(minSyncSeconds),
+                    TimeUnit.DAYS.toMillis(activeDays),
+                    jitterMillis,
+                    permits,
+                    env.getProperty("profile-metrics." + platform + ".reserved-permits", Integer.class, permits / 4),
+                    maxHandles);
+        };
+
+        this.leetCode = new ProfileMetricsCache<>("leetcode", LeetCodeMetricsDto.class,
+                leetCodeService::getMetricsCached, leetCodeService::forceRefresh,
+                settings.apply("leetcode"), objectMapper, dir, scheduler, fetchers);
+        this.gfg = new ProfileMetricsCache<>("gfg", GfgMetricsDto.class,
+                gfgService::getMetricsCached, gfgService::forceRefresh,
+                settings.apply("gfg"), objectMapper, dir, scheduler, fetchers);
+        this.codeChef = new ProfileMetricsCache<>("codechef", CodeChefMetricsDto.class,
+                codeChefService::getMetricsCached, codeChefService::forceRefresh,
+                settings.apply("codechef"), objectMapper, dir, scheduler, fetchers);
+
+        scheduler.scheduleWithFixedDelay(this::tick, refreshIntervalSeconds, refreshIntervalSeconds, TimeUnit.SECONDS);
+    }
+
+    public ProfileMetricsCache<LeetCodeMetricsDto> leetCode() {
+        return leetCode;
+    }
+
+    public ProfileMetricsCache<GfgMetricsDto> gfg() {
+        return gfg;
+    }
+
+    public ProfileMetricsCache<CodeChefMetricsDto> codeChef() {
+        return codeChef;
+    }
+
+    private void tick() {
+        for (ProfileMetricsCache<?> cache : List.of(leetCode, gfg, codeChef)) {
+            try {
+                cache.refreshActive();
+                cache.writeSnapshot();
+            } catch (RuntimeException e) {
+                System.err.println("❌ Profile metrics refresh tick failed: " + e.getMessage());
+            }
+        }
+    }
+
+    @PreDestroy
+    void shutdown() {
+        scheduler.shutdownNow();
+        fetchers.shutdownNow();
+        leetCode.writeSnapshot();
+        gfg.writeSnapshot();
+        codeChef.writeSnapshot();
+    }
+}
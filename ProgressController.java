@@ -2,6 +2,7 @@ package com.learnforge.controller;
 
 import com.learnforge.entity.Progress;
 import com.learnforge.service.ProgressService;
+import com.learnforge.service.ProgressSummaryCache;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
@@ -17,13 +18,16 @@ public class ProgressController {
     @Autowired
     private ProgressService progressService;
 
+    @Autowired
+    private ProgressSummaryCache progressSummaryCache;
+
     // Get user's progress for a specific course
     @GetMapping("/user/{userId}/course/{courseId}")
     public ResponseEntity<?> getUserCourseProgress(
             @PathVariable String userId,
             @PathVariable Long courseId) {
         try {
-            Progress progress = progressService.getUserCourseProgress(userId, courseId);
+            Progress progress = progressSummaryCache.getCourseProgress(userId, courseId);
             return ResponseEntity.ok(progress);
         } catch (Exception e) {
             return ResponseEntity.badRequest().body("Error: " + e.getMessage());
@@ -34,7 +38,7 @@ public class ProgressController {
     @GetMapping("/user/{userId}")
     public ResponseEntity<?> getAllUserProgress(@PathVariable String userId) {
         try {
-            List<Progress> progressList = progressService.getAllUserProgress(userId);
+            List<Progress> progressList = progressSummaryCache.getAllProgress(userId);
             return ResponseEntity.ok(progressList);
         } catch (Exception e) {
             return ResponseEntity.badRequest().body("Error: " + e.getMessage());
@@ -50,6 +54,7 @@ public class ProgressController {
             Integer lessonId = (Integer) request.get("lessonId");
 
             Progress progress = progressService.markLessonComplete(userId, courseId, lessonId);
+            progressSummaryCache.courseProgressChanged(userId, progress);
             return ResponseEntity.ok(progress);
         } catch (Exception e) {
             return ResponseEntity.badRequest().body("Error: " + e.getMessage());
@@ -65,6 +70,7 @@ public class ProgressController {
             Integer lessonId = (Integer) request.get("lessonId");
 
             Progress progress = progressService.markLessonIncomplete(userId, courseId, lessonId);
+            progressSummaryCache.courseProgressChanged(userId, progress);
             return ResponseEntity.ok(progress);
         } catch (Exception e) {
             return ResponseEntity.badRequest().body("Error: " + e.getMessage());
@@ -75,7 +81,7 @@ public class ProgressController {
     @GetMapping("/user/{userId}/summary")
     public ResponseEntity<?> getProgressSummary(@PathVariable String userId) {
         try {
-            Map<String, Object> summary = progressService.getProgressSummary(userId);
+            Map<String, Object> summary = progressSummaryCache.getSummary(userId);
             return ResponseEntity.ok(summary);
         } catch (Exception e) {
             return ResponseEntity.badRequest().body("Error: " + e.getMessage());
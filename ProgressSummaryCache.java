@@ -0,0 +1,177 @@
+package com.learnforge.service;
+
+import com.learnforge.entity.LessonProgress;
+import com.learnforge.entity.Progress;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Per-user dashboard progress, materialised once and kept current.
+ * <p>
+ * Each user's entry holds their course {@link Progress} rows by course id, the
+ * dashboard {@link LessonProgress} list and the summary map; each part is
+ * loaded lazily on first use. Changes are applied in place: marking a lesson
+ * complete or incomplete swaps in the returned course row, and a folded lesson
+ * progress event swaps in the returned lesson row. Only the summary map, which
+ * comes whole from {@link ProgressService}, is dropped and rebuilt on next use.
+ * Every change bumps the entry's version under the entry's lock, and a lazy
+ * load only stores its result if the version is still the one it started from,
+ * so a load that overlaps a change can't install a stale snapshot. Entries
+ * live in a bounded LRU with a TTL ({@code progress.summary-cache.max-users},
+ * {@code .ttl-minutes}).
+ */
+@Service
+public class ProgressSummaryCache {
+
+    private final ProgressService progressService;
+    private final LessonProgressService lessonProgressService;
+    private final BoundedCache<String, UserEntry> users;
+
+    public ProgressSummaryCache(
+            ProgressService progressService,
+            LessonProgressService lessonProgressService,
+            @Value("${progress.summary-cache.max-users:10000}") int maxUsers,
+            @Value("${progress.summary-cache.ttl-minutes:30}") long ttlMinutes) {
+        this.progressService = progressService;
+        this.lessonProgressService = lessonProgressService;
+        this.users = new BoundedCache<>(maxUsers, TimeUnit.MINUTES.toMillis(ttlMinutes));
+    }
+
+    public Progress getCourseProgress(String userId, Long courseId) {
+        Map<Long, Progress> courses = courses(entry(userId), userId);
+        Progress progress = courses.get(courseId);
+        if (progress == null) {
+            progress = progressService.getUserCourseProgress(userId, courseId);
+            if (progress != null) {
+                // A row swapped in by a concurrent change is newer than ours
+                Progress current = courses.putIfAbsent(courseId, progress);
+                progress = current != null ? current : progress;
+            }
+        }
+        return progress;
+    }
+
+    public List<Progress> getAllProgress(String userId) {
+        return new ArrayList<>(courses(entry(userId), userId).values());
+    }
+
+    public Map<String, Object> getSummary(String userId) {
+        UserEntry entry = entry(userId);
+        Map<String, Object> summary = entry.summary;
+        if (summary == null) {
+            long version = entry.version.get();
+            summary = new LinkedHashMap<>(progressService.getProgressSummary(userId));
+            // Don't store a summary that a concurrent update has already made stale
+            synchronized (entry) {
+                if (entry.version.get() == version) {
+                    entry.summary = summary;
+                }
+            }
+        }
+        return summary;
+    }
+
+    public List<LessonProgress> getLessonProgress(String userId) {
+        UserEntry entry = entry(userId);
+        List<LessonProgress> lessons = entry.lessons;
+        if (lessons == null) {
+            long version = entry.version.get();
+            lessons = List.copyOf(lessonProgressService.getProgressByUserId(userId));
+            synchronized (entry) {
+                if (entry.version.get() == version) {
+                    entry.lessons = lessons;
+                }
+            }
+        }
+        return lessons;
+    }
+
+    // markLessonComplete / markLessonIncomplete returned the new row for one course
+    public void courseProgressChanged(String userId, Progress progress) {
+        UserEntry entry = users.get(userId);
+        if (entry == null) {
+            return;
+        }
+        synchronized (entry) {
+            if (entry.courses != null) {
+                if (progress != null) {
+                    entry.courses.put(progress.getCourseId(), progress);
+                } else {
+                    entry.courses = null;
+                }
+            }
+            entry.version.incrementAndGet();
+            entry.summary = null;
+        }
+    }
+
+    // A lesson progress event was folded into this row
+    public void lessonProgressChanged(String userId, LessonProgress progress) {
+        UserEntry entry = users.get(userId);
+        if (entry == null) {
+            return;
+        }
+        synchronized (entry) {
+            List<LessonProgress> lessons = entry.lessons;
+            if (lessons != null) {
+                entry.lessons = progress != null ? replace(lessons, progress) : null;
+            }
+            entry.version.incrementAndGet();
+            entry.summary = null;
+        }
+    }
+
+    private static List<LessonProgress> replace(List<LessonProgress> lessons, LessonProgress progress) {
+        List<LessonProgress> updated = new ArrayList<>(lessons.size() + 1);
+        boolean replaced = false;
+        for (LessonProgress lesson : lessons) {
+            if (Objects.equals(lesson.getLessonId(), progress.getLessonId())) {
+                updated.add(progress);
+                replaced = true;
+            } else {
+                updated.add(lesson);
+            }
+        }
+        if (!replaced) {
+            updated.add(progress);
+        }
+        return List.copyOf(updated);
+    }
+
+    public void invalidate(String userId) {
+        users.invalidate(userId);
+    }
+
+    private UserEntry entry(String userId) {
+        return users.getOrLoad(userId, id -> new UserEntry());
+    }
+
+    private Map<Long, Progress> courses(UserEntry entry, String userId) {
+        Map<Long, Progress> courses = entry.courses;
+        if (courses == null) {
+            long version = entry.version.get();
+            courses = new ConcurrentHashMap<>();
+            for (Progress progress : progressService.getAllUserProgress(userId)) {
+                courses.put(progress.getCourseId(), progress);
+            }
+            synchronized (entry) {
+                if (entry.version.get() == version) {
+                    entry.courses = courses;
+                }
+            }
+        }
+        return courses;
+    }
+
+    private static final class UserEntry {
+        private volatile Map<Long, Progress> courses;
+        private volatile Map<String, Object> summary;
+        private volatile List<LessonProgress> lessons;
+        private final AtomicLong version = new AtomicLong();
+    }
+}
@@ -1,11 +1,16 @@
 package com.learnforge.controller;
 
 import com.learnforge.model.Question;
-import com.learnforge.service.QuestionService;
+import com.learnforge.service.AuthTokenService;
+import com.learnforge.service.QuestionPoolCache;
+import jakarta.servlet.http.HttpServletRequest;
 import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
 import java.util.List;
+import java.util.Map;
 
 @RestController
 @RequestMapping("/arena")
@@ -13,13 +18,36 @@ import java.util.List;
 @CrossOrigin(origins = {"http://localhost:3000", "http://localhost:5173"})
 public class QuestionController {
 
-    private final QuestionService questionService;
+    private final QuestionPoolCache questionPoolCache;
+    private final AuthTokenService authTokens;
 
     @GetMapping("/questions")
     public List<Question> getQuestions(
             @RequestParam String topic,
             @RequestParam String difficulty,
             @RequestParam(defaultValue = "10") int limit) {
-        return questionService.getRandomQuestions(topic, difficulty, limit);
+        return questionPoolCache.getRandomQuestions(topic, difficulty, limit);
+    }
+
+    @GetMapping("/questions/cache/stats")
+    public Map<String, Object> getCacheStats() {
+        return questionPoolCache.stats();
+    }
+
+    // Admin only: drop one (topic, difficulty) pool, or every pool when either is omitted
+    @PostMapping("/questions/cache/refresh")
+    public ResponseEntity<?> refreshCache(
+            @RequestParam(required = false) String topic,
+            @RequestParam(required = false) String difficulty,
+            HttpServletRequest request) {
+        AuthTokenService.Claims claims = authTokens.authenticate(request);
+        if (claims == null) {
+            return ResponseEntity.status(HttpStatus.UNAUTHORIZED).body(Map.of("error", "Not authenticated"));
+        }
+        if (!claims.admin()) {
+            return ResponseEntity.status(HttpStatus.FORBIDDEN).body(Map.of("error", "Admins only"));
+        }
+        questionPoolCache.invalidate(topic, difficulty);
+        return ResponseEntity.ok(questionPoolCache.stats());
     }
 }
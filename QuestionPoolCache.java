@@ -0,0 +1,223 @@
+package com.learnforge.service;
+
+import com.learnforge.model.Question;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * In-memory question pools keyed by (topic, difficulty).
+ * <p>
+ * Each pool is an immutable array loaded once through {@link QuestionService};
+ * sampling picks distinct indices without replacement (Floyd's algorithm for the
+ * usual small counts, a partial Fisher-Yates otherwise) so a match start never
+ * goes to the database. Pools older than {@code arena.questions.pool-ttl-minutes}
+ * are still served while a background reload runs. Questions are edited outside
+ * this service, so edits show up once the pool is reloaded; an admin who needs
+ * them sooner can drop pools through {@code /arena/questions/cache/refresh}.
+ * <p>
+ * Keys come from the request, so at most {@code arena.questions.max-pools}
+ * pools are kept (least recently used out). Concurrent misses on one key share
+ * a single load, which runs outside any lock.
+ */
+@Service
+public class QuestionPoolCache {
+
+    private static final int FLOYD_LIMIT = 64;
+
+    private final QuestionService questionService;
+    private final int maxPoolSize;
+    private final long ttlMillis;
+    private final BoundedCache<PoolKey, Pool> pools;
+    private final Map<PoolKey, CompletableFuture<Pool>> inFlight = new ConcurrentHashMap<>();
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder reloads = new LongAdder();
+    private final ExecutorService reloader = Executors.newSingleThreadExecutor(r -> {
+        Thread t = new Thread(r, "question-pool-reloader");
+        t.setDaemon(true);
+        return t;
+    });
+
+    public QuestionPoolCache(
+            QuestionService questionService,
+            @Value("${arena.questions.pool-max:5000}") int maxPoolSize,
+            @Value("${arena.questions.pool-ttl-minutes:10}") long ttlMinutes,
+            @Value("${arena.questions.max-pools:200}") int maxPools) {
+        this.questionService = questionService;
+        this.maxPoolSize = maxPoolSize;
+        this.ttlMillis = TimeUnit.MINUTES.toMillis(ttlMinutes);
+        // Stale pools are reloaded in the background here, so the cache itself never expires them
+        this.pools = new BoundedCache<>(maxPools, Long.MAX_VALUE);
+    }
+
+    public List<Question> getRandomQuestions(String topic, String difficulty, int count) {
+        PoolKey key = PoolKey.of(topic, difficulty);
+        Pool pool = pools.get(key);
+        if (pool == null) {
+            misses.increment();
+            pool = loadShared(key);
+        } else {
+            hits.increment();
+            if (System.currentTimeMillis() - pool.loadedAt > ttlMillis) {
+                reloadAsync(key, pool);
+            }
+        }
+        return sample(pool.questions, count);
+    }
+
+    public void invalidate(String topic, String difficulty) {
+        if (topic == null || difficulty == null) {
+            pools.invalidateAll();
+        } else {
+            pools.invalidate(PoolKey.of(topic, difficulty));
+        }
+    }
+
+    public Map<String, Object> stats() {
+        long hitCount = hits.sum();
+        long missCount = misses.sum();
+        long total = hitCount + missCount;
+        Map<String, Object> stats = new LinkedHashMap<>();
+        Collection<Pool> current = pools.snapshot().values();
+        stats.put("pools", current.size());
+        stats.put("questions", current.stream().mapToInt(p -> p.questions.length).sum());
+        stats.put("hits", hitCount);
+        stats.put("misses", missCount);
+        stats.put("hitRate", total == 0 ? 0.0 : (double) hitCount / total);
+        stats.put("reloads", reloads.sum());
+        return stats;
+    }
+
+    private Pool loadShared(PoolKey key) {
+        CompletableFuture<Pool> mine = new CompletableFuture<>();
+        CompletableFuture<Pool> running = inFlight.putIfAbsent(key, mine);
+        if (running != null) {
+            try {
+                return running.join();
+            } catch (CompletionException e) {
+                throw e.getCause() instanceof RuntimeException cause ? cause : e;
+            }
+        }
+        try {
+            Pool pool = load(key);
+            pools.put(key, pool);
+            mine.complete(pool);
+            return pool;
+        } catch (RuntimeException e) {
+            mine.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(key, mine);
+        }
+    }
+
+    private Pool load(PoolKey key) {
+        List<Question> questions = questionService.getRandomQuestions(key.topic(), key.difficulty(), maxPoolSize);
+        return new Pool(questions.toArray(new Question[0]), System.currentTimeMillis());
+    }
+
+    private void reloadAsync(PoolKey key, Pool stale) {
+        if (!stale.reloading.compareAndSet(false, true)) {
+            return;
+        }
+        reloader.execute(() -> {
+            try {
+                pools.put(key, load(key));
+                reloads.increment();
+            } catch (RuntimeException e) {
+                stale.reloading.set(false);
+                System.err.println("❌ Question pool reload failed for " + key + ": " + e.getMessage());
+            }
+        });
+    }
+
+    // Uniform sample of count distinct questions, in random order
+    static List<Question> sample(Question[] pool, int count) {
+        int n = pool.length;
+        int k = Math.max(0, Math.min(count, n));
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        int[] picked = new int[k];
+
+        if (k <= FLOYD_LIMIT) {
+            int size = 0;
+            for (int j = n - k; j < n; j++) {
+                int t = random.nextInt(j + 1);
+                picked[size] = contains(picked, size, t) ? j : t;
+                size++;
+            }
+            // Floyd's picks are uniform as a set; shuffle for a uniform order too
+            for (int i = k - 1; i > 0; i--) {
+                int swap = random.nextInt(i + 1);
+                int tmp = picked[i];
+                picked[i] = picked[swap];
+                picked[swap] = tmp;
+            }
+        } else {
+            int[] indices = new int[n];
+            for (int i = 0; i < n; i++) {
+                indices[i] = i;
+            }
+            for (int i = 0; i < k; i++) {
+                int swap = i + random.nextInt(n - i);
+                int tmp = indices[i];
+                indices[i] = indices[swap];
+                indices[swap] = tmp;
+                picked[i] = indices[i];
+            }
+        }
+
+        List<Question> sample = new ArrayList<>(k);
+        for (int index : picked) {
+            sample.add(pool[index]);
+        }
+        return sample;
+    }
+
+    private static boolean contains(int[] values, int length, int value) {
+        for (int i = 0; i < length; i++) {
+            if (values[i] == value) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    @PreDestroy
+    void shutdown() {
+        reloader.shutdownNow();
+    }
+
+    private record PoolKey(String topic, String difficulty) {
+
+        static PoolKey of(String topic, String difficulty) {
+            return new PoolKey(normalize(topic), normalize(difficulty));
+        }
+
+        private static String normalize(String value) {
+            return value == null ? "" : value.trim().toLowerCase(Locale.ROOT);
+        }
+    }
+
+    private static final class Pool {
+        private final Question[] questions;
+        private final long loadedAt;
+        private final AtomicBoolean reloading = new AtomicBoolean();
+
+        Pool(Question[] questions, long loadedAt) {
+            this.questions = questions;
+            this.loadedAt = loadedAt;
+        }
+    }
+}
@@ -0,0 +1,240 @@
+package com.learnforge.service;
+
+import java.util.*;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Supplier;
+
+/**
+ * In-memory ranking ordered by score (highest first), then key.
+ * <p>
+ * Backed by an order-statistic treap: upsert, remove, rank lookup and
+ * "entry at position i" are all O(log n); a page of {@code k} entries is
+ * O(k log n). One read/write lock per board; boards are independent.
+ */
+public class RankedBoard<T> {
+
+    public record Entry<T>(int rank, String key, long score, T payload) { }
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Map<String, Node<T>> byKey = new HashMap<>();
+    private Node<T> root;
+
+    // Replace the key's score and payload
+    public void put(String key, long score, T payload) {
+        lock.writeLock().lock();
+        try {
+            Node<T> existing = byKey.remove(key);
+            if (existing != null) {
+                root = delete(root, existing.score, key);
+            }
+            Node<T> node = new Node<>(key, score, payload);
+            byKey.put(key, node);
+            root = insert(root, node);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // Add to the key's score, creating the entry with payloadIfAbsent on first sight
+    public long add(String key, long delta, Supplier<T> payloadIfAbsent) {
+        lock.writeLock().lock();
+        try {
+            Node<T> existing = byKey.remove(key);
+            long score = delta;
+            T payload;
+            if (existing != null) {
+                root = delete(root, existing.score, key);
+                score += existing.score;
+                payload = existing.payload;
+            } else {
+                payload = payloadIfAbsent.get();
+            }
+            Node<T> node = new Node<>(key, score, payload);
+            byKey.put(key, node);
+            root = insert(root, node);
+            return score;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void remove(String key) {
+        lock.writeLock().lock();
+        try {
+            Node<T> existing = byKey.remove(key);
+            if (existing != null) {
+                root = delete(root, existing.score, key);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // 1-based rank, or empty if the key is not on the board
+    public Optional<Entry<T>> find(String key) {
+        lock.readLock().lock();
+        try {
+            Node<T> node = byKey.get(key);
+            if (node == null) {
+                return Optional.empty();
+            }
+            return Optional.of(new Entry<>(countBefore(node.score, key) + 1, key, node.score, node.payload));
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public List<Entry<T>> page(int offset, int limit) {
+        lock.readLock().lock();
+        try {
+            int end = (int) Math.min(size(root), (long) offset + limit);
+            List<Entry<T>> entries = new ArrayList<>(Math.max(0, end - offset));
+            for (int i = Math.max(0, offset); i < end; i++) {
+                Node<T> node = select(root, i);
+                entries.add(new Entry<>(i + 1, node.key, node.score, node.payload));
+            }
+            return entries;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return size(root);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // --- treap internals, callers hold the lock ---
+
+    private static <T> int compare(long score, String key, Node<T> node) {
+        if (score != node.score) {
+            return score > node.score ? -1 : 1;
+        }
+        return key.compareTo(node.key);
+    }
+
+    private int countBefore(long score, String key) {
+        int count = 0;
+        Node<T> node = root;
+        while (node != null) {
+            int cmp = compare(score, key, node);
+            if (cmp <= 0) {
+                if (cmp == 0) {
+                    return count + size(node.left);
+                }
+                node = node.left;
+            } else {
+                count += size(node.left) + 1;
+                node = node.right;
+            }
+        }
+        return count;
+    }
+
+    private Node<T> select(Node<T> node, int index) {
+        while (node != null) {
+            int leftSize = size(node.left);
+            if (index < leftSize) {
+                node = node.left;
+            } else if (index == leftSize) {
+                return node;
+            } else {
+                index -= leftSize + 1;
+                node = node.right;
+            }
+        }
+        throw new IndexOutOfBoundsException("No entry at " + index);
+    }
+
+    private Node<T> insert(Node<T> node, Node<T> added) {
+        if (node == null) {
+            return added;
+        }
+        if (compare(added.score, added.key, node) < 0) {
+            node.left = insert(node.left, added);
+            if (node.left.priority > node.priority) {
+                node = rotateRight(node);
+            }
+        } else {
+            node.right = insert(node.right, added);
+            if (node.right.priority > node.priority) {
+                node = rotateLeft(node);
+            }
+        }
+        return update(node);
+    }
+
+    private Node<T> delete(Node<T> node, long score, String key) {
+        if (node == null) {
+            return null;
+        }
+        int cmp = compare(score, key, node);
+        if (cmp < 0) {
+            node.left = delete(node.left, score, key);
+        } else if (cmp > 0) {
+            node.right = delete(node.right, score, key);
+        } else {
+            return merge(node.left, node.right);
+        }
+        return update(node);
+    }
+
+    private Node<T> merge(Node<T> left, Node<T> right) {
+        if (left == null) {
+            return right;
+        }
+        if (right == null) {
+            return left;
+        }
+        if (left.priority > right.priority) {
+            left.right = merge(left.right, right);
+            return update(left);
+        }
+        right.left = merge(left, right.left);
+        return update(right);
+    }
+
+    private Node<T> rotateRight(Node<T> node) {
+        Node<T> pivot = node.left;
+        node.left = pivot.right;
+        pivot.right = update(node);
+        return update(pivot);
+    }
+
+    private Node<T> rotateLeft(Node<T> node) {
+        Node<T> pivot = node.right;
+        node.right = pivot.left;
+        pivot.left = update(node);
+        return update(pivot);
+    }
+
+    private static <T> int size(Node<T> node) {
+        return node == null ? 0 : node.size;
+    }
+
+    private static <T> Node<T> update(Node<T> node) {
+        node.size = 1 + size(node.left) + size(node.right);
+        return node;
+    }
+
+    private static final class Node<T> {
+        private final String key;
+        private final long score;
+        private final T payload;
+        private final int priority = ThreadLocalRandom.current().nextInt();
+        private Node<T> left;
+        private Node<T> right;
+        private int size = 1;
+
+        Node(String key, long score, T payload) {
+            this.key = key;
+            this.score = score;
+            this.payload = payload;
+        }
+    }
+}
@@ -0,0 +1,82 @@
+package com.learnforge.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.*;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RankedBoardTest {
+
+    @Test
+    void ranksAndPagesMatchASortedList() {
+        RankedBoard<String> board = new RankedBoard<>();
+        Map<String, Long> expected = new HashMap<>();
+        Random random = new Random(42);
+        for (int i = 0; i < 5_000; i++) {
+            String key = "u" + random.nextInt(500);
+            switch (random.nextInt(3)) {
+                case 0 -> {
+                    long score = random.nextInt(1_000);
+                    board.put(key, score, key);
+                    expected.put(key, score);
+                }
+                case 1 -> {
+                    long delta = random.nextInt(50);
+                    board.add(key, delta, () -> key);
+                    expected.merge(key, delta, Long::sum);
+                }
+                default -> {
+                    board.remove(key);
+                    expected.remove(key);
+                }
+            }
+        }
+
+        List<Map.Entry<String, Long>> sorted = new ArrayList<>(expected.entrySet());
+        sorted.sort(Map.Entry.<String, Long>comparingByValue().reversed().thenComparing(Map.Entry.comparingByKey()));
+
+        assertEquals(sorted.size(), board.size());
+        List<RankedBoard.Entry<String>> all = board.page(0, sorted.size());
+        for (int i = 0; i < sorted.size(); i++) {
+            RankedBoard.Entry<String> entry = all.get(i);
+            assertEquals(sorted.get(i).getKey(), entry.key());
+            assertEquals(sorted.get(i).getValue(), entry.score());
+            assertEquals(i + 1, entry.rank());
+            assertEquals(entry, board.find(entry.key()).orElseThrow());
+        }
+        assertEquals(all.subList(10, 20), board.page(10, 10));
+    }
+
+    @Test
+    void pagesPastTheEndAreEmpty() {
+        RankedBoard<String> board = new RankedBoard<>();
+        board.put("a", 1, "a");
+        assertTrue(board.page(5, 10).isEmpty());
+        assertTrue(board.page(Integer.MAX_VALUE, 500).isEmpty());
+        assertTrue(board.find("b").isEmpty());
+    }
+
+    @Test
+    void concurrentAddsAreNotLost() throws Exception {
+        RankedBoard<String> board = new RankedBoard<>();
+        ExecutorService pool = Executors.newFixedThreadPool(8);
+        for (int t = 0; t < 8; t++) {
+            pool.submit(() -> {
+                for (int i = 0; i < 10_000; i++) {
+                    board.add("u" + (i % 10), 1, () -> "payload");
+                }
+            });
+        }
+        pool.shutdown();
+        assertTrue(pool.awaitTermination(30, TimeUnit.SECONDS));
+
+        assertEquals(10, board.size());
+        for (RankedBoard.Entry<String> entry : board.page(0, 10)) {
+            assertEquals(8_000, entry.score());
+        }
+    }
+}
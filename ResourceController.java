@@ -2,14 +2,20 @@ package com.learnforge.controller;
 
 import com.learnforge.entity.Lesson;
 import com.learnforge.entity.Resource;
-import com.learnforge.repository.LessonRepository;
+import com.learnforge.repository.CourseContentRepository;
+import com.learnforge.service.CourseAggregatesService;
 import com.learnforge.service.ResourceService;
-import com.learnforge.service.ScraperService;
+import com.learnforge.service.ScrapeJobService;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
 import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.TimeoutException;
 
 @RestController
 @RequestMapping("/courses/{courseId}/lessons/{lessonId}/resources")
@@ -20,10 +26,13 @@ public class ResourceController {
     private ResourceService resourceService;
 
     @Autowired
-    private LessonRepository lessonRepository;
+    private CourseContentRepository courseContent;
 
     @Autowired
-    private ScraperService scraperService;
+    private ScrapeJobService scrapeJobService;
+
+    @Autowired
+    private CourseAggregatesService courseAggregates;
 
     // ✅ GET all resources for a lesson
     @GetMapping
@@ -48,11 +57,15 @@ public class ResourceController {
         System.out.println("   - Type: " + resource.getType());
         System.out.println("   - URL: " + resource.getUrl());
 
-        Lesson lesson = lessonRepository.findById(lessonId)
-                .orElseThrow(() -> new RuntimeException("Lesson not found with id " + lessonId));
-        resource.setLesson(lesson);
+        // The course aggregates are keyed by the path courseId, so it has to own the lesson
+        Optional<Lesson> lesson = courseContent.findByLessonIdAndCourseCourseId(lessonId, courseId);
+        if (lesson.isEmpty()) {
+            return ResponseEntity.notFound().build();
+        }
+        resource.setLesson(lesson.get());
 
         Resource saved = resourceService.addResource(resource);
+        courseAggregates.resourcesAdded(courseId, 1);
         return ResponseEntity.ok(saved);
     }
 
@@ -64,27 +77,40 @@ public class ResourceController {
             @PathVariable Long resourceId) {
 
         System.out.println("🎯 DELETE resource: " + resourceId);
+        if (!courseContent.resourceBelongsTo(resourceId, lessonId, courseId)) {
+            return ResponseEntity.notFound().build();
+        }
         resourceService.deleteResource(resourceId);
+        courseAggregates.resourceDeleted(courseId);
         return ResponseEntity.noContent().build();
     }
 
     // ✅ AUTO-FETCH new resources using the scraper
     @PostMapping("/auto-fetch")
-    public ResponseEntity<List<Resource>> autoFetchResources(
+    public CompletableFuture<ResponseEntity<List<Resource>>> autoFetchResources(
             @PathVariable Long courseId,
             @PathVariable Long lessonId) {
 
         System.out.println("🤖 AUTO-FETCH /courses/" + courseId + "/lessons/" + lessonId + "/resources");
 
-        Lesson lesson = lessonRepository.findById(lessonId)
-                .orElseThrow(() -> new RuntimeException("Lesson not found with id " + lessonId));
-
-        // Use the scraper service to get mapped Resource entities
-        List<Resource> scraped = scraperService.fetchAndMapResources(lesson.getLessonName(), lesson);
-
-        // Save in DB
-        resourceService.saveAll(scraped);
-
-        return ResponseEntity.ok(scraped);
+        Optional<Lesson> lesson = courseContent.findByLessonIdAndCourseCourseId(lessonId, courseId);
+        if (lesson.isEmpty()) {
+            return CompletableFuture.completedFuture(ResponseEntity.notFound().build());
+        }
+
+        // Scrape with the job limits and timeout; only URLs the lesson doesn't already have are saved.
+        // Returned as a future so the request thread is released while the scrape runs.
+        return scrapeJobService.scrapeAsync(courseId, lesson.get())
+                .thenApply(ResponseEntity::ok)
+                .exceptionally(e -> {
+                    Throwable cause = e instanceof CompletionException && e.getCause() != null ? e.getCause() : e;
+                    if (cause instanceof TimeoutException) {
+                        return ResponseEntity.status(HttpStatus.GATEWAY_TIMEOUT).build();
+                    }
+                    if (cause instanceof InterruptedException) {
+                        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).build();
+                    }
+                    throw cause instanceof RuntimeException runtime ? runtime : new CompletionException(cause);
+                });
     }
 }
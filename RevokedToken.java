@@ -0,0 +1,24 @@
+package com.learnforge.entity;
+
+import jakarta.persistence.*;
+import lombok.Data;
+
+/**
+ * A logged-out login token, shared by every node through the
+ * {@code revoked_tokens} table. Rows are only needed until the token would
+ * have expired anyway and are pruned after that.
+ */
+@Data
+@Entity
+@Table(name = "revoked_tokens", indexes = {@Index(columnList = "revokedAt"), @Index(columnList = "expiresAt")})
+public class RevokedToken {
+
+    @Id
+    private String tokenId;
+
+    @Column(nullable = false)
+    private Long expiresAt;
+
+    @Column(nullable = false)
+    private Long revokedAt;
+}
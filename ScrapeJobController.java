@@ -0,0 +1,58 @@
+package com.learnforge.controller;
+
+import com.learnforge.dto.ScrapeJobStatus;
+import com.learnforge.service.ScrapeJobService;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.net.URI;
+import java.util.NoSuchElementException;
+
+@RestController
+@RequestMapping("/scrape-jobs")
+@CrossOrigin(origins = {"http://localhost:3000", "http://localhost:5173"})
+public class ScrapeJobController {
+
+    private final ScrapeJobService scrapeJobService;
+
+    public ScrapeJobController(ScrapeJobService scrapeJobService) {
+        this.scrapeJobService = scrapeJobService;
+    }
+
+    // 🤖 Refresh resources for every lesson in a course
+    @PostMapping("/courses/{courseId}")
+    public ResponseEntity<ScrapeJobStatus> scrapeCourse(@PathVariable Long courseId) {
+        System.out.println("🤖 SCRAPE JOB for course " + courseId);
+        try {
+            return accepted(scrapeJobService.submitCourse(courseId));
+        } catch (NoSuchElementException e) {
+            return ResponseEntity.notFound().build();
+        }
+    }
+
+    // 🤖 Refresh resources for a single lesson
+    @PostMapping("/courses/{courseId}/lessons/{lessonId}")
+    public ResponseEntity<ScrapeJobStatus> scrapeLesson(@PathVariable Long courseId, @PathVariable Long lessonId) {
+        System.out.println("🤖 SCRAPE JOB for course " + courseId + " lesson " + lessonId);
+        try {
+            return accepted(scrapeJobService.submitLesson(courseId, lessonId));
+        } catch (NoSuchElementException e) {
+            return ResponseEntity.notFound().build();
+        }
+    }
+
+    // ✅ Poll a job
+    @GetMapping("/{jobId}")
+    public ResponseEntity<ScrapeJobStatus> getJob(@PathVariable String jobId) {
+        return scrapeJobService.status(jobId)
+                .map(ResponseEntity::ok)
+                .orElseGet(() -> ResponseEntity.notFound().build());
+    }
+
+    private static ResponseEntity<ScrapeJobStatus> accepted(ScrapeJobStatus status) {
+        return ResponseEntity.status(HttpStatus.ACCEPTED)
+                .location(URI.create("/scrape-jobs/" + status.getJobId()))
+                .body(status);
+    }
+}
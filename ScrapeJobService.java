@@ -0,0 +1,317 @@
+package com.learnforge.service;
+
+import com.learnforge.dto.ScrapeJobStatus;
+import com.learnforge.entity.Lesson;
+import com.learnforge.entity.Resource;
+import com.learnforge.repository.CourseContentRepository;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.net.URI;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Background resource auto-fetch for one lesson or a whole course.
+ * <p>
+ * Each lesson is scraped on its own virtual thread through
+ * {@link ScrapeResultCache}; at most {@code scrape.max-concurrent} scrapes run
+ * at once. A lesson waits up to {@code scrape.queue-timeout-seconds} for a slot
+ * and its scrape is cancelled after {@code scrape.lesson-timeout-seconds}.
+ * Cancelling only interrupts the scrape, and blocking socket reads may ignore
+ * that, so the slot is given back when the scrape really ends rather than when
+ * the caller stops waiting; a hung scrape keeps its slot instead of letting new
+ * ones pile onto the same upstream. The limit is for the scraper as a whole:
+ * {@link ScraperService} picks its sites behind one call, so there is no host to
+ * key a per-host limit on from here. Scraped resources are deduplicated by
+ * normalised URL against the lesson's existing rows and against each other
+ * before {@code saveAll}, under a lock striped by lesson so overlapping scrapes of one
+ * lesson on this node can't both save a URL. Submitting while a job for the
+ * same target is still running returns that job. Finished jobs can be polled for
+ * {@code scrape.job-retention-minutes}.
+ */
+@Service
+public class ScrapeJobService {
+
+    private final ScrapeResultCache scrapeResultCache;
+    private final ResourceService resourceService;
+    private final LessonService lessonService;
+    private final CourseContentRepository courseContent;
+    private final CourseAggregatesService courseAggregates;
+    private final Semaphore permits;
+    private final long lessonTimeoutMillis;
+    private final long queueTimeoutMillis;
+    private final long retentionMillis;
+    private final ExecutorService workers = Executors.newVirtualThreadPerTaskExecutor();
+    private final Map<String, Job> jobs = new ConcurrentHashMap<>();
+    private final Map<Target, Job> active = new ConcurrentHashMap<>();
+    // Striped rather than per lesson so the lock table stays fixed-size; ReentrantLock since callers are virtual threads
+    private final Lock[] dedupeLocks = new Lock[64];
+
+    public ScrapeJobService(
+            ScrapeResultCache scrapeResultCache,
+            ResourceService resourceService,
+            LessonService lessonService,
+            CourseContentRepository courseContent,
+            CourseAggregatesService courseAggregates,
+            @Value("${scrape.max-concurrent:8}") int maxConcurrent,
+            @Value("${scrape.lesson-timeout-seconds:30}") long lessonTimeoutSeconds,
+            @Value("${scrape.queue-timeout-seconds:120}") long queueTimeoutSeconds,
+            @Value("${scrape.job-retention-minutes:60}") long retentionMinutes) {
+        this.scrapeResultCache = scrapeResultCache;
+        this.resourceService = resourceService;
+        this.lessonService = lessonService;
+        this.courseContent = courseContent;
+        this.courseAggregates = courseAggregates;
+        this.permits = new Semaphore(maxConcurrent, true);
+        this.lessonTimeoutMillis = TimeUnit.SECONDS.toMillis(lessonTimeoutSeconds);
+        this.queueTimeoutMillis = TimeUnit.SECONDS.toMillis(queueTimeoutSeconds);
+        this.retentionMillis = TimeUnit.MINUTES.toMillis(retentionMinutes);
+        for (int i = 0; i < dedupeLocks.length; i++) {
+            dedupeLocks[i] = new ReentrantLock();
+        }
+    }
+
+    public ScrapeJobStatus submitLesson(Long courseId, Long lessonId) {
+        Lesson lesson = courseContent.findByLessonIdAndCourseCourseId(lessonId, courseId)
+                .orElseThrow(() -> new NoSuchElementException("Lesson " + lessonId + " not found in course " + courseId));
+        return submit(new Target(courseId, lessonId), List.of(lesson));
+    }
+
+    public ScrapeJobStatus submitCourse(Long courseId) {
+        List<Lesson> lessons = lessonService.getLessonsByCourseId(courseId);
+        if (lessons.isEmpty()) {
+            throw new NoSuchElementException("No lessons for course " + courseId);
+        }
+        return submit(new Target(courseId, null), lessons);
+    }
+
+    public Optional<ScrapeJobStatus> status(String jobId) {
+        return Optional.ofNullable(jobs.get(jobId)).map(Job::snapshot);
+    }
+
+    // Single-lesson fetch for the legacy auto-fetch endpoint, off the request thread; same limits and dedupe.
+    // Fails with TimeoutException if no slot frees up or the scrape runs too long.
+    public CompletableFuture<List<Resource>> scrapeAsync(Long courseId, Lesson lesson) {
+        Job job = new Job(UUID.randomUUID().toString(), new Target(courseId, lesson.getLessonId()), 1);
+        return CompletableFuture.supplyAsync(() -> {
+            try {
+                return scrapeLesson(job, lesson);
+            } catch (TimeoutException e) {
+                throw new CompletionException(e);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new CompletionException(e);
+            }
+        }, workers);
+    }
+
+    private ScrapeJobStatus submit(Target target, List<Lesson> lessons) {
+        pruneFinished();
+        Job created = new Job(UUID.randomUUID().toString(), target, lessons.size());
+        // Registered inside the mapping so a caller handed this job can already poll it
+        Job job = active.computeIfAbsent(target, t -> {
+            jobs.put(created.id, created);
+            return created;
+        });
+        if (job != created) {
+            return job.snapshot();
+        }
+        workers.execute(() -> run(job, lessons));
+        return job.snapshot();
+    }
+
+    private void run(Job job, List<Lesson> lessons) {
+        job.state = ScrapeJobStatus.State.RUNNING;
+        try {
+            List<Future<?>> pending = new ArrayList<>(lessons.size());
+            for (Lesson lesson : lessons) {
+                pending.add(workers.submit(() -> {
+                    try {
+                        scrapeLesson(job, lesson);
+                    } catch (TimeoutException e) {
+                        job.fail(lesson.getLessonId(), e.getMessage() != null ? e.getMessage()
+                                : "Timed out after " + lessonTimeoutMillis + " ms");
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        job.fail(lesson.getLessonId(), "Interrupted");
+                    } catch (RuntimeException e) {
+                        job.fail(lesson.getLessonId(), e.getMessage());
+                    }
+                }));
+            }
+            for (Future<?> future : pending) {
+                future.get();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException e) {
+            System.err.println("❌ Scrape job " + job.id + " failed: " + e.getCause());
+        } finally {
+            job.finish();
+            active.remove(job.target, job);
+        }
+    }
+
+    private List<Resource> scrapeLesson(Job job, Lesson lesson) throws TimeoutException, InterruptedException {
+        if (!permits.tryAcquire(queueTimeoutMillis, TimeUnit.MILLISECONDS)) {
+            throw new TimeoutException("No scrape slot free within " + queueTimeoutMillis + " ms");
+        }
+        // Whoever flips this first releases the permit: the scrape when it ends, or a timeout that
+        // cancelled it before it started
+        AtomicBoolean started = new AtomicBoolean();
+        Future<List<Resource>> scrape;
+        try {
+            scrape = workers.submit(() -> {
+                if (!started.compareAndSet(false, true)) {
+                    return null;
+                }
+                try {
+                    return scrapeResultCache.fetch(lesson);
+                } finally {
+                    permits.release();
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            permits.release();
+            throw e;
+        }
+        List<Resource> scraped;
+        try {
+            scraped = scrape.get(lessonTimeoutMillis, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            scrape.cancel(true);
+            if (started.compareAndSet(false, true)) {
+                permits.release();
+            }
+            throw e;
+        } catch (ExecutionException e) {
+            throw new IllegalStateException(String.valueOf(e.getCause().getMessage()), e.getCause());
+        }
+
+        // Read-dedupe-save under the lesson's lock, or two scrapes of one lesson both save the same URLs
+        List<Resource> fresh = new ArrayList<>();
+        Lock lock = dedupeLocks[Math.floorMod(lesson.getLessonId().hashCode(), dedupeLocks.length)];
+        lock.lock();
+        try {
+            Set<String> seen = new HashSet<>();
+            for (Resource existing : resourceService.getResourcesByLessonId(lesson.getLessonId())) {
+                seen.add(normalizeUrl(existing.getUrl()));
+            }
+            for (Resource resource : scraped == null ? List.<Resource>of() : scraped) {
+                if (resource.getUrl() != null && seen.add(normalizeUrl(resource.getUrl()))) {
+                    resource.setLesson(lesson);
+                    fresh.add(resource);
+                }
+            }
+            if (!fresh.isEmpty()) {
+                resourceService.saveAll(fresh);
+                courseAggregates.resourcesAdded(job.target.courseId(), fresh.size());
+            }
+        } finally {
+            lock.unlock();
+        }
+        job.lessonDone(scraped == null ? 0 : scraped.size(), fresh.size());
+        return fresh;
+    }
+
+    // Lowercase scheme and host, drop the fragment, default port and trailing slash
+    static String normalizeUrl(String url) {
+        if (url == null) {
+            return "";
+        }
+        String trimmed = url.trim();
+        try {
+            URI uri = URI.create(trimmed);
+            if (uri.getScheme() == null || uri.getHost() == null) {
+                return trimmed;
+            }
+            String scheme = uri.getScheme().toLowerCase(Locale.ROOT);
+            int port = uri.getPort();
+            boolean defaultPort = port == -1 || (scheme.equals("http") && port == 80) || (scheme.equals("https") && port == 443);
+            String path = uri.getRawPath() == null ? "" : uri.getRawPath();
+            if (path.endsWith("/")) {
+                path = path.substring(0, path.length() - 1);
+            }
+            return scheme + "://" + uri.getHost().toLowerCase(Locale.ROOT) + (defaultPort ? "" : ":" + port)
+                    + path + (uri.getRawQuery() == null ? "" : "?" + uri.getRawQuery());
+        } catch (IllegalArgumentException e) {
+            return trimmed;
+        }
+    }
+
+    private void pruneFinished() {
+        long cutoff = System.currentTimeMillis() - retentionMillis;
+        jobs.values().removeIf(job -> job.finishedAt != null && job.finishedAt < cutoff);
+    }
+
+    @PreDestroy
+    void shutdown() {
+        workers.shutdownNow();
+    }
+
+    private record Target(Long courseId, Long lessonId) { }
+
+    private static final class Job {
+        private final String id;
+        private final Target target;
+        private final int lessonsTotal;
+        private final long createdAt = System.currentTimeMillis();
+        private final AtomicInteger lessonsDone = new AtomicInteger();
+        private final AtomicInteger lessonsFailed = new AtomicInteger();
+        private final AtomicInteger resourcesFound = new AtomicInteger();
+        private final AtomicInteger resourcesSaved = new AtomicInteger();
+        private final Map<Long, String> errors = new ConcurrentHashMap<>();
+        private volatile ScrapeJobStatus.State state = ScrapeJobStatus.State.QUEUED;
+        private volatile Long finishedAt;
+
+        Job(String id, Target target, int lessonsTotal) {
+            this.id = id;
+            this.target = target;
+            this.lessonsTotal = lessonsTotal;
+        }
+
+        void lessonDone(int found, int saved) {
+            resourcesFound.addAndGet(found);
+            resourcesSaved.addAndGet(saved);
+            lessonsDone.incrementAndGet();
+        }
+
+        void fail(Long lessonId, String message) {
+            errors.put(lessonId, message == null ? "Unknown error" : message);
+            lessonsFailed.incrementAndGet();
+            lessonsDone.incrementAndGet();
+        }
+
+        void finish() {
+            int failed = lessonsFailed.get();
+            state = failed == 0 ? ScrapeJobStatus.State.COMPLETED
+                    : failed < lessonsTotal ? ScrapeJobStatus.State.PARTIAL
+                    : ScrapeJobStatus.State.FAILED;
+            finishedAt = System.currentTimeMillis();
+        }
+
+        ScrapeJobStatus snapshot() {
+            ScrapeJobStatus status = new ScrapeJobStatus();
+            status.setJobId(id);
+            status.setCourseId(target.courseId());
+            status.setLessonId(target.lessonId());
+            status.setState(state);
+            status.setLessonsTotal(lessonsTotal);
+            status.setLessonsDone(lessonsDone.get());
+            status.setLessonsFailed(lessonsFailed.get());
+            status.setResourcesFound(resourcesFound.get());
+            status.setResourcesSaved(resourcesSaved.get());
+            status.setDuplicatesSkipped(resourcesFound.get() - resourcesSaved.get());
+            status.setErrors(new TreeMap<>(errors));
+            status.setCreatedAt(createdAt);
+            status.setFinishedAt(finishedAt);
+            return status;
+        }
+    }
+}
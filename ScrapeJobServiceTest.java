@@ -0,0 +1,193 @@
+package com.learnforge.service;
+
+import com.learnforge.dto.ScrapeJobStatus;
+import com.learnforge.entity.Lesson;
+import com.learnforge.entity.Resource;
+import com.learnforge.repository.CourseContentRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.*;
+
+class ScrapeJobServiceTest {
+
+    private ScrapeResultCache scraper;
+    private ResourceService resourceService;
+    private LessonService lessonService;
+    private CourseAggregatesService courseAggregates;
+    private ScrapeJobService jobs;
+
+    @BeforeEach
+    void setUp() {
+        scraper = mock(ScrapeResultCache.class);
+        resourceService = mock(ResourceService.class);
+        lessonService = mock(LessonService.class);
+        courseAggregates = mock(CourseAggregatesService.class);
+        when(resourceService.getResourcesByLessonId(any())).thenReturn(List.of());
+    }
+
+    @AfterEach
+    void tearDown() {
+        if (jobs != null) {
+            jobs.shutdown();
+        }
+    }
+
+    private ScrapeJobService jobs(int maxConcurrent, long lessonTimeoutSeconds, long queueTimeoutSeconds) {
+        jobs = new ScrapeJobService(scraper, resourceService, lessonService, mock(CourseContentRepository.class),
+                courseAggregates, maxConcurrent, lessonTimeoutSeconds, queueTimeoutSeconds, 60);
+        return jobs;
+    }
+
+    private static Lesson lesson(long id) {
+        Lesson lesson = new Lesson();
+        lesson.setLessonId(id);
+        return lesson;
+    }
+
+    private static Resource resource(String url) {
+        Resource resource = new Resource();
+        resource.setUrl(url);
+        return resource;
+    }
+
+    @Test
+    void savesOnlyUrlsNotAlreadyStoredOrRepeated() throws Exception {
+        when(resourceService.getResourcesByLessonId(1L)).thenReturn(List.of(resource("https://example.com/a")));
+        when(scraper.fetch(any())).thenReturn(List.of(
+                resource("HTTPS://Example.com/a/"),
+                resource("https://example.com/b#intro"),
+                resource("https://example.com:443/b"),
+                resource(null)));
+
+        List<Resource> saved = jobs(2, 5, 5).scrapeAsync(10L, lesson(1)).get(5, TimeUnit.SECONDS);
+
+        assertEquals(1, saved.size());
+        assertEquals("https://example.com/b#intro", saved.get(0).getUrl());
+        @SuppressWarnings("unchecked")
+        ArgumentCaptor<List<Resource>> batch = ArgumentCaptor.forClass(List.class);
+        verify(resourceService).saveAll(batch.capture());
+        assertEquals(1, batch.getValue().size());
+        verify(courseAggregates).resourcesAdded(10L, 1);
+    }
+
+    @Test
+    void neverRunsMoreScrapesThanTheLimit() throws Exception {
+        List<Lesson> lessons = new ArrayList<>();
+        for (long id = 1; id <= 6; id++) {
+            lessons.add(lesson(id));
+        }
+        when(lessonService.getLessonsByCourseId(10L)).thenReturn(lessons);
+        AtomicInteger running = new AtomicInteger();
+        AtomicInteger peak = new AtomicInteger();
+        when(scraper.fetch(any())).thenAnswer(invocation -> {
+            peak.accumulateAndGet(running.incrementAndGet(), Math::max);
+            Thread.sleep(50);
+            running.decrementAndGet();
+            return List.of(resource("https://example.com/" + ((Lesson) invocation.getArgument(0)).getLessonId()));
+        });
+
+        ScrapeJobService service = jobs(2, 5, 5);
+        ScrapeJobStatus status = awaitFinished(service, service.submitCourse(10L).getJobId());
+
+        assertEquals(ScrapeJobStatus.State.COMPLETED, status.getState());
+        assertEquals(6, status.getLessonsDone());
+        assertEquals(6, status.getResourcesSaved());
+        assertTrue(peak.get() <= 2, "peak concurrency " + peak.get());
+    }
+
+    @Test
+    void resubmittingARunningJobReturnsTheSameJob() throws Exception {
+        CourseContentRepository courseContent = mock(CourseContentRepository.class);
+        when(courseContent.findByLessonIdAndCourseCourseId(1L, 10L)).thenReturn(Optional.of(lesson(1)));
+        CountDownLatch release = new CountDownLatch(1);
+        when(scraper.fetch(any())).thenAnswer(invocation -> {
+            release.await(5, TimeUnit.SECONDS);
+            return List.of();
+        });
+        jobs = new ScrapeJobService(scraper, resourceService, lessonService, courseContent, courseAggregates, 2, 5, 5, 60);
+
+        String first = jobs.submitLesson(10L, 1L).getJobId();
+        assertEquals(first, jobs.submitLesson(10L, 1L).getJobId());
+
+        release.countDown();
+        awaitFinished(jobs, first);
+        assertNotEquals(first, jobs.submitLesson(10L, 1L).getJobId());
+    }
+
+    @Test
+    void aTimedOutScrapeKeepsItsSlotUntilItReallyEnds() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        when(scraper.fetch(any())).thenAnswer(invocation -> {
+            // Like a blocking socket read: ignores the interrupt from cancel
+            while (release.getCount() > 0) {
+                try {
+                    release.await();
+                } catch (InterruptedException ignored) {
+                }
+            }
+            return List.of();
+        });
+        ScrapeJobService service = jobs(1, 1, 0);
+
+        ExecutionException hung = assertThrows(ExecutionException.class,
+                () -> service.scrapeAsync(10L, lesson(1)).get(5, TimeUnit.SECONDS));
+        assertInstanceOf(TimeoutException.class, hung.getCause());
+        ExecutionException noSlot = assertThrows(ExecutionException.class,
+                () -> service.scrapeAsync(10L, lesson(2)).get(5, TimeUnit.SECONDS));
+        assertTrue(noSlot.getCause().getMessage().contains("No scrape slot"));
+
+        release.countDown();
+        assertEquals(List.of(), scrapeWhenFree(service, lesson(3)));
+        verify(resourceService, never()).saveAll(anyList());
+    }
+
+    @Test
+    void normalizesUrlsForDedupe() {
+        assertEquals("https://example.com/a?x=1", ScrapeJobService.normalizeUrl(" HTTPS://Example.COM:443/a/?x=1#top "));
+        assertEquals("http://example.com:8080/a", ScrapeJobService.normalizeUrl("http://example.com:8080/a"));
+        assertEquals("not a url", ScrapeJobService.normalizeUrl("not a url"));
+        assertEquals("", ScrapeJobService.normalizeUrl(null));
+    }
+
+    // The permit goes back in the scrape's finally block, a moment after it returns
+    private List<Resource> scrapeWhenFree(ScrapeJobService service, Lesson lesson) throws Exception {
+        long deadline = System.currentTimeMillis() + 5_000;
+        while (true) {
+            try {
+                return service.scrapeAsync(10L, lesson).get(5, TimeUnit.SECONDS);
+            } catch (ExecutionException e) {
+                if (!(e.getCause() instanceof TimeoutException) || System.currentTimeMillis() > deadline) {
+                    throw e;
+                }
+                Thread.sleep(5);
+            }
+        }
+    }
+
+    private static ScrapeJobStatus awaitFinished(ScrapeJobService service, String jobId) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5_000;
+        while (System.currentTimeMillis() < deadline) {
+            ScrapeJobStatus status = service.status(jobId).orElseThrow();
+            if (status.getFinishedAt() != null) {
+                return status;
+            }
+            Thread.sleep(5);
+        }
+        return fail("Scrape job " + jobId + " did not finish");
+    }
+}
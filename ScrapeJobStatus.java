@@ -0,0 +1,28 @@
+package com.learnforge.dto;
+
+import lombok.Data;
+
+import java.util.Map;
+
+/**
+ * Progress of a resource auto-fetch job, as returned by {@code GET /scrape-jobs/{jobId}}.
+ */
+@Data
+public class ScrapeJobStatus {
+
+    public enum State { QUEUED, RUNNING, COMPLETED, PARTIAL, FAILED }
+
+    private String jobId;
+    private Long courseId;
+    private Long lessonId;
+    private State state;
+    private int lessonsTotal;
+    private int lessonsDone;
+    private int lessonsFailed;
+    private int resourcesFound;
+    private int resourcesSaved;
+    private int duplicatesSkipped;
+    private Map<Long, String> errors;
+    private long createdAt;
+    private Long finishedAt;
+}
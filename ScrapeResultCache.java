@@ -0,0 +1,286 @@
+package com.learnforge.service;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.learnforge.entity.Lesson;
+import com.learnforge.entity.Resource;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * Scrape results keyed by (source, normalised query), in memory and on disk.
+ * <p>
+ * The query is the lesson name reduced to its sorted, lowercased words without
+ * stopwords, so "Intro to Arrays" and "arrays intro" share one entry and a
+ * topic taught in several courses is scraped once; a name made only of
+ * stopwords or symbols keys on the whole trimmed, lowercased name instead.
+ * <p>
+ * Expiry uses TTL back-off. Each entry keeps a hash of its result and when
+ * that hash last changed. An expired entry is always scraped again in full;
+ * if the new result hashes the same, the TTL is doubled up to
+ * {@code scrape.cache.max-ttl-minutes}, so stable topics are scraped less and
+ * less often, and any change resets it to {@code scrape.cache.ttl-minutes}. Entries are written through to {@code scrape.cache.dir} as plain
+ * title/type/url records and read back after a restart. An hourly sweep deletes
+ * files untouched for twice the max TTL, then the oldest ones beyond
+ * {@code scrape.cache.disk-max-entries}. Concurrent misses for the same key
+ * share one scrape.
+ */
+@Service
+public class ScrapeResultCache {
+
+    // What a scrape yields per resource; the id and the owning lesson belong to the saved row
+    record ScrapedResource(String title, String type, String url) { }
+
+    // ScraperService aggregates its sources behind one call, so it is one source here
+    static final String SOURCE = "scraper";
+
+    private static final Set<String> STOPWORDS = Set.of(
+            "a", "an", "and", "the", "of", "to", "in", "for", "on", "with", "by", "is", "at", "or");
+
+    private final ScraperService scraperService;
+    private final ObjectMapper objectMapper;
+    private final long minTtlMillis;
+    private final long maxTtlMillis;
+    private final Path directory;
+    private final int diskMaxEntries;
+    private final BoundedCache<Key, Entry> memory;
+    private final Map<Key, CompletableFuture<Entry>> inFlight = new ConcurrentHashMap<>();
+    private final ScheduledExecutorService sweeper;
+
+    public ScrapeResultCache(
+            ScraperService scraperService,
+            ObjectMapper objectMapper,
+            @Value("${scrape.cache.ttl-minutes:360}") long ttlMinutes,
+            @Value("${scrape.cache.max-ttl-minutes:10080}") long maxTtlMinutes,
+            @Value("${scrape.cache.max-entries:5000}") int maxEntries,
+            @Value("${scrape.cache.disk-max-entries:20000}") int diskMaxEntries,
+            @Value("${scrape.cache.dir:${java.io.tmpdir}/learnforge-scrape-cache}") String directory) {
+        this.scraperService = scraperService;
+        this.objectMapper = objectMapper;
+        this.minTtlMillis = TimeUnit.MINUTES.toMillis(ttlMinutes);
+        this.maxTtlMillis = Math.max(minTtlMillis, TimeUnit.MINUTES.toMillis(maxTtlMinutes));
+        this.memory = new BoundedCache<>(maxEntries, maxTtlMillis * 2);
+        this.directory = Path.of(directory);
+        this.diskMaxEntries = diskMaxEntries;
+        this.sweeper = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "scrape-cache-sweeper");
+            t.setDaemon(true);
+            return t;
+        });
+        sweeper.scheduleWithFixedDelay(this::sweepDisk, 1, 60, TimeUnit.MINUTES);
+    }
+
+    // Fresh, unsaved Resource entities for the lesson, scraping only if the cached result has expired
+    public List<Resource> fetch(Lesson lesson) {
+        Key key = new Key(SOURCE, normalizeQuery(lesson.getLessonName()));
+        Entry entry = lookup(key);
+        if (entry == null || entry.expiresAt <= System.currentTimeMillis()) {
+            entry = refresh(key, entry, lesson);
+        }
+        return toResources(entry.resources, lesson);
+    }
+
+    public void invalidate(String lessonName) {
+        Key key = new Key(SOURCE, normalizeQuery(lessonName));
+        memory.invalidate(key);
+        try {
+            Files.deleteIfExists(file(key));
+        } catch (IOException e) {
+            System.err.println("❌ Could not delete scrape cache file for " + key + ": " + e.getMessage());
+        }
+    }
+
+    private Entry lookup(Key key) {
+        Entry entry = memory.get(key);
+        if (entry == null) {
+            entry = readDisk(key);
+            if (entry != null) {
+                memory.put(key, entry);
+            }
+        }
+        return entry;
+    }
+
+    private Entry refresh(Key key, Entry stale, Lesson lesson) {
+        CompletableFuture<Entry> mine = new CompletableFuture<>();
+        CompletableFuture<Entry> running = inFlight.putIfAbsent(key, mine);
+        if (running != null) {
+            return running.join();
+        }
+        try {
+            List<ScrapedResource> resources = toRecords(scraperService.fetchAndMapResources(lesson.getLessonName(), lesson));
+            String digest = hash(resources);
+            long now = System.currentTimeMillis();
+            Entry fresh;
+            if (stale != null && stale.resultHash.equals(digest)) {
+                // Same result as last time: keep when it last changed and back off the next scrape
+                long ttl = Math.min(maxTtlMillis, stale.ttlMillis * 2);
+                fresh = new Entry(stale.resources, digest, stale.lastModified, ttl, now + ttl);
+            } else {
+                fresh = new Entry(resources, digest, now, minTtlMillis, now + minTtlMillis);
+            }
+            memory.put(key, fresh);
+            writeDisk(key, fresh);
+            mine.complete(fresh);
+            return fresh;
+        } catch (RuntimeException e) {
+            mine.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(key, mine);
+        }
+    }
+
+    static String normalizeQuery(String lessonName) {
+        if (lessonName == null) {
+            return "";
+        }
+        String lower = lessonName.trim().toLowerCase(Locale.ROOT);
+        TreeSet<String> words = new TreeSet<>();
+        for (String word : lower.split("[^\\p{L}\\p{N}+#]+")) {
+            if (!word.isEmpty() && !STOPWORDS.contains(word)) {
+                words.add(word);
+            }
+        }
+        // Nothing left to sort on, so keep the name itself rather than sharing the empty key
+        return words.isEmpty() ? lower : String.join(" ", words);
+    }
+
+    private static List<ScrapedResource> toRecords(List<Resource> resources) {
+        List<ScrapedResource> records = new ArrayList<>();
+        if (resources == null) {
+            return records;
+        }
+        for (Resource resource : resources) {
+            records.add(new ScrapedResource(resource.getTitle(), resource.getType(), resource.getUrl()));
+        }
+        return records;
+    }
+
+    private static List<Resource> toResources(List<ScrapedResource> records, Lesson lesson) {
+        List<Resource> resources = new ArrayList<>(records.size());
+        for (ScrapedResource record : records) {
+            Resource resource = new Resource();
+            resource.setTitle(record.title());
+            resource.setType(record.type());
+            resource.setUrl(record.url());
+            resource.setLesson(lesson);
+            resources.add(resource);
+        }
+        return resources;
+    }
+
+    private String hash(List<ScrapedResource> resources) {
+        try {
+            byte[] json = objectMapper.writeValueAsBytes(resources);
+            return "\"" + HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(json), 0, 16) + "\"";
+        } catch (IOException | NoSuchAlgorithmException e) {
+            throw new IllegalStateException("Could not hash scrape result", e);
+        }
+    }
+
+    private Path file(Key key) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256")
+                    .digest((key.source() + "\n" + key.query()).getBytes(StandardCharsets.UTF_8));
+            return directory.resolve(HexFormat.of().formatHex(digest) + ".json");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private Entry readDisk(Key key) {
+        Path path = file(key);
+        if (!Files.exists(path)) {
+            return null;
+        }
+        try {
+            DiskEntry stored = objectMapper.readValue(path.toFile(), new TypeReference<DiskEntry>() { });
+            if (!key.source().equals(stored.source()) || !key.query().equals(stored.query())) {
+                return null;
+            }
+            return new Entry(stored.resources(), stored.etag(), stored.lastModified(), stored.ttlMillis(), stored.expiresAt());
+        } catch (IOException e) {
+            System.err.println("❌ Unreadable scrape cache file " + path + ": " + e.getMessage());
+            return null;
+        }
+    }
+
+    // Write to a temp file and move it into place so a crash never leaves half a file
+    private void writeDisk(Key key, Entry entry) {
+        Path path = file(key);
+        try {
+            Files.createDirectories(directory);
+            Path tmp = Files.createTempFile(directory, "scrape", ".tmp");
+            objectMapper.writeValue(tmp.toFile(), new DiskEntry(key.source(), key.query(), entry.resources,
+                    entry.resultHash, entry.lastModified, entry.ttlMillis, entry.expiresAt));
+            Files.move(tmp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            System.err.println("❌ Could not write scrape cache file " + path + ": " + e.getMessage());
+        }
+    }
+
+    // Age first, then count: the oldest files go once the directory is over its cap
+    void sweepDisk() {
+        if (!Files.isDirectory(directory)) {
+            return;
+        }
+        long cutoff = System.currentTimeMillis() - maxTtlMillis * 2;
+        List<Path> kept = new ArrayList<>();
+        Map<Path, Long> modified = new HashMap<>();
+        try (Stream<Path> files = Files.list(directory)) {
+            for (Path path : (Iterable<Path>) files::iterator) {
+                String name = path.getFileName().toString();
+                if (!name.endsWith(".json") && !name.endsWith(".tmp")) {
+                    continue;
+                }
+                long lastModified = Files.getLastModifiedTime(path).toMillis();
+                // Temp files are only live for the length of one write
+                long limit = name.endsWith(".tmp") ? System.currentTimeMillis() - TimeUnit.HOURS.toMillis(1) : cutoff;
+                if (lastModified < limit) {
+                    Files.deleteIfExists(path);
+                } else if (name.endsWith(".json")) {
+                    kept.add(path);
+                    modified.put(path, lastModified);
+                }
+            }
+            if (kept.size() > diskMaxEntries) {
+                kept.sort(Comparator.comparing(modified::get));
+                for (Path path : kept.subList(0, kept.size() - diskMaxEntries)) {
+                    Files.deleteIfExists(path);
+                }
+            }
+        } catch (IOException | RuntimeException e) {
+            System.err.println("❌ Scrape cache sweep failed: " + e.getMessage());
+        }
+    }
+
+    @PreDestroy
+    void shutdown() {
+        sweeper.shutdownNow();
+    }
+
+    private record Key(String source, String query) { }
+
+    private record Entry(List<ScrapedResource> resources, String resultHash, long lastModified, long ttlMillis, long expiresAt) { }
+
+    // The hash is stored as "etag", the name files already on disk use
+    record DiskEntry(String source, String query, List<ScrapedResource> resources,
+                     String etag, long lastModified, long ttlMillis, long expiresAt) { }
+}
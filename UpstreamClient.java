@@ -0,0 +1,271 @@
+package com.learnforge.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.env.Environment;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.URLEncoder;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * The one outbound HTTP client for third-party APIs (dev.to, GitHub, the
+ * trending API, the meme API, the OAuth providers).
+ * <p>
+ * All upstreams share a single keep-alive {@link HttpClient}. Each upstream
+ * has its own base URL, request timeout and bulkhead
+ * ({@code upstream.<name>.base-url}, {@code .timeout-ms}, {@code .max-concurrent}),
+ * so a slow upstream can hold at most its own permits and never the whole
+ * request pool; a call that can't get a permit within {@code .bulkhead-wait-ms}
+ * fails at once. After {@code .failure-threshold} consecutive failures (5xx,
+ * 429, timeouts, I/O errors) the upstream's breaker opens and calls fail
+ * immediately for {@code .open-seconds}; then a single trial call decides
+ * whether it closes again. Callers treat every failure the same way, by
+ * serving their fallback.
+ */
+@Service
+public class UpstreamClient {
+
+    public static final String DEV_TO = "devto";
+    public static final String GITHUB = "github";
+    public static final String TRENDING = "trending";
+    public static final String MEME = "meme";
+    public static final String GITHUB_OAUTH = "github-oauth";
+    public static final String GITHUB_AUTH = "github-api-auth";
+    public static final String GOOGLE = "google";
+
+    private static final Map<String, String> DEFAULT_BASE_URLS = Map.of(
+            DEV_TO, "https://dev.to",
+            GITHUB, "https://api.github.com",
+            TRENDING, "https://gh-trending-api.herokuapp.com",
+            MEME, "https://meme-api.com",
+            GITHUB_OAUTH, "https://github.com",
+            GITHUB_AUTH, "https://api.github.com",
+            GOOGLE, "https://accounts.google.com");
+
+    private static final int LATENCY_SAMPLES = 512;
+
+    private final HttpClient httpClient;
+    private final ObjectMapper objectMapper;
+    private final Environment env;
+    private final Map<String, Upstream> upstreams = new ConcurrentHashMap<>();
+
+    public UpstreamClient(ObjectMapper objectMapper, Environment env,
+                          @Value("${upstream.connect-timeout-ms:2000}") long connectTimeoutMs) {
+        this.objectMapper = objectMapper;
+        this.env = env;
+        this.httpClient = HttpClient.newBuilder()
+                .connectTimeout(Duration.ofMillis(connectTimeoutMs))
+                .followRedirects(HttpClient.Redirect.NORMAL)
+                .build();
+    }
+
+    /** GETs {@code pathAndQuery} from the upstream and parses the body as JSON (maps, lists, scalars). */
+    public Object getJson(String upstream, String pathAndQuery) throws IOException {
+        HttpResponse<byte[]> response = get(upstream, pathAndQuery, Map.of());
+        if (response.statusCode() / 100 != 2) {
+            throw new UpstreamException(upstream + " returned HTTP " + response.statusCode());
+        }
+        return objectMapper.readValue(response.body(), Object.class);
+    }
+
+    /**
+     * GETs {@code pathAndQuery} with extra headers and returns the raw response,
+     * whatever its status. Only 5xx and 429 count against the breaker.
+     */
+    public HttpResponse<byte[]> get(String upstream, String pathAndQuery, Map<String, String> headers) throws IOException {
+        return send(upstream, pathAndQuery, headers, HttpRequest.BodyPublishers.noBody(), "GET");
+    }
+
+    /** POSTs a form to {@code pathAndQuery}; otherwise like {@link #get}. */
+    public HttpResponse<byte[]> postForm(String upstream, String pathAndQuery, Map<String, String> form) throws IOException {
+        StringJoiner body = new StringJoiner("&");
+        form.forEach((k, v) -> body.add(URLEncoder.encode(k, StandardCharsets.UTF_8) + "=" + URLEncoder.encode(v, StandardCharsets.UTF_8)));
+        return send(upstream, pathAndQuery, Map.of("Content-Type", "application/x-www-form-urlencoded"),
+                HttpRequest.BodyPublishers.ofString(body.toString()), "POST");
+    }
+
+    // An absolute URL (as handed out by OpenID discovery) is used as is, under the upstream's limits
+    private HttpResponse<byte[]> send(String upstream, String pathAndQuery, Map<String, String> headers,
+                                      HttpRequest.BodyPublisher body, String method) throws IOException {
+        Upstream u = upstream(upstream);
+        if (!u.allowRequest()) {
+            u.shortCircuited.increment();
+            throw new UpstreamException(upstream + " circuit is open");
+        }
+        boolean permitted;
+        try {
+            permitted = u.bulkhead.tryAcquire(u.bulkheadWaitMillis, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            u.releaseTrial();
+            throw new UpstreamException(upstream + " call interrupted");
+        }
+        if (!permitted) {
+            u.rejected.increment();
+            u.releaseTrial();
+            throw new UpstreamException(upstream + " bulkhead is full");
+        }
+
+        URI uri = URI.create(pathAndQuery.startsWith("https://") || pathAndQuery.startsWith("http://")
+                ? pathAndQuery : u.baseUrl + pathAndQuery);
+        HttpRequest.Builder request = HttpRequest.newBuilder(uri)
+                .timeout(u.timeout)
+                .header("Accept", "application/json")
+                .method(method, body);
+        headers.forEach(request::header);
+        long start = System.nanoTime();
+        try {
+            HttpResponse<byte[]> response = httpClient.send(request.build(), HttpResponse.BodyHandlers.ofByteArray());
+            int status = response.statusCode();
+            u.record(System.nanoTime() - start, status >= 500 || status == 429);
+            return response;
+        } catch (IOException e) {
+            u.record(System.nanoTime() - start, true);
+            throw e;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            u.record(System.nanoTime() - start, true);
+            throw new UpstreamException(upstream + " call interrupted");
+        } finally {
+            u.bulkhead.release();
+        }
+    }
+
+    public Map<String, Object> stats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        for (String name : new TreeSet<>(DEFAULT_BASE_URLS.keySet())) {
+            stats.put(name, upstream(name).stats());
+        }
+        return stats;
+    }
+
+    private Upstream upstream(String name) {
+        return upstreams.computeIfAbsent(name, this::configure);
+    }
+
+    private Upstream configure(String name) {
+        String prefix = "upstream." + name + ".";
+        String baseUrl = env.getProperty(prefix + "base-url", DEFAULT_BASE_URLS.get(name));
+        if (baseUrl == null) {
+            throw new IllegalArgumentException("Unknown upstream " + name);
+        }
+        return new Upstream(
+                baseUrl.endsWith("/") ? baseUrl.substring(0, baseUrl.length() - 1) : baseUrl,
+                Duration.ofMillis(env.getProperty(prefix + "timeout-ms", Long.class, 3000L)),
+                env.getProperty(prefix + "max-concurrent", Integer.class, 10),
+                env.getProperty(prefix + "bulkhead-wait-ms", Long.class, 50L),
+                env.getProperty(prefix + "failure-threshold", Integer.class, 5),
+                TimeUnit.SECONDS.toMillis(env.getProperty(prefix + "open-seconds", Long.class, 30L)));
+    }
+
+    public static class UpstreamException extends IOException {
+        public UpstreamException(String message) {
+            super(message);
+        }
+    }
+
+    private static final class Upstream {
+        private final String baseUrl;
+        private final Duration timeout;
+        private final Semaphore bulkhead;
+        private final int maxConcurrent;
+        private final long bulkheadWaitMillis;
+        private final int failureThreshold;
+        private final long openMillis;
+
+        // Breaker state, guarded by this
+        private int consecutiveFailures;
+        private long openUntil;
+        private boolean trialInFlight;
+
+        private final LongAdder calls = new LongAdder();
+        private final LongAdder failures = new LongAdder();
+        private final LongAdder rejected = new LongAdder();
+        private final LongAdder shortCircuited = new LongAdder();
+        private final long[] latencies = new long[LATENCY_SAMPLES];
+        private int latencyCount;
+
+        Upstream(String baseUrl, Duration timeout, int maxConcurrent, long bulkheadWaitMillis,
+                 int failureThreshold, long openMillis) {
+            this.baseUrl = baseUrl;
+            this.timeout = timeout;
+            this.maxConcurrent = maxConcurrent;
+            this.bulkhead = new Semaphore(maxConcurrent);
+            this.bulkheadWaitMillis = bulkheadWaitMillis;
+            this.failureThreshold = Math.max(1, failureThreshold);
+            this.openMillis = openMillis;
+        }
+
+        // Closed: always. Open: never until openUntil, then exactly one trial at a time.
+        synchronized boolean allowRequest() {
+            if (consecutiveFailures < failureThreshold) {
+                return true;
+            }
+            if (System.currentTimeMillis() < openUntil || trialInFlight) {
+                return false;
+            }
+            trialInFlight = true;
+            return true;
+        }
+
+        // A trial that never reached the upstream must not block the next one
+        synchronized void releaseTrial() {
+            trialInFlight = false;
+        }
+
+        synchronized void record(long nanos, boolean failed) {
+            calls.increment();
+            latencies[latencyCount++ % LATENCY_SAMPLES] = nanos;
+            trialInFlight = false;
+            if (failed) {
+                failures.increment();
+                if (++consecutiveFailures >= failureThreshold) {
+                    openUntil = System.currentTimeMillis() + openMillis;
+                    if (consecutiveFailures == failureThreshold) {
+                        System.err.println("❌ Upstream " + baseUrl + " failing; circuit open for " + openMillis + "ms");
+                    }
+                }
+            } else {
+                consecutiveFailures = 0;
+            }
+        }
+
+        synchronized Map<String, Object> stats() {
+            long[] sorted = Arrays.copyOf(latencies, Math.min(latencyCount, LATENCY_SAMPLES));
+            Arrays.sort(sorted);
+            Map<String, Object> stats = new LinkedHashMap<>();
+            stats.put("baseUrl", baseUrl);
+            stats.put("state", consecutiveFailures < failureThreshold ? "CLOSED"
+                    : System.currentTimeMillis() < openUntil ? "OPEN" : "HALF_OPEN");
+            stats.put("calls", calls.sum());
+            stats.put("failures", failures.sum());
+            stats.put("rejected", rejected.sum());
+            stats.put("shortCircuited", shortCircuited.sum());
+            stats.put("inFlight", maxConcurrent - bulkhead.availablePermits());
+            stats.put("p50Millis", percentileMillis(sorted, 0.50));
+            stats.put("p95Millis", percentileMillis(sorted, 0.95));
+            stats.put("p99Millis", percentileMillis(sorted, 0.99));
+            return stats;
+        }
+
+        private static double percentileMillis(long[] sorted, double p) {
+            if (sorted.length == 0) {
+                return 0.0;
+            }
+            int index = (int) Math.min(sorted.length - 1, Math.ceil(p * sorted.length) - 1);
+            return sorted[Math.max(0, index)] / 1_000_000.0;
+        }
+    }
+}
@@ -0,0 +1,176 @@
+package com.learnforge.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sun.net.httpserver.HttpServer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.env.MapPropertySource;
+import org.springframework.core.env.StandardEnvironment;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class UpstreamClientTest {
+
+    private HttpServer server;
+    private final AtomicInteger hits = new AtomicInteger();
+    private volatile int status = 200;
+    private volatile CountDownLatch hold = new CountDownLatch(0);
+    private final Map<String, Object> properties = new HashMap<>();
+
+    // A local stub standing in for dev.to: answers with the configured status, optionally held until released
+    @BeforeEach
+    void setUp() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.setExecutor(Executors.newCachedThreadPool());
+        server.createContext("/", exchange -> {
+            hits.incrementAndGet();
+            try {
+                hold.await(5, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            byte[] body = "[{\"title\":\"stub\"}]".getBytes(StandardCharsets.UTF_8);
+            exchange.sendResponseHeaders(status, body.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(body);
+            }
+        });
+        server.start();
+        properties.put("upstream.devto.base-url", "http://127.0.0.1:" + server.getAddress().getPort());
+        properties.put("upstream.devto.failure-threshold", "3");
+    }
+
+    @AfterEach
+    void tearDown() {
+        hold.countDown();
+        server.stop(0);
+    }
+
+    private UpstreamClient client() {
+        StandardEnvironment env = new StandardEnvironment();
+        env.getPropertySources().addFirst(new MapPropertySource("test", properties));
+        return new UpstreamClient(new ObjectMapper(), env, 1000);
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Map<String, Object> devtoStats(UpstreamClient client) {
+        return (Map<String, Object>) client.stats().get(UpstreamClient.DEV_TO);
+    }
+
+    @Test
+    void parsesJsonFromTheUpstream() throws IOException {
+        UpstreamClient client = client();
+
+        Object body = client.getJson(UpstreamClient.DEV_TO, "/api/articles");
+
+        assertEquals(List.of(Map.of("title", "stub")), body);
+        assertEquals("CLOSED", devtoStats(client).get("state"));
+        assertEquals(1L, devtoStats(client).get("calls"));
+    }
+
+    @Test
+    void opensTheCircuitAfterConsecutiveServerErrors() {
+        UpstreamClient client = client();
+        status = 503;
+
+        for (int i = 0; i < 3; i++) {
+            assertThrows(UpstreamClient.UpstreamException.class, () -> client.getJson(UpstreamClient.DEV_TO, "/api/articles"));
+        }
+        UpstreamClient.UpstreamException open = assertThrows(UpstreamClient.UpstreamException.class,
+                () -> client.getJson(UpstreamClient.DEV_TO, "/api/articles"));
+
+        assertTrue(open.getMessage().contains("circuit is open"));
+        assertEquals(3, hits.get());
+        Map<String, Object> stats = devtoStats(client);
+        assertEquals("OPEN", stats.get("state"));
+        assertEquals(3L, stats.get("failures"));
+        assertEquals(1L, stats.get("shortCircuited"));
+    }
+
+    @Test
+    void clientErrorsDoNotCountAgainstTheBreaker() throws IOException {
+        UpstreamClient client = client();
+        status = 404;
+
+        for (int i = 0; i < 5; i++) {
+            assertEquals(404, client.get(UpstreamClient.DEV_TO, "/missing", Map.of()).statusCode());
+        }
+
+        assertEquals("CLOSED", devtoStats(client).get("state"));
+        assertEquals(0L, devtoStats(client).get("failures"));
+    }
+
+    @Test
+    void aSuccessfulTrialClosesTheCircuitAgain() throws IOException {
+        properties.put("upstream.devto.open-seconds", "0");
+        UpstreamClient client = client();
+        status = 500;
+        for (int i = 0; i < 3; i++) {
+            client.get(UpstreamClient.DEV_TO, "/api/articles", Map.of());
+        }
+        assertEquals("HALF_OPEN", devtoStats(client).get("state"));
+
+        status = 200;
+        client.getJson(UpstreamClient.DEV_TO, "/api/articles");
+
+        assertEquals("CLOSED", devtoStats(client).get("state"));
+    }
+
+    @Test
+    void slowCallsTimeOutAndCountAsFailures() {
+        properties.put("upstream.devto.timeout-ms", "100");
+        UpstreamClient client = client();
+        hold = new CountDownLatch(1);
+
+        assertThrows(IOException.class, () -> client.getJson(UpstreamClient.DEV_TO, "/api/articles"));
+
+        assertEquals(1L, devtoStats(client).get("failures"));
+    }
+
+    @Test
+    void rejectsCallsBeyondTheBulkhead() throws Exception {
+        properties.put("upstream.devto.max-concurrent", "1");
+        properties.put("upstream.devto.bulkhead-wait-ms", "10");
+        UpstreamClient client = client();
+        hold = new CountDownLatch(1);
+        var pool = Executors.newSingleThreadExecutor();
+        try {
+            Future<Object> inFlight = pool.submit(() -> client.getJson(UpstreamClient.DEV_TO, "/api/articles"));
+            awaitHits(1);
+
+            UpstreamClient.UpstreamException full = assertThrows(UpstreamClient.UpstreamException.class,
+                    () -> client.getJson(UpstreamClient.DEV_TO, "/api/articles"));
+            assertTrue(full.getMessage().contains("bulkhead is full"));
+            assertEquals(1L, devtoStats(client).get("rejected"));
+
+            hold.countDown();
+            assertNotNull(inFlight.get(5, TimeUnit.SECONDS));
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    private void awaitHits(int expected) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5_000;
+        while (hits.get() < expected) {
+            if (System.currentTimeMillis() > deadline) {
+                fail("Stub server saw " + hits.get() + " requests, expected " + expected);
+            }
+            Thread.sleep(5);
+        }
+    }
+}
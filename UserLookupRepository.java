@@ -0,0 +1,16 @@
+package com.learnforge.repository;
+
+import com.learnforge.entity.User;
+import org.springframework.stereotype.Repository;
+
+import java.util.Optional;
+
+/**
+ * Read-only user lookups for the OAuth login fast path, which matches a
+ * provider identity to an account by email.
+ */
+@Repository
+public interface UserLookupRepository extends org.springframework.data.repository.Repository<User, String> {
+
+    Optional<User> findFirstByEmail(String email);
+}
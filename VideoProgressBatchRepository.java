@@ -0,0 +1,22 @@
+package com.learnforge.repository;
+
+import com.learnforge.entity.VideoProgress;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Batch lookups for the video progress write-behind buffer, so a flush loads
+ * the existing rows of a whole batch in one query instead of one per heartbeat.
+ */
+@Repository
+public interface VideoProgressBatchRepository extends org.springframework.data.repository.Repository<VideoProgress, Long> {
+
+    // Matches every (user, lesson) pair across both lists; callers keep only the pairs they asked for
+    @Query("SELECT v FROM VideoProgress v WHERE v.userId IN :userIds AND v.lessonId IN :lessonIds")
+    List<VideoProgress> findAllFor(@Param("userIds") Collection<String> userIds,
+                                   @Param("lessonIds") Collection<Long> lessonIds);
+}
@@ -0,0 +1,210 @@
+package com.learnforge.service;
+
+import com.learnforge.entity.VideoProgress;
+import com.learnforge.repository.VideoProgressBatchRepository;
+import com.learnforge.repository.VideoProgressRepository;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Write-behind buffer for video player heartbeats.
+ * <p>
+ * Only the latest position per (userId, lessonId) is kept; heartbeats between
+ * flushes overwrite each other in memory. Pending positions are written in one
+ * transaction per batch every {@code video-progress.flush-interval-ms}, or as
+ * soon as {@code video-progress.flush-threshold} keys are pending, and once more
+ * on shutdown; each batch loads its existing rows in a single query. Reads check the buffer before the database. Heartbeats are
+ * validated on the way in; if a batch still fails, its rows are retried one at
+ * a time and the ones that fail on their own are logged and dropped, so one
+ * bad row can't hold the rest back. Only when every row fails is the batch put
+ * back for the next flush.
+ */
+@Service
+public class VideoProgressBuffer {
+
+    public record Position(String userId, Long lessonId, Double watchTime, Double duration) { }
+
+    private record Key(String userId, Long lessonId) { }
+
+    private final VideoProgressRepository videoProgressRepository;
+    private final VideoProgressBatchRepository videoProgressBatchRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final int flushThreshold;
+    private final int batchSize;
+    private final Map<Key, Position> pending = new ConcurrentHashMap<>();
+    private final AtomicBoolean flushQueued = new AtomicBoolean();
+    private final ScheduledExecutorService flusher;
+
+    public VideoProgressBuffer(
+            VideoProgressRepository videoProgressRepository,
+            VideoProgressBatchRepository videoProgressBatchRepository,
+            TransactionTemplate transactionTemplate,
+            @Value("${video-progress.flush-interval-ms:5000}") long flushIntervalMillis,
+            @Value("${video-progress.flush-threshold:500}") int flushThreshold,
+            @Value("${video-progress.batch-size:200}") int batchSize) {
+        this.videoProgressRepository = videoProgressRepository;
+        this.videoProgressBatchRepository = videoProgressBatchRepository;
+        this.transactionTemplate = transactionTemplate;
+        this.flushThreshold = flushThreshold;
+        this.batchSize = batchSize;
+        this.flusher = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "video-progress-flusher");
+            t.setDaemon(true);
+            return t;
+        });
+        flusher.scheduleWithFixedDelay(this::flushQuietly, flushIntervalMillis, flushIntervalMillis, TimeUnit.MILLISECONDS);
+    }
+
+    public void accept(Position position) {
+        validate(position);
+        // A heartbeat without a duration keeps the one we already have
+        pending.merge(new Key(position.userId(), position.lessonId()), position, (old, latest) ->
+                latest.duration() != null ? latest
+                        : new Position(latest.userId(), latest.lessonId(), latest.watchTime(), old.duration()));
+        if (pending.size() >= flushThreshold && flushQueued.compareAndSet(false, true)) {
+            flusher.execute(this::flushQuietly);
+        }
+    }
+
+    // Rejected up front so a bad heartbeat never reaches a batch
+    private static void validate(Position position) {
+        if (position.userId() == null || position.userId().isBlank()) {
+            throw new IllegalArgumentException("userId is required");
+        }
+        if (position.lessonId() == null) {
+            throw new IllegalArgumentException("lessonId is required");
+        }
+        if (position.watchTime() == null || !Double.isFinite(position.watchTime()) || position.watchTime() < 0) {
+            throw new IllegalArgumentException("currentTime must be a non-negative number");
+        }
+        if (position.duration() != null && (!Double.isFinite(position.duration()) || position.duration() <= 0)) {
+            throw new IllegalArgumentException("duration must be a positive number");
+        }
+    }
+
+    // Latest known position: the unflushed heartbeat if there is one, else the stored row
+    public Optional<Position> get(String userId, Long lessonId) {
+        Position buffered = pending.get(new Key(userId, lessonId));
+        if (buffered != null) {
+            if (buffered.duration() != null) {
+                return Optional.of(buffered);
+            }
+            Double storedDuration = videoProgressRepository.findByUserIdAndLessonId(userId, lessonId)
+                    .map(VideoProgress::getDuration)
+                    .orElse(null);
+            return Optional.of(new Position(userId, lessonId, buffered.watchTime(), storedDuration));
+        }
+        return videoProgressRepository.findByUserIdAndLessonId(userId, lessonId)
+                .map(p -> new Position(userId, lessonId, p.getWatchTime(), p.getDuration()));
+    }
+
+    public synchronized void flush() {
+        flushQueued.set(false);
+        List<Position> batch = new ArrayList<>(batchSize);
+        for (Key key : pending.keySet()) {
+            Position position = pending.remove(key);
+            if (position == null) {
+                continue;
+            }
+            batch.add(position);
+            if (batch.size() == batchSize) {
+                write(batch);
+                batch = new ArrayList<>(batchSize);
+            }
+        }
+        if (!batch.isEmpty()) {
+            write(batch);
+        }
+    }
+
+    private void write(List<Position> batch) {
+        try {
+            transactionTemplate.executeWithoutResult(status -> save(batch));
+        } catch (RuntimeException e) {
+            writeOneByOne(batch, e);
+        }
+    }
+
+    // Isolate the rows that made the batch fail so they can't block every later flush
+    private void writeOneByOne(List<Position> batch, RuntimeException batchFailure) {
+        List<Position> failed = new ArrayList<>();
+        RuntimeException lastFailure = batchFailure;
+        for (Position position : batch) {
+            try {
+                transactionTemplate.executeWithoutResult(status -> save(List.of(position)));
+            } catch (RuntimeException e) {
+                failed.add(position);
+                lastFailure = e;
+            }
+        }
+        if (failed.size() == batch.size()) {
+            // Nothing went through, so the database is the problem: put the batch back
+            // unless a newer heartbeat already replaced it
+            for (Position position : batch) {
+                pending.putIfAbsent(new Key(position.userId(), position.lessonId()), position);
+            }
+            throw lastFailure;
+        }
+        for (Position position : failed) {
+            System.err.println("❌ Dropping video progress for user " + position.userId()
+                    + ", lesson " + position.lessonId() + ": " + lastFailure.getMessage());
+        }
+    }
+
+    private void save(List<Position> positions) {
+        Set<String> userIds = new HashSet<>();
+        Set<Long> lessonIds = new HashSet<>();
+        for (Position position : positions) {
+            userIds.add(position.userId());
+            lessonIds.add(position.lessonId());
+        }
+        // One query for the whole batch; the IN lists may also match pairs nobody asked for, which are ignored
+        Map<Key, VideoProgress> existing = new HashMap<>();
+        for (VideoProgress row : videoProgressBatchRepository.findAllFor(userIds, lessonIds)) {
+            existing.put(new Key(row.getUserId(), row.getLessonId()), row);
+        }
+        List<VideoProgress> rows = new ArrayList<>(positions.size());
+        for (Position position : positions) {
+            VideoProgress progress = existing.get(new Key(position.userId(), position.lessonId()));
+            if (progress == null) {
+                progress = new VideoProgress();
+                progress.setUserId(position.userId());
+                progress.setLessonId(position.lessonId());
+            }
+            progress.setWatchTime(position.watchTime());
+            if (position.duration() != null) {
+                progress.setDuration(position.duration());
+            }
+            rows.add(progress);
+        }
+        videoProgressRepository.saveAll(rows);
+    }
+
+    private void flushQuietly() {
+        try {
+            flush();
+        } catch (RuntimeException e) {
+            System.err.println("❌ Video progress flush failed: " + e.getMessage());
+        }
+    }
+
+    @PreDestroy
+    void shutdown() {
+        flusher.shutdown();
+        try {
+            flusher.awaitTermination(10, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        flushQuietly();
+    }
+}
@@ -1,7 +1,6 @@
 package com.learnforge.controller;
 
-import com.learnforge.entity.VideoProgress;
-import com.learnforge.repository.VideoProgressRepository;
+import com.learnforge.service.VideoProgressBuffer;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
@@ -15,9 +14,9 @@ import java.util.Optional;
 public class VideoProgressController {
 
     @Autowired
-    private VideoProgressRepository videoProgressRepository;
+    private VideoProgressBuffer videoProgressBuffer;
 
-    // Save video progress
+    // Save video progress (buffered, written to the database in batches)
     @PostMapping("/save")
     public ResponseEntity<?> saveProgress(@RequestBody Map<String, Object> request) {
         try {
@@ -27,26 +26,10 @@ public class VideoProgressController {
             Double duration = request.get("duration") != null ?
                     Double.parseDouble(request.get("duration").toString()) : null;
 
-            Optional<VideoProgress> existingProgress =
-                    videoProgressRepository.findByUserIdAndLessonId(userId, lessonId);
-
-            VideoProgress progress;
-            if (existingProgress.isPresent()) {
-                progress = existingProgress.get();
-                progress.setWatchTime(currentTime);  // ✅ Changed method name
-                if (duration != null) {
-                    progress.setDuration(duration);
-                }
-            } else {
-                progress = new VideoProgress();
-                progress.setUserId(userId);
-                progress.setLessonId(lessonId);
-                progress.setWatchTime(currentTime);  // ✅ Changed method name
-                progress.setDuration(duration);
-            }
-
-            videoProgressRepository.save(progress);
-            return ResponseEntity.ok(progress);
+            VideoProgressBuffer.Position position =
+                    new VideoProgressBuffer.Position(userId, lessonId, currentTime, duration);
+            videoProgressBuffer.accept(position);
+            return ResponseEntity.ok(position);
         } catch (Exception e) {
             return ResponseEntity.badRequest().body("Error: " + e.getMessage());
         }
@@ -56,14 +39,13 @@ public class VideoProgressController {
     @GetMapping("/get/{userId}/{lessonId}")
     public ResponseEntity<?> getProgress(@PathVariable String userId, @PathVariable Long lessonId) {
         try {
-            Optional<VideoProgress> progress =
-                    videoProgressRepository.findByUserIdAndLessonId(userId, lessonId);
+            Optional<VideoProgressBuffer.Position> progress = videoProgressBuffer.get(userId, lessonId);
 
             if (progress.isPresent()) {
                 // Return with currentTime for frontend compatibility
                 return ResponseEntity.ok(Map.of(
-                        "currentTime", progress.get().getWatchTime(),
-                        "duration", progress.get().getDuration() != null ? progress.get().getDuration() : 0
+                        "currentTime", progress.get().watchTime(),
+                        "duration", progress.get().duration() != null ? progress.get().duration() : 0
                 ));
             } else {
                 return ResponseEntity.ok(Map.of("currentTime", 0, "duration", 0));